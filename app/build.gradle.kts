@@ -33,6 +33,13 @@ android {
     buildFeatures {
         viewBinding = true
     }
+
+    testOptions {
+        unitTests.all {
+            // Benchmark classes skip themselves unless run with -Prunner.benchmarks=true
+            it.systemProperty("runner.benchmarks", project.findProperty("runner.benchmarks") ?: "false")
+        }
+    }
 }
 
 dependencies {
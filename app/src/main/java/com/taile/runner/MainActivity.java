@@ -30,9 +30,10 @@ import androidx.fragment.app.FragmentTransaction;
 import com.taile.runner.TrackerService.LocalBinder;
 import com.taile.runner.databinding.ActivityMainBinding;
 import com.taile.runner.fragments.MapFragment;
+import com.taile.runner.fragments.RankingFragment;
 import com.taile.runner.fragments.RecordedLogFragment;
+import com.taile.runner.fragments.RunDetailFragment;
 
-import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -46,10 +47,6 @@ public class MainActivity extends AppCompatActivity {
     // Current active fragment
     private Fragment currentFragment;
 
-    // Formatters for display
-    private final DecimalFormat distanceFormat = new DecimalFormat("0.00");
-    private final DecimalFormat speedFormat = new DecimalFormat("0.0");
-
     // Service connection
     private final ServiceConnection connection = new ServiceConnection() {
         @Override
@@ -57,6 +54,8 @@ public class MainActivity extends AppCompatActivity {
             LocalBinder binder = (LocalBinder) service;
             trackerService = binder.getService();
             boundToService = true;
+            // Fixes are delivered immediately while this activity is on screen
+            trackerService.setUiVisible(true);
 
             // Start observing data from service
             setupObservers();
@@ -123,8 +122,7 @@ public class MainActivity extends AppCompatActivity {
             } else if (checkedId == R.id.tagMap) {
                 showFragment(new MapFragment());
             } else if (checkedId == R.id.tagRanking) {
-                // Implement Ranking fragment if needed
-                Toast.makeText(this, "Ranking feature coming soon", Toast.LENGTH_SHORT).show();
+                showFragment(new RankingFragment());
             }
         });
 
@@ -145,6 +143,26 @@ public class MainActivity extends AppCompatActivity {
         currentFragment = fragment;
     }
 
+    /**
+     * Opens the detail screen of a run on top of the current tab; back returns to it.
+     */
+    public void showRunDetail(long runId) {
+        getSupportFragmentManager().beginTransaction()
+                .replace(R.id.cardShowContentTag, RunDetailFragment.newInstance(runId))
+                .addToBackStack(null)
+                .commit();
+    }
+
+    /**
+     * Shows the recorded route of a run on the map; back returns to the previous screen.
+     */
+    public void showRunRoute(long runId) {
+        getSupportFragmentManager().beginTransaction()
+                .replace(R.id.cardShowContentTag, MapFragment.newInstance(runId))
+                .addToBackStack(null)
+                .commit();
+    }
+
     @Override
     protected void onStart() {
         super.onStart();
@@ -158,6 +176,8 @@ public class MainActivity extends AppCompatActivity {
         super.onStop();
         // Unbind from service
         if (boundToService) {
+            // Let the service fall back to batched location delivery
+            trackerService.setUiVisible(false);
             unbindService(connection);
             boundToService = false;
         }
@@ -165,26 +185,11 @@ public class MainActivity extends AppCompatActivity {
 
     private void setupObservers() {
         if (trackerService != null) {
-            // Observe step count
-            trackerService.getStepCount().observe(this, steps -> {
-                binding.tvSteps.setText(String.valueOf(steps));
-            });
-
-            // Observe distance
-            trackerService.getTotalDistance().observe(this, distance -> {
-                binding.tvDistance.setText(distanceFormat.format(distance));
-            });
-
-            // Observe speed
-            trackerService.getCurrentSpeed().observe(this, speed -> {
-                binding.tvSpeed.setText(speedFormat.format(speed));
-            });
-
-            // Observe current location (will be useful for MapFragment)
-            trackerService.getCurrentLocation().observe(this, location -> {
-                if (currentFragment instanceof MapFragment) {
-                    // The MapFragment will handle this through its own observer
-                }
+            // One consistent update per snapshot, text already formatted by the service
+            trackerService.getSnapshot().observe(this, snapshot -> {
+                binding.tvSteps.setText(snapshot.stepsText);
+                binding.tvDistance.setText(snapshot.distanceText);
+                binding.tvSpeed.setText(snapshot.speedText);
             });
         }
     }
@@ -242,20 +247,18 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void stopTracking() {
-        // Stop the tracker service
+        // Ask the tracker service to save the run; it stops itself once the save is on disk
         if (boundToService) {
             Intent serviceIntent = new Intent(this, TrackerService.class);
-            stopService(serviceIntent);
+            serviceIntent.setAction(TrackerService.ACTION_STOP);
+            startService(serviceIntent);
         }
 
         // Update tracking state
         isTracking = false;
         updateUIForTrackingState();
 
-        // Refresh the RecordedLogFragment if it's visible
-        if (currentFragment instanceof RecordedLogFragment) {
-            showFragment(new RecordedLogFragment());
-        }
+        // RecordedLogFragment picks up the saved run through RunRecordsManager's change listener
     }
 
     private void updateUIForTrackingState() {
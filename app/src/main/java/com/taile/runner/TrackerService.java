@@ -1,6 +1,5 @@
 package com.taile.runner;
 
-import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
@@ -14,49 +13,141 @@ import android.hardware.SensorManager;
 import android.location.Location;
 import android.os.Binder;
 import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.IBinder;
 import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
 import android.widget.Toast;
 
-import androidx.annotation.NonNull;
 import androidx.core.app.NotificationCompat;
 import androidx.lifecycle.LifecycleService;
 import androidx.lifecycle.MutableLiveData;
 
-import com.google.android.gms.location.FusedLocationProviderClient;
-import com.google.android.gms.location.LocationCallback;
-import com.google.android.gms.location.LocationRequest;
-import com.google.android.gms.location.LocationResult;
-import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.location.Priority;
+import com.taile.runner.geo.GpsKalmanFilter;
+import com.taile.runner.geo.LocalDistanceKernel;
 import com.taile.runner.models.RunRecord;
 import com.taile.runner.storage.RunRecordsManager;
+import com.taile.runner.track.TrackBuffer;
+import com.taile.runner.tracking.AutoPauseDetector;
+import com.taile.runner.tracking.CadenceMeter;
+import com.taile.runner.tracking.DistanceFusion;
+import com.taile.runner.tracking.LocationDemand;
+import com.taile.runner.tracking.LocationHub;
+import com.taile.runner.tracking.NotificationThrottle;
+import com.taile.runner.tracking.RollingStats;
+import com.taile.runner.tracking.SamplingPolicy;
+import com.taile.runner.tracking.SplitEngine;
+import com.taile.runner.tracking.TrackingSnapshot;
+
+import java.util.List;
+import java.util.function.Consumer;
 
 public class TrackerService extends LifecycleService implements SensorEventListener {
 
+    private static final String TAG = "TrackerService";
+    // Ends the run: the service saves it and stops itself once it is on disk
+    public static final String ACTION_STOP = "com.taile.runner.action.STOP";
     private static final String CHANNEL_ID = "tracker_notification_channel";
     private static final int NOTIFICATION_ID = 1;
-    private static final float STEP_LENGTH = 0.75f; // Average step length in meters
-    private static final float MAX_VALID_SPEED = 12.0f; // Maximum valid speed in m/s
+    private static final float STEP_LENGTH = 0.75f; // Stride before calibration, in meters
+    // Location interval per sampling mode
+    private static final long HIGH_RATE_INTERVAL_MS = 2000;
+    private static final long LOW_RATE_INTERVAL_MS = 5000;
+    private static final long PAUSED_INTERVAL_MS = 30_000;
+    private static final long SAMPLING_CHECK_INTERVAL_MS = 5000;
+    // Upper bound on the UI update rate
+    private static final long SNAPSHOT_INTERVAL_MS = 1000;
+    // While no UI is visible fixes are collected by the provider and delivered in batches
+    private static final long BATCH_DELIVERY_DELAY_MS = 45_000;
+    // Step events held by the sensor hub while the UI is hidden; shorter than the
+    // location delay so cadence is known when a location batch is processed
+    private static final int STEP_BATCH_LATENCY_US = 10_000_000;
+    private static final long CADENCE_WINDOW_MS = 30_000;
+    private static final long CADENCE_MIN_SPAN_MS = 5_000;
+    private static final int CADENCE_SAMPLES = 32;
+    // Bound on waiting for the finished run to reach disk when the service stops
+    private static final long SAVE_FLUSH_TIMEOUT_MS = 2000;
 
     // LiveData for UI updates
-    private final MutableLiveData<Integer> stepCount = new MutableLiveData<>(0);
-    private final MutableLiveData<Float> totalDistance = new MutableLiveData<>(0f);
-    private final MutableLiveData<Float> currentSpeed = new MutableLiveData<>(0f);
-    private final MutableLiveData<Location> currentLocation = new MutableLiveData<>();
-
-    // Location tracking
-    private FusedLocationProviderClient fusedLocationClient;
-    private LocationRequest locationRequest;
-    private LocationCallback locationCallback;
-    private Location lastLocation;
-    private long lastLocationTime;
+    private final MutableLiveData<TrackingSnapshot> snapshot = new MutableLiveData<>();
+
+    // Tracking pipeline: location and step events are delivered to this thread, which
+    // owns all the mutable tracking state below and only posts results to the UI
+    private HandlerThread trackingThread;
+    private Handler trackingHandler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Location tracking, through the subscription shared with the map
+    private LocationHub locationHub;
+    private final LocationHub.Listener locationListener = this::onNewLocations;
+    private boolean requestingLocationUpdates = false;
+    private boolean uiVisible = false;
+    // Smooths precise fixes and rejects outliers; distance and the route come from its estimate
+    private final GpsKalmanFilter gpsFilter = new GpsKalmanFilter();
+    private long lastFixTime;
+    private float runDistanceKm = 0f;
+    // GPS distance, filled from steps where GPS drops out or is rejected
+    private final DistanceFusion distanceFusion = new DistanceFusion(STEP_LENGTH);
+    // Smoothed speed over the last seconds, shown instead of the fix-to-fix speed
+    private final RollingStats rollingStats = new RollingStats();
+    // Probe distance while paused
+    private final LocalDistanceKernel distanceKernel = new LocalDistanceKernel();
+    // Sampling mode from motion state; coarse fixes taken while paused only probe for movement
+    private final SamplingPolicy samplingPolicy = new SamplingPolicy();
+    private Location lastProbeLocation;
+    // Stops are not counted as distance or moving time
+    private final AutoPauseDetector autoPause = new AutoPauseDetector();
+    // Per-kilometer splits on the moving-time axis
+    private final SplitEngine splitEngine = new SplitEngine();
+    private final Runnable samplingCheck = new Runnable() {
+        @Override
+        public void run() {
+            // Also re-evaluated without events, e.g. when steps stop arriving
+            updateSamplingMode();
+            trackingHandler.postDelayed(this, SAMPLING_CHECK_INTERVAL_MS);
+        }
+    };
+    // Live values collected between UI updates, published at most once per interval
+    private final TrackingSnapshot.Builder snapshotBuilder = new TrackingSnapshot.Builder();
+    // Live values in the foreground notification, re-posted at a bounded rate. The
+    // builder is created and used on the tracking thread only
+    private NotificationManager notificationManager;
+    private NotificationCompat.Builder notificationBuilder;
+    private final NotificationThrottle notificationThrottle = new NotificationThrottle();
+    private String notificationContent;
+    private final Runnable snapshotTick = new Runnable() {
+        @Override
+        public void run() {
+            publishSnapshot();
+            trackingHandler.postDelayed(this, SNAPSHOT_INTERVAL_MS);
+        }
+    };
+    // Route of the current run, handed to the records manager when the run is saved
+    private TrackBuffer track = new TrackBuffer();
 
     // Step counting
     private SensorManager sensorManager;
     private Sensor stepSensor;
     private int initialSteps = -1;
     private int currentSteps = 0;
+    private boolean stepSensorRegistered = false;
+    // Run cadence for the record; the sampling policy keeps its own shorter window
+    private final CadenceMeter cadenceMeter =
+            new CadenceMeter(CADENCE_WINDOW_MS, CADENCE_MIN_SPAN_MS, CADENCE_SAMPLES);
+    private boolean stepBatchPending = false;
+    // Runs once after all step events delivered together have been handled
+    private final Runnable stepBatchDone = () -> {
+        stepBatchPending = false;
+        snapshotBuilder.setSteps(currentSteps);
+        if (!autoPause.isPaused()) {
+            // Keeps the distance moving from steps while GPS is out
+            updateRunDistance(SystemClock.elapsedRealtime());
+        }
+        updateSamplingMode();
+    };
 
     // Run tracking
     private long runStartTime = 0;
@@ -76,25 +167,15 @@ public class TrackerService extends LifecycleService implements SensorEventListe
         super.onCreate();
 
         // Initialize record storage
-        recordsManager = new RunRecordsManager(this);
-
-        // Initialize location client
-        fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
-
-        // Create location request
-        locationRequest = new LocationRequest.Builder(2000) // Update every 2 seconds
-                .setPriority(Priority.PRIORITY_HIGH_ACCURACY)
-                .setMinUpdateIntervalMillis(1000)
-                .build();
-
-        // Create location callback
-        locationCallback = new LocationCallback() {
-            @Override
-            public void onLocationResult(@NonNull LocationResult locationResult) {
-                super.onLocationResult(locationResult);
-                onNewLocation(locationResult.getLastLocation());
-            }
-        };
+        recordsManager = RunRecordsManager.getInstance(this);
+        // Set before the tracking thread starts, which publishes it to that thread
+        notificationManager = getSystemService(NotificationManager.class);
+
+        trackingThread = new HandlerThread("tracking-pipeline");
+        trackingThread.start();
+        trackingHandler = new Handler(trackingThread.getLooper());
+
+        locationHub = LocationHub.getInstance(this);
 
         // Initialize step sensor
         sensorManager = (SensorManager) getSystemService(Context.SENSOR_SERVICE);
@@ -105,70 +186,136 @@ public class TrackerService extends LifecycleService implements SensorEventListe
     public int onStartCommand(Intent intent, int flags, int startId) {
         super.onStartCommand(intent, flags, startId);
 
-        // Start foreground service with notification
-        createNotificationChannel();
-        startForeground(NOTIFICATION_ID, createNotification());
-
-        // Record run start time
-        runStartTime = System.currentTimeMillis();
-
-        // Reset counters
-        initialSteps = -1;
-        currentSteps = 0;
-        stepCount.postValue(0);
-        totalDistance.postValue(0f);
+        if (intent != null && ACTION_STOP.equals(intent.getAction())) {
+            trackingHandler.post(() -> {
+                finishRun();
+                // The save has flushed, so the process may go; a start that came in
+                // meanwhile has a newer id and keeps the service running
+                stopSelf(startId);
+            });
+            return START_NOT_STICKY;
+        }
 
-        // Start location updates
-        startLocationUpdates();
+        long startTime = System.currentTimeMillis();
 
-        // Start step counting
-        if (stepSensor != null) {
-            sensorManager.registerListener(this, stepSensor, SensorManager.SENSOR_DELAY_NORMAL);
-        }
+        // Start foreground service with notification
+        createNotificationChannel();
+        startForeground(NOTIFICATION_ID, createNotificationBuilder(startTime).build());
+
+        trackingHandler.post(() -> {
+            // Record run start time
+            runStartTime = startTime;
+
+            // Reset counters
+            initialSteps = -1;
+            currentSteps = 0;
+            gpsFilter.reset();
+            runDistanceKm = 0f;
+            distanceFusion.reset();
+            rollingStats.reset();
+            lastProbeLocation = null;
+            samplingPolicy.reset(SystemClock.elapsedRealtime());
+            autoPause.reset();
+            splitEngine.reset();
+            snapshotBuilder.reset();
+            publishSnapshot();
+            notificationThrottle.reset();
+            notificationContent = null;
+            notificationBuilder = createNotificationBuilder(startTime);
+            track = new TrackBuffer();
+
+            // Start location updates
+            startLocationUpdates();
+
+            // Start step counting
+            cadenceMeter.reset();
+            registerStepSensor();
+
+            trackingHandler.removeCallbacks(samplingCheck);
+            trackingHandler.postDelayed(samplingCheck, SAMPLING_CHECK_INTERVAL_MS);
+            trackingHandler.removeCallbacks(snapshotTick);
+            trackingHandler.postDelayed(snapshotTick, SNAPSHOT_INTERVAL_MS);
+        });
 
         return START_STICKY;
     }
 
     @Override
     public void onDestroy() {
-        // Save run record before stopping service
-        saveRunRecord();
+        // Nothing left after ACTION_STOP; a run stopped any other way is saved best effort
+        trackingHandler.post(this::finishRun);
+        // Runs the task above, then ends the thread
+        trackingThread.quitSafely();
+
+        super.onDestroy();
+    }
+
+    /**
+     * Stops collecting and saves the run. Runs on the tracking thread; a second call
+     * finds no run and only stops.
+     */
+    private void finishRun() {
+        trackingHandler.removeCallbacks(samplingCheck);
+        trackingHandler.removeCallbacks(snapshotTick);
 
         // Stop location updates
         stopLocationUpdates();
 
         // Stop step counting
-        if (stepSensor != null) {
-            sensorManager.unregisterListener(this);
-        }
+        unregisterStepSensor();
+        trackingHandler.removeCallbacks(stepBatchDone);
+        stepBatchPending = false;
 
-        super.onDestroy();
+        // Save run record before stopping service
+        saveRunRecord();
+        runStartTime = 0;
     }
 
     private void saveRunRecord() {
         // Only save if there was some meaningful activity
-        if (runStartTime > 0 && totalDistance.getValue() != null && totalDistance.getValue() > 0) {
+        if (runStartTime > 0 && runDistanceKm > 0) {
             long endTime = System.currentTimeMillis();
 
             RunRecord record = new RunRecord();
             record.setStartTime(runStartTime);
             record.setEndTime(endTime);
-            record.setDistance(totalDistance.getValue());
+            record.setDistance(runDistanceKm);
             record.setSteps(currentSteps);
+            updateAutoPause(SystemClock.elapsedRealtime(), Float.NaN);
+            long movingTime = autoPause.getMovingTime();
+            record.setMovingTime(movingTime);
+            if (movingTime > 0) {
+                record.setAvgCadence(currentSteps * 60_000f / movingTime);
+            }
+            record.setMaxCadence(cadenceMeter.getPeakCadence());
 
-            // Calculate average speed
+            // Calculate average speed over moving time, wall-clock time if none was measured
             float avgSpeed = 0;
-            if (endTime > runStartTime) {
-                float durationSeconds = (endTime - runStartTime) / 1000f;
-                if (durationSeconds > 0) {
-                    // Convert km to meters for m/s
-                    avgSpeed = (totalDistance.getValue() * 1000) / durationSeconds;
-                }
+            long activeMillis = movingTime > 0 ? movingTime : endTime - runStartTime;
+            if (activeMillis > 0) {
+                float durationSeconds = activeMillis / 1000f;
+                // Convert km to meters for m/s
+                avgSpeed = (runDistanceKm * 1000) / durationSeconds;
             }
             record.setAvgSpeed(avgSpeed);
 
-            // Save to storage
-            recordsManager.addRecord(record);
+            // Written by the background writers, then waited for here on the tracking
+            // thread so the run is on disk before the process can be killed
+            track.trimToSize();
+            recordsManager.addRecord(record, track,
+                    splitEngine.finish(runDistanceKm * 1000.0, movingTime, currentSteps));
+            if (!recordsManager.flush(SAVE_FLUSH_TIMEOUT_MS)) {
+                Log.w(TAG, "Run record not yet on disk after " + SAVE_FLUSH_TIMEOUT_MS + " ms");
+            }
+            Log.d(TAG, "Run record saved, writer stats: " + recordsManager.getWriteStats());
+            samplingPolicy.evaluate(SystemClock.elapsedRealtime());
+            Log.d(TAG, "Sampling time: high " + samplingPolicy.getTimeInMode(SamplingPolicy.Mode.HIGH_RATE) / 1000
+                    + "s, low " + samplingPolicy.getTimeInMode(SamplingPolicy.Mode.LOW_RATE) / 1000
+                    + "s, paused " + samplingPolicy.getTimeInMode(SamplingPolicy.Mode.PAUSED) / 1000 + "s");
+            Log.d(TAG, "Notification updates: " + notificationThrottle);
+            Log.d(TAG, "Stride " + distanceFusion.getStrideLength() + " m after "
+                    + distanceFusion.getCalibrationCount() + " calibrations, "
+                    + (int) distanceFusion.getStepFilledMeters() + " m filled from steps");
         }
     }
 
@@ -180,65 +327,243 @@ public class TrackerService extends LifecycleService implements SensorEventListe
 
     // Location updates handling
     private void startLocationUpdates() {
-        try {
-            fusedLocationClient.requestLocationUpdates(
-                    locationRequest, locationCallback, Looper.getMainLooper());
-        } catch (SecurityException e) {
-            e.printStackTrace();
+        LocationDemand demand = buildLocationDemand(samplingPolicy.getMode(), !uiVisible);
+        // Fixes held back in a batch are not an outage
+        distanceFusion.setDeliveryDelay(demand.maxUpdateDelayMs);
+        // Replaces this service's previous demand; the hub re-requests only if the merge changes
+        locationHub.subscribe(locationListener, demand, trackingHandler);
+        requestingLocationUpdates = true;
+    }
+
+    private static LocationDemand buildLocationDemand(SamplingPolicy.Mode mode, boolean batched) {
+        long maxUpdateDelay = batched ? BATCH_DELIVERY_DELAY_MS : 0;
+        switch (mode) {
+            case HIGH_RATE:
+                return new LocationDemand(HIGH_RATE_INTERVAL_MS, 1000,
+                        Priority.PRIORITY_HIGH_ACCURACY, maxUpdateDelay);
+            case LOW_RATE:
+                return new LocationDemand(LOW_RATE_INTERVAL_MS, LOW_RATE_INTERVAL_MS,
+                        Priority.PRIORITY_HIGH_ACCURACY, maxUpdateDelay);
+            default:
+                // Standing still: coarse fixes are enough to notice moving off
+                return new LocationDemand(PAUSED_INTERVAL_MS, PAUSED_INTERVAL_MS,
+                        Priority.PRIORITY_BALANCED_POWER_ACCURACY, maxUpdateDelay);
+        }
+    }
+
+    /**
+     * Re-requests location updates when the sampling policy changes mode.
+     */
+    private void updateSamplingMode() {
+        SamplingPolicy.Mode previous = samplingPolicy.getMode();
+        SamplingPolicy.Mode mode = samplingPolicy.evaluate(SystemClock.elapsedRealtime());
+        if (mode == previous) {
+            return;
+        }
+        Log.d(TAG, "Sampling mode " + previous + " -> " + mode);
+        lastProbeLocation = null;
+        if (requestingLocationUpdates) {
+            startLocationUpdates();
         }
     }
 
     private void stopLocationUpdates() {
-        fusedLocationClient.removeLocationUpdates(locationCallback);
+        locationHub.unsubscribe(locationListener);
+        requestingLocationUpdates = false;
     }
 
-    private void onNewLocation(Location location) {
-        if (location != null) {
-            // Update current location LiveData for map display
-            currentLocation.postValue(location);
-
-            if (lastLocation != null) {
-                // Calculate distance between current and last location
-                float distance = location.distanceTo(lastLocation);
-
-                // Calculate time difference in seconds
-                long currentTime = System.currentTimeMillis();
-                float timeDifference = (currentTime - lastLocationTime) / 1000f;
-
-                // Calculate speed in m/s
-                float speed = distance / timeDifference;
-
-                // Check if speed is reasonable (not GPS error)
-                if (speed <= MAX_VALID_SPEED) {
-                    // Update total distance (convert to kilometers)
-                    float currentTotalDistance = totalDistance.getValue() != null ?
-                            totalDistance.getValue() : 0f;
-                    totalDistance.postValue(currentTotalDistance + (distance / 1000f));
-
-                    // Update current speed
-                    currentSpeed.postValue(speed);
-                } else {
-                    // GPS error, show warning toast
-                    Toast.makeText(
-                            this,
-                            R.string.gps_signal_unstable,
-                            Toast.LENGTH_SHORT
-                    ).show();
-
-                    // Keep the last valid speed
-                    float lastSpeed = currentSpeed.getValue() != null ?
-                            currentSpeed.getValue() : 0f;
-                    currentSpeed.postValue(lastSpeed);
+    /**
+     * Switches between immediate delivery while the UI is on screen and batched
+     * delivery otherwise.
+     */
+    public void setUiVisible(boolean visible) {
+        trackingHandler.post(() -> {
+            if (uiVisible == visible) {
+                return;
+            }
+            uiVisible = visible;
+            if (requestingLocationUpdates) {
+                if (visible) {
+                    // Hand over fixes still held in the current batch
+                    locationHub.flush();
                 }
+                startLocationUpdates();
+            }
+            if (stepSensorRegistered) {
+                // Events still held by the hub may be dropped; the counter is cumulative,
+                // so the next event carries their steps anyway
+                registerStepSensor();
+            }
+        });
+    }
+
+    /**
+     * Registers the step counter, letting the sensor hub batch events while the UI is
+     * hidden. Re-registering replaces the previous registration.
+     */
+    private void registerStepSensor() {
+        if (stepSensor == null) {
+            return;
+        }
+        unregisterStepSensor();
+        int maxReportLatencyUs = uiVisible ? 0 : STEP_BATCH_LATENCY_US;
+        stepSensorRegistered = sensorManager.registerListener(this, stepSensor,
+                SensorManager.SENSOR_DELAY_NORMAL, maxReportLatencyUs, trackingHandler);
+    }
+
+    private void unregisterStepSensor() {
+        if (stepSensorRegistered) {
+            sensorManager.unregisterListener(this);
+            stepSensorRegistered = false;
+        }
+    }
+
+    /**
+     * Runs every fix of a delivery through the distance/speed pipeline in order, then
+     * publishes the result once however many fixes the batch held.
+     */
+    private void onNewLocations(List<Location> locations) {
+        if (locations.isEmpty()) {
+            return;
+        }
+        boolean rejectedFix = false;
+        for (Location location : locations) {
+            if (!processFix(location)) {
+                rejectedFix = true;
             }
+        }
+
+        updateSamplingMode();
+
+        // Picked up by the next snapshot; rejected fixes leave the speed window as it was
+        snapshotBuilder.setLocation(locations.get(locations.size() - 1));
+        snapshotBuilder.setSpeed(rollingStats.getAverageSpeed(), rollingStats.getPace());
 
-            // Update last location
-            lastLocation = location;
-            lastLocationTime = System.currentTimeMillis();
+        if (rejectedFix) {
+            // GPS error, show warning toast
+            mainHandler.post(() -> Toast.makeText(
+                    this,
+                    stepSensorRegistered ? R.string.gps_signal_unstable_steps : R.string.gps_signal_unstable,
+                    Toast.LENGTH_SHORT
+            ).show());
         }
     }
 
-    // Step counter sensor handling
+    /**
+     * @return false if the fix implied an impossible speed and was not counted
+     */
+    private boolean processFix(Location location) {
+        if (samplingPolicy.getMode() == SamplingPolicy.Mode.PAUSED) {
+            probeFix(location);
+            return true;
+        }
+        long fixTime = fixTimeMillis(location);
+        if (gpsFilter.isInitialized() && fixTime <= lastFixTime) {
+            // Duplicate or out-of-order fix
+            return true;
+        }
+        boolean hadFix = gpsFilter.isInitialized();
+        GpsKalmanFilter.Result result = gpsFilter.update(fixTime,
+                location.getLatitude(), location.getLongitude(),
+                location.hasAccuracy() ? location.getAccuracy() : Float.NaN);
+        if (result == GpsKalmanFilter.Result.REJECTED) {
+            // Outlier; the next segment starts from the last good estimate, steps cover the gap
+            distanceFusion.onFixRejected();
+            return false;
+        }
+        long timeDifference = fixTime - lastFixTime;
+        lastFixTime = fixTime;
+        if (result == GpsKalmanFilter.Result.RESET) {
+            appendTrackPoint(location);
+            if (!hadFix) {
+                distanceFusion.restart(fixTime, location.getAccuracy());
+                return true;
+            }
+            // Filter lost track and restarted here; the way here is left to the steps
+            distanceFusion.onFixRejected();
+            distanceFusion.onFix(fixTime, 0, location.getAccuracy());
+            updateRunDistance(fixTime);
+            return false;
+        }
+
+        float speed = gpsFilter.getSpeed();
+        samplingPolicy.onSpeed(fixTime, speed);
+        if (updateAutoPause(fixTime, speed)) {
+            // Standing still: what moves is GPS jitter, not the runner
+            distanceFusion.restart(fixTime, location.getAccuracy());
+            return true;
+        }
+
+        double meters = distanceFusion.onFix(fixTime, gpsFilter.getPathIncrement(), location.getAccuracy());
+        rollingStats.add(fixTime, meters, timeDifference);
+        appendTrackPoint(location);
+        updateRunDistance(fixTime);
+        return true;
+    }
+
+    private void updateRunDistance(long nowMillis) {
+        runDistanceKm = (float) (distanceFusion.getDistance(nowMillis) / 1000.0);
+        snapshotBuilder.setDistanceKm(runDistanceKm);
+        if (splitEngine.onProgress(runDistanceKm * 1000.0, autoPause.getMovingTime(), currentSteps) > 0) {
+            Log.d(TAG, "Split completed, " + splitEngine.getSplitCount() + " so far");
+        }
+    }
+
+    /**
+     * @param speed m/s, or NaN when only steps changed
+     * @return true while auto-paused
+     */
+    private boolean updateAutoPause(long timeMillis, float speed) {
+        boolean wasPaused = autoPause.isPaused();
+        boolean paused = autoPause.update(timeMillis, speed, samplingPolicy.getCadence(timeMillis));
+        if (paused != wasPaused) {
+            Log.d(TAG, paused ? "Auto-paused" : "Auto-resumed");
+            samplingPolicy.setAutoPaused(paused);
+            if (paused) {
+                // Speed restarts from the first segment after the pause
+                rollingStats.reset();
+                snapshotBuilder.setSpeed(0f, 0f);
+            }
+            snapshotBuilder.setAutoPaused(paused);
+        }
+        return paused;
+    }
+
+    /**
+     * Coarse fix received while paused: only compared with the previous one to notice
+     * movement. The route restarts from the first precise fix after the pause.
+     */
+    private void probeFix(Location location) {
+        // Coarse fixes are kept away from the filter
+        gpsFilter.reset();
+        if (lastProbeLocation != null) {
+            float timeDifference = (location.getTime() - lastProbeLocation.getTime()) / 1000f;
+            if (timeDifference > 0) {
+                float distance = (float) distanceKernel.distance(
+                        lastProbeLocation.getLatitude(), lastProbeLocation.getLongitude(),
+                        location.getLatitude(), location.getLongitude());
+                long fixTime = fixTimeMillis(location);
+                samplingPolicy.onSpeed(fixTime, distance / timeDifference);
+                updateAutoPause(fixTime, distance / timeDifference);
+            }
+        }
+        lastProbeLocation = location;
+    }
+
+    private static long fixTimeMillis(Location location) {
+        return location.getElapsedRealtimeNanos() / 1_000_000;
+    }
+
+    /**
+     * Records the filtered position and speed at the time of {@code location}.
+     */
+    private void appendTrackPoint(Location location) {
+        track.add(gpsFilter.getLatitude(), gpsFilter.getLongitude(), location.getTime(),
+                location.getAccuracy(), gpsFilter.getSpeed());
+        snapshotBuilder.setTrackPoints(track.size());
+    }
+
+    // Step counter sensor handling, delivered on the tracking thread
     @Override
     public void onSensorChanged(SensorEvent event) {
         if (event.sensor.getType() == Sensor.TYPE_STEP_COUNTER) {
@@ -251,14 +576,31 @@ public class TrackerService extends LifecycleService implements SensorEventListe
 
             // Calculate steps since start
             currentSteps = steps - initialSteps;
-            stepCount.postValue(currentSteps);
-
-            // Add steps to distance calculation (convert step distance to km)
-            float stepDistanceKm = (currentSteps * STEP_LENGTH) / 1000f;
+            // Events of a batch arrive together; each is placed at the time it was sensed
+            long stepTime = stepEventTimeMillis(event);
+            samplingPolicy.onSteps(stepTime, currentSteps);
+            cadenceMeter.onSteps(stepTime, currentSteps);
+            distanceFusion.onSteps(stepTime, currentSteps);
+            updateAutoPause(stepTime, Float.NaN);
+            if (!stepBatchPending) {
+                // Queued behind the rest of the batch
+                stepBatchPending = true;
+                trackingHandler.post(stepBatchDone);
+            }
+        }
+    }
 
-            // We're not directly adding this to totalDistance to avoid double counting
-            // The UI can use both values for display if needed
+    /**
+     * Sensor timestamps share the elapsed-realtime base on current devices; anything
+     * outside the plausible range falls back to the delivery time.
+     */
+    private static long stepEventTimeMillis(SensorEvent event) {
+        long now = SystemClock.elapsedRealtime();
+        long eventTime = event.timestamp / 1_000_000;
+        if (eventTime > now || now - eventTime > 2L * STEP_BATCH_LATENCY_US / 1000) {
+            return now;
         }
+        return eventTime;
     }
 
     @Override
@@ -266,21 +608,48 @@ public class TrackerService extends LifecycleService implements SensorEventListe
         // Not used
     }
 
-    // LiveData getters for UI observation
-    public MutableLiveData<Integer> getStepCount() {
-        return stepCount;
+    private void publishSnapshot() {
+        if (snapshotBuilder.hasChanges()) {
+            TrackingSnapshot latest = snapshotBuilder.build();
+            snapshot.postValue(latest);
+            notificationContent = latest.autoPaused
+                    ? getString(R.string.tracker_notification_paused, latest.distanceText)
+                    : getString(R.string.tracker_notification_live, latest.distanceText, latest.paceText);
+        }
+        updateNotification();
     }
 
-    public MutableLiveData<Float> getTotalDistance() {
-        return totalDistance;
+    /**
+     * Re-posts the foreground notification with the latest values. Called on every
+     * snapshot tick; the throttle drops unchanged text and caps the rate, and a
+     * skipped update goes out on a later tick.
+     */
+    private void updateNotification() {
+        if (notificationBuilder == null || notificationContent == null) {
+            return;
+        }
+        if (notificationThrottle.offer(SystemClock.elapsedRealtime(), notificationContent)) {
+            notificationBuilder.setContentText(notificationContent);
+            notificationManager.notify(NOTIFICATION_ID, notificationBuilder.build());
+        }
     }
 
-    public MutableLiveData<Float> getCurrentSpeed() {
-        return currentSpeed;
+    /**
+     * Copies the track points recorded from {@code fromIndex} on and hands them to
+     * {@code callback} on the main thread, so the map can extend its route with only
+     * what it has not drawn yet.
+     */
+    public void loadTrackPoints(int fromIndex, Consumer<TrackBuffer> callback) {
+        trackingHandler.post(() -> {
+            int size = track.size();
+            TrackBuffer points = track.copyRange(Math.min(Math.max(0, fromIndex), size), size);
+            mainHandler.post(() -> callback.accept(points));
+        });
     }
 
-    public MutableLiveData<Location> getCurrentLocation() {
-        return currentLocation;
+    // LiveData getter for UI observation
+    public MutableLiveData<TrackingSnapshot> getSnapshot() {
+        return snapshot;
     }
 
     // Notification management
@@ -291,24 +660,32 @@ public class TrackerService extends LifecycleService implements SensorEventListe
                     "Tracker Notification Channel",
                     NotificationManager.IMPORTANCE_LOW
             );
-            NotificationManager notificationManager = getSystemService(NotificationManager.class);
-            notificationManager.createNotificationChannel(channel);
+            getSystemService(NotificationManager.class).createNotificationChannel(channel);
         }
     }
 
-    private Notification createNotification() {
+    /**
+     * Builders are not thread-safe, so the main thread and the tracking thread each
+     * get their own.
+     */
+    private NotificationCompat.Builder createNotificationBuilder(long startTime) {
         Intent notificationIntent = new Intent(this, MainActivity.class);
         PendingIntent pendingIntent = PendingIntent.getActivity(
                 this, 0, notificationIntent,
                 PendingIntent.FLAG_IMMUTABLE
         );
 
+        // Elapsed time is drawn by the system chronometer
         return new NotificationCompat.Builder(this, CHANNEL_ID)
                 .setContentTitle(getString(R.string.tracker_notification_title))
                 .setContentText(getString(R.string.tracker_notification_text))
                 .setSmallIcon(R.mipmap.ic_launcher)
                 .setContentIntent(pendingIntent)
                 .setPriority(NotificationCompat.PRIORITY_LOW)
-                .build();
+                .setWhen(startTime)
+                .setShowWhen(true)
+                .setUsesChronometer(true)
+                .setOnlyAlertOnce(true)
+                .setOngoing(true);
     }
 }
@@ -0,0 +1,82 @@
+package com.taile.runner.adapters;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.taile.runner.R;
+import com.taile.runner.models.RunRecord;
+import com.taile.runner.stats.RankingEngine;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+public class RankingAdapter extends RecyclerView.Adapter<RankingAdapter.ViewHolder> {
+
+    private List<RunRecord> records = new ArrayList<>();
+    private RankingEngine.Metric metric = RankingEngine.Metric.DISTANCE;
+    private final SimpleDateFormat dateTimeFormat = new SimpleDateFormat("HH:mm dd/MM/yyyy", Locale.getDefault());
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_ranking, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        RunRecord record = records.get(position);
+
+        holder.tvRank.setText(String.format(Locale.getDefault(), "#%d", position + 1));
+        holder.tvValue.setText(formatValue(record));
+        holder.tvDate.setText(dateTimeFormat.format(new Date(record.getStartTime())));
+    }
+
+    @Override
+    public int getItemCount() {
+        return records.size();
+    }
+
+    public void updateData(RankingEngine.Metric metric, List<RunRecord> ranked) {
+        this.metric = metric;
+        this.records = ranked;
+        notifyDataSetChanged();
+    }
+
+    private String formatValue(RunRecord record) {
+        switch (metric) {
+            case DISTANCE:
+                return String.format(Locale.getDefault(), "%.2f km", record.getDistance());
+            case AVG_SPEED:
+                return String.format(Locale.getDefault(), "%.1f m/s", record.getAvgSpeed());
+            case STEPS:
+                return String.format(Locale.getDefault(), "%d steps", record.getSteps());
+            default:
+                long millis = record.getDuration();
+                return String.format(Locale.getDefault(), "%02d:%02d:%02d",
+                        TimeUnit.MILLISECONDS.toHours(millis),
+                        TimeUnit.MILLISECONDS.toMinutes(millis) % 60,
+                        TimeUnit.MILLISECONDS.toSeconds(millis) % 60);
+        }
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        TextView tvRank, tvValue, tvDate;
+
+        public ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvRank = itemView.findViewById(R.id.tvRank);
+            tvValue = itemView.findViewById(R.id.tvRankValue);
+            tvDate = itemView.findViewById(R.id.tvRankDate);
+        }
+    }
+}
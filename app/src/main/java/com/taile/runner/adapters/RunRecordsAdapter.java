@@ -10,20 +10,47 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.taile.runner.R;
 import com.taile.runner.models.RunRecord;
+import com.taile.runner.storage.RecordCursor;
+import com.taile.runner.storage.RunRecordsManager;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Shows the run history a page at a time. Pages are pulled from
+ * {@link RunRecordsManager} with keyset cursors as the list scrolls, and at most
+ * {@code maxLoadedPages} pages are held; the far end of the window is dropped
+ * and re-fetched when scrolled back into view.
+ */
 public class RunRecordsAdapter extends RecyclerView.Adapter<RunRecordsAdapter.ViewHolder> {
 
-    private List<RunRecord> records;
-    private final SimpleDateFormat dateTimeFormat = new SimpleDateFormat("HH:mm dd/MM/yyyy", Locale.getDefault());
+    public interface OnRecordClickListener {
+        void onRecordClick(RunRecord record);
+    }
+
+    // Start fetching when this close to either end of the loaded window
+    private static final int PREFETCH_DISTANCE = 10;
+
+    private final RunRecordsManager recordsManager;
+    private final int pageSize;
+    private final int maxLoadedItems;
+    private final List<RunRecord> records = new ArrayList<>();
+    private boolean hasNewer = false;
+    private boolean hasOlder = false;
+    private OnRecordClickListener onRecordClickListener;
+
+    public RunRecordsAdapter(RunRecordsManager recordsManager, int pageSize, int maxLoadedPages) {
+        this.recordsManager = recordsManager;
+        this.pageSize = pageSize;
+        this.maxLoadedItems = pageSize * maxLoadedPages;
+    }
 
-    public RunRecordsAdapter(List<RunRecord> records) {
-        this.records = records;
+    public void setOnRecordClickListener(OnRecordClickListener listener) {
+        this.onRecordClickListener = listener;
     }
 
     @NonNull
@@ -36,20 +63,10 @@ public class RunRecordsAdapter extends RecyclerView.Adapter<RunRecordsAdapter.Vi
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
         RunRecord record = records.get(position);
-
-        // Format date and time
-        String startDateTime = dateTimeFormat.format(new Date(record.getStartTime()));
-
-        // Format duration
-        long durationMillis = record.getDuration();
-        String duration = formatDuration(durationMillis);
-
-        // Set data to views
-        holder.tvDateTime.setText(startDateTime);
-        holder.tvDistance.setText(String.format(Locale.getDefault(), "%.2f km", record.getDistance()));
-        holder.tvDuration.setText(duration);
-        holder.tvSteps.setText(String.format(Locale.getDefault(), "%d steps", record.getSteps()));
-        holder.tvSpeed.setText(String.format(Locale.getDefault(), "%.1f m/s", record.getAvgSpeed()));
+        holder.bind(record);
+        holder.itemView.setOnClickListener(onRecordClickListener == null
+                ? null
+                : v -> onRecordClickListener.onRecordClick(record));
     }
 
     @Override
@@ -57,12 +74,103 @@ public class RunRecordsAdapter extends RecyclerView.Adapter<RunRecordsAdapter.Vi
         return records.size();
     }
 
-    public void updateData(List<RunRecord> newRecords) {
-        this.records = newRecords;
+    /**
+     * Drops the loaded window and starts again from the most recent run.
+     */
+    public void reload() {
+        records.clear();
+        List<RunRecord> page = recordsManager.getPageAfter(null, pageSize);
+        records.addAll(page);
+        hasNewer = false;
+        hasOlder = page.size() == pageSize;
         notifyDataSetChanged();
     }
 
-    private String formatDuration(long millis) {
+    /**
+     * Called from the scroll listener with the visible range; extends the window
+     * in whichever direction is about to run out.
+     */
+    public void onVisibleRangeChanged(int firstVisible, int lastVisible) {
+        if (lastVisible != RecyclerView.NO_POSITION
+                && hasOlder && lastVisible >= records.size() - PREFETCH_DISTANCE) {
+            loadOlder();
+        } else if (firstVisible != RecyclerView.NO_POSITION
+                && hasNewer && firstVisible < PREFETCH_DISTANCE) {
+            loadNewer();
+        }
+    }
+
+    private void loadOlder() {
+        RecordCursor cursor = RecordCursor.of(records.get(records.size() - 1));
+        List<RunRecord> page = recordsManager.getPageAfter(cursor, pageSize);
+        hasOlder = page.size() == pageSize;
+        if (page.isEmpty()) {
+            return;
+        }
+        int insertAt = records.size();
+        records.addAll(page);
+        notifyItemRangeInserted(insertAt, page.size());
+
+        int excess = records.size() - maxLoadedItems;
+        if (excess > 0) {
+            records.subList(0, excess).clear();
+            notifyItemRangeRemoved(0, excess);
+            hasNewer = true;
+        }
+    }
+
+    private void loadNewer() {
+        RecordCursor cursor = RecordCursor.of(records.get(0));
+        List<RunRecord> page = recordsManager.getPageBefore(cursor, pageSize);
+        hasNewer = page.size() == pageSize;
+        if (page.isEmpty()) {
+            return;
+        }
+        records.addAll(0, page);
+        notifyItemRangeInserted(0, page.size());
+
+        int excess = records.size() - maxLoadedItems;
+        if (excess > 0) {
+            int keep = records.size() - excess;
+            records.subList(keep, records.size()).clear();
+            notifyItemRangeRemoved(keep, excess);
+            hasOlder = true;
+        }
+    }
+
+    /**
+     * Inserts a new record if its date position falls inside the loaded window;
+     * otherwise it is picked up when that part of the history is paged in. A record
+     * already shown, e.g. paged in just before its change event arrived, is ignored.
+     */
+    public void insertRecord(RunRecord record) {
+        int position = 0;
+        while (position < records.size()
+                && RunRecordsManager.NEWEST_FIRST.compare(records.get(position), record) < 0) {
+            position++;
+        }
+        // The order is total, so an existing copy sits exactly at the insertion point
+        if (position < records.size() && records.get(position).getId() == record.getId()) {
+            return;
+        }
+        if ((position == 0 && hasNewer) || (position == records.size() && hasOlder)) {
+            return;
+        }
+        records.add(position, record);
+        notifyItemInserted(position);
+    }
+
+    public void removeRecord(long id) {
+        for (int i = 0; i < records.size(); i++) {
+            if (records.get(i).getId() == id) {
+                records.remove(i);
+                notifyItemRemoved(i);
+                return;
+            }
+        }
+    }
+
+    private static String formatDuration(long millis) {
         long hours = TimeUnit.MILLISECONDS.toHours(millis);
         long minutes = TimeUnit.MILLISECONDS.toMinutes(millis) % 60;
         long seconds = TimeUnit.MILLISECONDS.toSeconds(millis) % 60;
@@ -74,8 +182,12 @@ public class RunRecordsAdapter extends RecyclerView.Adapter<RunRecordsAdapter.Vi
         }
     }
 
-    static class ViewHolder extends RecyclerView.ViewHolder {
+    /**
+     * Also binds the run summary card of the detail screen, which reuses the row layout.
+     */
+    public static class ViewHolder extends RecyclerView.ViewHolder {
         TextView tvDateTime, tvDistance, tvDuration, tvSteps, tvSpeed;
+        private final SimpleDateFormat dateTimeFormat = new SimpleDateFormat("HH:mm dd/MM/yyyy", Locale.getDefault());
 
         public ViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -85,5 +197,30 @@ public class RunRecordsAdapter extends RecyclerView.Adapter<RunRecordsAdapter.Vi
             tvSteps = itemView.findViewById(R.id.tvRecordSteps);
             tvSpeed = itemView.findViewById(R.id.tvRecordSpeed);
         }
+
+        public void bind(RunRecord record) {
+            // Format date and time
+            String startDateTime = dateTimeFormat.format(new Date(record.getStartTime()));
+
+            // Format duration
+            long durationMillis = record.getDuration();
+            String duration = formatDuration(durationMillis);
+            // Moving time is only recorded by newer runs
+            long movingMillis = record.getMovingTime();
+            if (movingMillis > 0 && movingMillis < durationMillis) {
+                duration += " (" + formatDuration(movingMillis) + " moving)";
+            }
+
+            // Set data to views
+            tvDateTime.setText(startDateTime);
+            tvDistance.setText(String.format(Locale.getDefault(), "%.2f km", record.getDistance()));
+            tvDuration.setText(duration);
+            String steps = String.format(Locale.getDefault(), "%d steps", record.getSteps());
+            if (record.getAvgCadence() > 0) {
+                steps += String.format(Locale.getDefault(), " (%.0f spm)", record.getAvgCadence());
+            }
+            tvSteps.setText(steps);
+            tvSpeed.setText(String.format(Locale.getDefault(), "%.1f m/s", record.getAvgSpeed()));
+        }
     }
 }
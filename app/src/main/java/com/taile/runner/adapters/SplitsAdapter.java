@@ -0,0 +1,77 @@
+package com.taile.runner.adapters;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.taile.runner.R;
+import com.taile.runner.models.Split;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+public class SplitsAdapter extends RecyclerView.Adapter<SplitsAdapter.ViewHolder> {
+
+    private List<Split> splits = new ArrayList<>();
+    // Distance covered at the end of each split, in km
+    private float[] endKm = new float[0];
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_split, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        Split split = splits.get(position);
+
+        float km = endKm[position];
+        holder.tvDistance.setText(km == Math.rint(km)
+                ? String.format(Locale.getDefault(), "%d km", Math.round(km))
+                : String.format(Locale.getDefault(), "%.2f km", km));
+
+        long paceSeconds = Math.round(split.getPace());
+        holder.tvPace.setText(String.format(Locale.getDefault(), "%d:%02d /km",
+                paceSeconds / 60, paceSeconds % 60));
+        holder.tvTime.setText(String.format(Locale.getDefault(), "%02d:%02d",
+                TimeUnit.MILLISECONDS.toMinutes(split.getDuration()),
+                TimeUnit.MILLISECONDS.toSeconds(split.getDuration()) % 60));
+        holder.tvSteps.setText(String.format(Locale.getDefault(), "%d steps", split.getSteps()));
+    }
+
+    @Override
+    public int getItemCount() {
+        return splits.size();
+    }
+
+    public void updateData(List<Split> splits) {
+        this.splits = splits;
+        endKm = new float[splits.size()];
+        float km = 0;
+        for (int i = 0; i < splits.size(); i++) {
+            km += splits.get(i).getDistance() / 1000f;
+            endKm[i] = km;
+        }
+        notifyDataSetChanged();
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        TextView tvDistance, tvPace, tvTime, tvSteps;
+
+        public ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvDistance = itemView.findViewById(R.id.tvSplitDistance);
+            tvPace = itemView.findViewById(R.id.tvSplitPace);
+            tvTime = itemView.findViewById(R.id.tvSplitTime);
+            tvSteps = itemView.findViewById(R.id.tvSplitSteps);
+        }
+    }
+}
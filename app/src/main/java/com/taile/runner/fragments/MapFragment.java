@@ -7,42 +7,83 @@ import android.content.ServiceConnection;
 import android.content.pm.PackageManager;
 import android.location.Location;
 import android.os.Bundle;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 
-import com.google.android.gms.location.FusedLocationProviderClient;
-import com.google.android.gms.location.LocationCallback;
-import com.google.android.gms.location.LocationRequest;
-import com.google.android.gms.location.LocationResult;
-import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.location.Priority;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.Polyline;
+import com.google.android.gms.maps.model.PolylineOptions;
 import com.taile.runner.MainActivity;
 import com.taile.runner.R;
 import com.taile.runner.TrackerService;
+import com.taile.runner.storage.RunRecordsManager;
+import com.taile.runner.track.RouteDecimator;
+import com.taile.runner.track.RouteViewport;
+import com.taile.runner.track.TrackBuffer;
+import com.taile.runner.track.TrackLod;
+import com.taile.runner.tracking.LocationDemand;
+import com.taile.runner.tracking.LocationHub;
+import com.taile.runner.tracking.TrackingSnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
 
 public class MapFragment extends Fragment implements OnMapReadyCallback {
 
+    private static final String ARG_RUN_ID = "run_id";
+    private static final long NO_RUN_ID = -1;
+    private static final int STORED_ROUTE_PADDING_PX = 64;
+
     private GoogleMap googleMap;
-    private FusedLocationProviderClient fusedLocationClient;
-    private LocationCallback locationCallback;
-    private LocationRequest locationRequest;
+    // Fixes for the map while no run is tracked, from the subscription shared with the service
+    private static final LocationDemand MAP_LOCATION_DEMAND =
+            new LocationDemand(2000, Priority.PRIORITY_HIGH_ACCURACY); // Update every 2 seconds
+    private LocationHub locationHub;
+    private LocationHub.Listener locationListener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
     private boolean locationUpdateActive = false;
     private TrackerService trackerService;
     private boolean boundToService = false;
     private boolean mapReady = false;
+    // Last fix drawn from the service snapshots, which also change for steps and speed
+    private Location lastShownLocation;
+
+    private static final float FOLLOW_ZOOM = 17f;
+    private static final float ROUTE_WIDTH = 12f;
+
+    // Live route: one polyline and one marker, updated in place
+    private Polyline routeLine;
+    private Marker positionMarker;
+    private final List<LatLng> routePoints = new ArrayList<>();
+    private final RouteDecimator routeDecimator = new RouteDecimator();
+    // Track points already fed to the decimator, and the latest count announced
+    private int consumedPoints = 0;
+    private int availablePoints = 0;
+    private boolean loadPending = false;
+    // Bumped on reset so loads requested for an earlier route are dropped
+    private int routeGeneration = 0;
+    private boolean cameraPlaced = false;
 
     // Service connection
     private final ServiceConnection connection = new ServiceConnection() {
@@ -65,10 +106,28 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
         }
     };
 
+    // Stored run shown instead of live tracking, NO_RUN_ID for the live map
+    private long storedRunId = NO_RUN_ID;
+    private TrackLod storedRoute;
+    // Polyline points per level, built when a level is first shown
+    private List<List<LatLng>> storedLevelPoints;
+    private int shownLevel = -1;
+
     public MapFragment() {
         // Required empty public constructor
     }
 
+    /**
+     * Map showing the recorded route of a stored run.
+     */
+    public static MapFragment newInstance(long runId) {
+        MapFragment fragment = new MapFragment();
+        Bundle args = new Bundle();
+        args.putLong(ARG_RUN_ID, runId);
+        fragment.setArguments(args);
+        return fragment;
+    }
+
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
                             Bundle savedInstanceState) {
@@ -78,6 +137,9 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
+        if (getArguments() != null) {
+            storedRunId = getArguments().getLong(ARG_RUN_ID, NO_RUN_ID);
+        }
 
         // Initialize map fragment
         SupportMapFragment mapFragment = (SupportMapFragment) getChildFragmentManager()
@@ -86,22 +148,21 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
             mapFragment.getMapAsync(this);
         }
 
+        view.findViewById(R.id.btnRunsHere).setOnClickListener(v -> findRunsInView(ids -> {
+            if (isAdded()) {
+                Toast.makeText(requireContext(), getString(R.string.runs_in_view, ids.length),
+                        Toast.LENGTH_SHORT).show();
+            }
+        }));
+
         // Initialize location services
-        fusedLocationClient = LocationServices.getFusedLocationProviderClient(requireActivity());
-
-        // Create location request
-        locationRequest = new LocationRequest.Builder(2000) // Update every 2 seconds
-                .setPriority(Priority.PRIORITY_HIGH_ACCURACY)
-                .build();
-
-        // Create location callback
-        locationCallback = new LocationCallback() {
-            @Override
-            public void onLocationResult(@NonNull LocationResult locationResult) {
-                Location location = locationResult.getLastLocation();
-                if (location != null && googleMap != null) {
-                    updateMapLocation(location);
-                }
+        locationHub = LocationHub.getInstance(requireContext());
+
+        // Create location listener
+        locationListener = locations -> {
+            Location location = locations.get(locations.size() - 1);
+            if (googleMap != null) {
+                updateMapLocation(location);
             }
         };
 
@@ -136,19 +197,110 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
     }
 
     private void observeLocationUpdates() {
-        if (trackerService != null && mapReady) {
-            trackerService.getCurrentLocation().observe(getViewLifecycleOwner(), location -> {
-                if (location != null) {
-                    updateMapLocation(location);
+        if (trackerService != null && mapReady && storedRunId == NO_RUN_ID) {
+            trackerService.getSnapshot().observe(getViewLifecycleOwner(), this::onSnapshot);
+        }
+    }
+
+    private void onSnapshot(TrackingSnapshot snapshot) {
+        if (snapshot.trackPoints < consumedPoints) {
+            // A new run started
+            resetRoute();
+        }
+        availablePoints = snapshot.trackPoints;
+        if (availablePoints > consumedPoints) {
+            loadNewTrackPoints();
+        }
+        if (snapshot.location != null && snapshot.location != lastShownLocation) {
+            lastShownLocation = snapshot.location;
+            updateMapLocation(snapshot.location);
+        }
+    }
+
+    /**
+     * Fetches only the points recorded since the last load; one request at a time.
+     */
+    private void loadNewTrackPoints() {
+        if (loadPending || trackerService == null) {
+            return;
+        }
+        loadPending = true;
+        int generation = routeGeneration;
+        trackerService.loadTrackPoints(consumedPoints, points -> {
+            loadPending = false;
+            if (googleMap == null || !isAdded()) {
+                return;
+            }
+            // Points of a route reset meanwhile are dropped
+            if (generation == routeGeneration) {
+                appendRoute(points);
+            }
+            if (availablePoints > consumedPoints) {
+                loadNewTrackPoints();
+            }
+        });
+    }
+
+    private void appendRoute(TrackBuffer points) {
+        boolean compacted = false;
+        for (int i = 0; i < points.size(); i++) {
+            double latitude = points.getLatitude(i);
+            double longitude = points.getLongitude(i);
+            int change = routeDecimator.add(latitude, longitude);
+            if (change == RouteDecimator.COMPACTED) {
+                compacted = true;
+            } else if (!compacted) {
+                LatLng point = new LatLng(latitude, longitude);
+                if (change == RouteDecimator.TAIL_MOVED) {
+                    routePoints.set(routePoints.size() - 1, point);
+                } else {
+                    routePoints.add(point);
                 }
-            });
+            }
+        }
+        consumedPoints += points.size();
+        if (compacted) {
+            // Earlier points were thinned out; copy the decimated route back
+            routePoints.clear();
+            for (int i = 0; i < routeDecimator.size(); i++) {
+                routePoints.add(new LatLng(routeDecimator.getLatitude(i), routeDecimator.getLongitude(i)));
+            }
+        }
+
+        if (routeLine == null) {
+            routeLine = googleMap.addPolyline(new PolylineOptions()
+                    .color(ContextCompat.getColor(requireContext(), R.color.primary_dark))
+                    .width(ROUTE_WIDTH));
         }
+        // The Maps SDK has no append; the same polyline gets the updated list
+        routeLine.setPoints(routePoints);
+    }
+
+    private void resetRoute() {
+        if (routeLine != null) {
+            routeLine.remove();
+            routeLine = null;
+        }
+        routePoints.clear();
+        routeDecimator.clear();
+        consumedPoints = 0;
+        availablePoints = 0;
+        routeGeneration++;
     }
 
     @Override
     public void onMapReady(@NonNull GoogleMap map) {
         googleMap = map;
         mapReady = true;
+        // Overlays of a previous map instance are gone; redraw the route from the start
+        routeLine = null;
+        positionMarker = null;
+        cameraPlaced = false;
+        resetRoute();
+        if (storedRunId != NO_RUN_ID) {
+            loadStoredRoute();
+            return;
+        }
         enableMyLocation();
 
         // If we already have the service bound, start observing location
@@ -157,6 +309,97 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
         }
     }
 
+    /**
+     * Reads and simplifies the stored run's track off the main thread, then draws it.
+     */
+    private void loadStoredRoute() {
+        if (storedRoute != null) {
+            showStoredRoute();
+            return;
+        }
+        RunRecordsManager recordsManager = RunRecordsManager.getInstance(requireContext());
+        long runId = storedRunId;
+        recordsManager.getExecutor().execute(() -> {
+            TrackBuffer track = recordsManager.getTrack(runId);
+            if (track == null || track.isEmpty()) {
+                return;
+            }
+            TrackLod lod = TrackLod.build(track);
+            mainHandler.post(() -> {
+                // The view, and the map with it, may have been torn down meanwhile
+                if (isAdded() && getView() != null && googleMap != null) {
+                    storedRoute = lod;
+                    showStoredRoute();
+                }
+            });
+        });
+    }
+
+    private void showStoredRoute() {
+        storedLevelPoints = new ArrayList<>(Collections.nCopies(storedRoute.getLevelCount(), null));
+        shownLevel = -1;
+        TrackBuffer track = storedRoute.getTrack();
+        LatLngBounds.Builder bounds = LatLngBounds.builder();
+        // The finest level is within centimeters of the full track; enough to frame it
+        for (int index : storedRoute.getPoints(storedRoute.getLevelCount() - 1)) {
+            bounds.include(new LatLng(track.getLatitude(index), track.getLongitude(index)));
+        }
+        routeLine = googleMap.addPolyline(new PolylineOptions()
+                .color(ContextCompat.getColor(requireContext(), R.color.primary_dark))
+                .width(ROUTE_WIDTH));
+        googleMap.setOnCameraIdleListener(this::updateStoredRouteLevel);
+        googleMap.moveCamera(CameraUpdateFactory.newLatLngBounds(bounds.build(), STORED_ROUTE_PADDING_PX));
+        updateStoredRouteLevel();
+    }
+
+    /**
+     * Swaps in the level of detail matching the camera zoom, if it changed.
+     */
+    private void updateStoredRouteLevel() {
+        if (storedRoute == null || routeLine == null) {
+            return;
+        }
+        int level = storedRoute.levelForZoom(googleMap.getCameraPosition().zoom);
+        if (level == shownLevel) {
+            return;
+        }
+        List<LatLng> points = storedLevelPoints.get(level);
+        if (points == null) {
+            TrackBuffer track = storedRoute.getTrack();
+            int[] indices = storedRoute.getPoints(level);
+            points = new ArrayList<>(indices.length);
+            for (int index : indices) {
+                points.add(new LatLng(track.getLatitude(index), track.getLongitude(index)));
+            }
+            storedLevelPoints.set(level, points);
+        }
+        routeLine.setPoints(points);
+        shownLevel = level;
+    }
+
+    /**
+     * Looks up the stored runs whose route passes through the visible part of the map
+     * and hands their ids to {@code callback} on the main thread.
+     */
+    public void findRunsInView(Consumer<long[]> callback) {
+        if (googleMap == null) {
+            return;
+        }
+        LatLngBounds visible = googleMap.getProjection().getVisibleRegion().latLngBounds;
+        RunRecordsManager recordsManager = RunRecordsManager.getInstance(requireContext());
+        // The first query may build the index from disk
+        recordsManager.getExecutor().execute(() -> {
+            long[] ids = recordsManager.findRunsInArea(
+                    visible.southwest.latitude, visible.southwest.longitude,
+                    visible.northeast.latitude, visible.northeast.longitude);
+            mainHandler.post(() -> {
+                if (isAdded()) {
+                    callback.accept(ids);
+                }
+            });
+        });
+    }
+
     private void enableMyLocation() {
         if (getActivity() != null && ActivityCompat.checkSelfPermission(getActivity(),
                 Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED) {
@@ -164,7 +407,7 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
             googleMap.getUiSettings().setMyLocationButtonEnabled(true);
 
             // Get current location and move camera there
-            fusedLocationClient.getLastLocation()
+            locationHub.getLastLocation()
                     .addOnSuccessListener(requireActivity(), location -> {
                         if (location != null) {
                             updateMapLocation(location);
@@ -184,31 +427,40 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
 
         LatLng currentLocation = new LatLng(location.getLatitude(), location.getLongitude());
 
-        // Clear previous markers if needed
-        googleMap.clear();
-
-        // Add marker at current location
-        googleMap.addMarker(new MarkerOptions().position(currentLocation).title("Current Location"));
+        // One marker, moved with the runner
+        if (positionMarker == null) {
+            positionMarker = googleMap.addMarker(new MarkerOptions().position(currentLocation).title("Current Location"));
+        } else {
+            positionMarker.setPosition(currentLocation);
+        }
 
-        // Move camera to current location with zoom level 17 (street level)
-        googleMap.animateCamera(CameraUpdateFactory.newLatLngZoom(currentLocation, 17f));
+        if (!cameraPlaced) {
+            // Street level on the first fix
+            googleMap.moveCamera(CameraUpdateFactory.newLatLngZoom(currentLocation, FOLLOW_ZOOM));
+            cameraPlaced = true;
+            return;
+        }
+        // Pan only when the runner nears the edge, keeping the user's zoom
+        LatLngBounds visible = googleMap.getProjection().getVisibleRegion().latLngBounds;
+        if (!RouteViewport.isInsideMargin(currentLocation.latitude, currentLocation.longitude,
+                visible.southwest.latitude, visible.southwest.longitude,
+                visible.northeast.latitude, visible.northeast.longitude,
+                RouteViewport.DEFAULT_MARGIN)) {
+            googleMap.animateCamera(CameraUpdateFactory.newLatLng(currentLocation));
+        }
     }
 
     private void startLocationUpdates() {
         if (getActivity() != null && ActivityCompat.checkSelfPermission(getActivity(),
                 Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED) {
-            fusedLocationClient.requestLocationUpdates(
-                    locationRequest,
-                    locationCallback,
-                    null
-            );
+            locationHub.subscribe(locationListener, MAP_LOCATION_DEMAND, mainHandler);
             locationUpdateActive = true;
         }
     }
 
     private void stopLocationUpdates() {
         if (locationUpdateActive) {
-            fusedLocationClient.removeLocationUpdates(locationCallback);
+            locationHub.unsubscribe(locationListener);
             locationUpdateActive = false;
         }
     }
@@ -217,7 +469,7 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
     public void onResume() {
         super.onResume();
         bindToTrackerService();
-        if (googleMap != null) {
+        if (googleMap != null && storedRunId == NO_RUN_ID) {
             enableMyLocation();
         }
     }
@@ -0,0 +1,113 @@
+package com.taile.runner.fragments;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.RadioGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.taile.runner.R;
+import com.taile.runner.adapters.RankingAdapter;
+import com.taile.runner.models.RunRecord;
+import com.taile.runner.stats.RankingEngine;
+import com.taile.runner.storage.RunRecordsManager;
+
+import java.util.List;
+
+public class RankingFragment extends Fragment {
+
+    private static final int TOP_K = 10;
+
+    private RecyclerView recyclerView;
+    private TextView tvEmptyState;
+    private RadioGroup metricGroup;
+    private RadioGroup windowGroup;
+    private final RankingAdapter adapter = new RankingAdapter();
+    private RunRecordsManager recordsManager;
+
+    // Leaderboards are maintained incrementally by the manager, so re-querying is cheap
+    private final RunRecordsManager.OnRecordsChangedListener recordsChangedListener =
+            (addedIds, removedIds) -> loadRanking();
+
+    public RankingFragment() {
+        // Required empty public constructor
+    }
+
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup container,
+                             Bundle savedInstanceState) {
+        return inflater.inflate(R.layout.fragment_ranking, container, false);
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        recordsManager = RunRecordsManager.getInstance(requireContext());
+
+        recyclerView = view.findViewById(R.id.recyclerViewRanking);
+        recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        recyclerView.setAdapter(adapter);
+        tvEmptyState = view.findViewById(R.id.tvRankingEmpty);
+
+        metricGroup = view.findViewById(R.id.rankingMetricGroup);
+        windowGroup = view.findViewById(R.id.rankingWindowGroup);
+
+        recordsManager.addOnRecordsChangedListener(recordsChangedListener);
+        // The first access may parse or import storage, keep it off the main thread
+        recordsManager.whenLoaded(() -> {
+            if (getView() == null) {
+                return;
+            }
+            metricGroup.setOnCheckedChangeListener((group, checkedId) -> loadRanking());
+            windowGroup.setOnCheckedChangeListener((group, checkedId) -> loadRanking());
+            loadRanking();
+        });
+    }
+
+    @Override
+    public void onDestroyView() {
+        recordsManager.removeOnRecordsChangedListener(recordsChangedListener);
+        super.onDestroyView();
+    }
+
+    private void loadRanking() {
+        RankingEngine.Metric metric = selectedMetric();
+        List<RunRecord> ranked = recordsManager.getTopRecords(metric, selectedWindow(), TOP_K);
+        adapter.updateData(metric, ranked);
+
+        recyclerView.setVisibility(ranked.isEmpty() ? View.GONE : View.VISIBLE);
+        tvEmptyState.setVisibility(ranked.isEmpty() ? View.VISIBLE : View.GONE);
+    }
+
+    private RankingEngine.Metric selectedMetric() {
+        int checkedId = metricGroup.getCheckedRadioButtonId();
+        if (checkedId == R.id.rankBySpeed) {
+            return RankingEngine.Metric.AVG_SPEED;
+        } else if (checkedId == R.id.rankBySteps) {
+            return RankingEngine.Metric.STEPS;
+        } else if (checkedId == R.id.rankByDuration) {
+            return RankingEngine.Metric.DURATION;
+        }
+        return RankingEngine.Metric.DISTANCE;
+    }
+
+    private RankingEngine.Window selectedWindow() {
+        int checkedId = windowGroup.getCheckedRadioButtonId();
+        if (checkedId == R.id.windowWeek) {
+            return RankingEngine.Window.LAST_7_DAYS;
+        } else if (checkedId == R.id.windowMonth) {
+            return RankingEngine.Window.LAST_30_DAYS;
+        } else if (checkedId == R.id.windowYear) {
+            return RankingEngine.Window.LAST_365_DAYS;
+        }
+        return RankingEngine.Window.ALL_TIME;
+    }
+}
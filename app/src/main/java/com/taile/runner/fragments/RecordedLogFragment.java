@@ -12,20 +12,59 @@ import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.taile.runner.MainActivity;
 import com.taile.runner.R;
 import com.taile.runner.adapters.RunRecordsAdapter;
 import com.taile.runner.models.RunRecord;
 import com.taile.runner.storage.RunRecordsManager;
 
-import java.util.List;
-
 public class RecordedLogFragment extends Fragment {
 
+    // Upper bound on pages the adapter keeps in memory at once
+    private static final int MAX_LOADED_PAGES = 5;
+
     private RecyclerView recyclerView;
+    private LinearLayoutManager layoutManager;
     private TextView tvEmptyState;
     private RunRecordsAdapter adapter;
     private RunRecordsManager recordsManager;
 
+    // Applies storage changes to the list instead of reloading everything
+    private final RunRecordsManager.OnRecordsChangedListener recordsChangedListener =
+            (addedIds, removedIds) -> {
+                if (adapter == null) {
+                    return;
+                }
+                for (long id : removedIds) {
+                    adapter.removeRecord(id);
+                }
+                for (long id : addedIds) {
+                    RunRecord record = recordsManager.getRecord(id);
+                    if (record != null) {
+                        adapter.insertRecord(record);
+                    }
+                }
+                // The loaded window may have emptied while older pages remain
+                if (adapter.getItemCount() == 0) {
+                    adapter.reload();
+                }
+                updateEmptyState(adapter.getItemCount() == 0);
+            };
+
+    private final RecyclerView.OnScrollListener pagingScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            // Scroll callbacks may run inside a layout pass, so change the data afterwards
+            recyclerView.post(() -> {
+                if (adapter != null) {
+                    adapter.onVisibleRangeChanged(
+                            layoutManager.findFirstVisibleItemPosition(),
+                            layoutManager.findLastVisibleItemPosition());
+                }
+            });
+        }
+    };
+
     public RecordedLogFragment() {
         // Required empty public constructor
     }
@@ -40,44 +79,53 @@ public class RecordedLogFragment extends Fragment {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        recordsManager = new RunRecordsManager(requireContext());
+        recordsManager = RunRecordsManager.getInstance(requireContext());
 
         // Set up RecyclerView
         recyclerView = view.findViewById(R.id.recyclerViewRunRecords);
-        recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        layoutManager = new LinearLayoutManager(getContext());
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.addOnScrollListener(pagingScrollListener);
 
         // Set up empty state view
         tvEmptyState = view.findViewById(R.id.tvEmptyState);
 
-        // Load and display records
-        loadRecords();
+        // Listen before loading so no change falls between the two; one that lands in
+        // the first page as well is skipped by the adapter
+        recordsManager.addOnRecordsChangedListener(recordsChangedListener);
+        // The first access may parse or import storage, keep it off the main thread
+        recordsManager.whenLoaded(() -> {
+            if (getView() != null) {
+                loadRecords();
+            }
+        });
     }
 
     @Override
-    public void onResume() {
-        super.onResume();
-        loadRecords(); // Refresh data when fragment resumes
+    public void onDestroyView() {
+        recordsManager.removeOnRecordsChangedListener(recordsChangedListener);
+        recyclerView.removeOnScrollListener(pagingScrollListener);
+        adapter = null;
+        super.onDestroyView();
     }
 
     private void loadRecords() {
-        List<RunRecord> records = recordsManager.getRecordsSortedByDate();
+        // Only the first page is materialised, the adapter pages in the rest on scroll
+        if (adapter == null) {
+            adapter = new RunRecordsAdapter(
+                    recordsManager, RunRecordsManager.DEFAULT_PAGE_SIZE, MAX_LOADED_PAGES);
+            adapter.setOnRecordClickListener(record ->
+                    ((MainActivity) requireActivity()).showRunDetail(record.getId()));
+            recyclerView.setAdapter(adapter);
+        }
+        adapter.reload();
 
         // Show empty state if no records
-        if (records.isEmpty()) {
-            recyclerView.setVisibility(View.GONE);
-            tvEmptyState.setVisibility(View.VISIBLE);
-        } else {
-            recyclerView.setVisibility(View.VISIBLE);
-            tvEmptyState.setVisibility(View.GONE);
-
-            // Update adapter with records
-            if (adapter == null) {
-                adapter = new RunRecordsAdapter(records);
-                recyclerView.setAdapter(adapter);
-            } else {
-                adapter.updateData(records);
-                adapter.notifyDataSetChanged();
-            }
-        }
+        updateEmptyState(adapter.getItemCount() == 0);
+    }
+
+    private void updateEmptyState(boolean empty) {
+        recyclerView.setVisibility(empty ? View.GONE : View.VISIBLE);
+        tvEmptyState.setVisibility(empty ? View.VISIBLE : View.GONE);
     }
 }
@@ -0,0 +1,88 @@
+package com.taile.runner.fragments;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.taile.runner.MainActivity;
+import com.taile.runner.R;
+import com.taile.runner.adapters.RunRecordsAdapter;
+import com.taile.runner.adapters.SplitsAdapter;
+import com.taile.runner.models.RunRecord;
+import com.taile.runner.models.Split;
+import com.taile.runner.storage.RunRecordsManager;
+
+import java.util.List;
+
+public class RunDetailFragment extends Fragment {
+
+    private static final String ARG_RUN_ID = "run_id";
+
+    private RecyclerView recyclerView;
+    private TextView tvSplitsEmpty;
+    private final SplitsAdapter adapter = new SplitsAdapter();
+
+    public RunDetailFragment() {
+        // Required empty public constructor
+    }
+
+    public static RunDetailFragment newInstance(long runId) {
+        RunDetailFragment fragment = new RunDetailFragment();
+        Bundle args = new Bundle();
+        args.putLong(ARG_RUN_ID, runId);
+        fragment.setArguments(args);
+        return fragment;
+    }
+
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup container,
+                             Bundle savedInstanceState) {
+        return inflater.inflate(R.layout.fragment_run_detail, container, false);
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        long runId = requireArguments().getLong(ARG_RUN_ID);
+        RunRecordsManager recordsManager = RunRecordsManager.getInstance(requireContext());
+
+        view.findViewById(R.id.btnShowRoute).setOnClickListener(v ->
+                ((MainActivity) requireActivity()).showRunRoute(runId));
+
+        recyclerView = view.findViewById(R.id.recyclerViewSplits);
+        recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        recyclerView.setAdapter(adapter);
+        tvSplitsEmpty = view.findViewById(R.id.tvSplitsEmpty);
+
+        // The record may need storage loaded and the splits are read from disk, so both
+        // come from the manager's worker; the view may be gone by the time they arrive
+        recordsManager.getExecutor().execute(() -> {
+            RunRecord record = recordsManager.getRecord(runId);
+            List<Split> splits = recordsManager.getSplits(runId);
+            view.post(() -> {
+                if (!isAdded() || getView() != view) {
+                    return;
+                }
+                if (record != null) {
+                    new RunRecordsAdapter.ViewHolder(view.findViewById(R.id.runSummary)).bind(record);
+                }
+                showSplits(splits);
+            });
+        });
+    }
+
+    private void showSplits(List<Split> splits) {
+        adapter.updateData(splits);
+        recyclerView.setVisibility(splits.isEmpty() ? View.GONE : View.VISIBLE);
+        tvSplitsEmpty.setVisibility(splits.isEmpty() ? View.VISIBLE : View.GONE);
+    }
+}
@@ -0,0 +1,118 @@
+package com.taile.runner.geo;
+
+/**
+ * Distances between WGS84 coordinates in meters, pure Java.
+ *
+ * {@link #vincenty} is the exact ellipsoidal reference (what
+ * {@code Location.distanceTo} computes); {@link #haversine} treats the earth as a
+ * sphere and is off by up to ~0.6%. For the short hops between consecutive fixes
+ * use a {@link LocalDistanceKernel}, which is cheaper than both and within
+ * millimeters of Vincenty over a few hundred meters.
+ */
+public final class GeoDistance {
+
+    // WGS84
+    static final double SEMI_MAJOR_AXIS = 6378137.0;
+    static final double FLATTENING = 1 / 298.257223563;
+    static final double SEMI_MINOR_AXIS = SEMI_MAJOR_AXIS * (1 - FLATTENING);
+    static final double ECCENTRICITY_SQUARED = FLATTENING * (2 - FLATTENING);
+
+    public static final double MEAN_EARTH_RADIUS = 6371008.8;
+
+    private static final int VINCENTY_MAX_ITERATIONS = 20;
+
+    private GeoDistance() {
+    }
+
+    public static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double sinDPhi = Math.sin((phi2 - phi1) / 2);
+        double sinDLambda = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        double h = sinDPhi * sinDPhi + Math.cos(phi1) * Math.cos(phi2) * sinDLambda * sinDLambda;
+        return 2 * MEAN_EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    /**
+     * Spherical equirectangular approximation; one cosine per call.
+     */
+    public static double equirectangular(double lat1, double lon1, double lat2, double lon2) {
+        double x = Math.toRadians(lon2 - lon1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        double y = Math.toRadians(lat2 - lat1);
+        return MEAN_EARTH_RADIUS * Math.sqrt(x * x + y * y);
+    }
+
+    /**
+     * Vincenty's inverse formula on the WGS84 ellipsoid. Falls back to
+     * {@link #haversine} for nearly antipodal points where the iteration does not
+     * converge.
+     */
+    public static double vincenty(double lat1, double lon1, double lat2, double lon2) {
+        double a = SEMI_MAJOR_AXIS;
+        double b = SEMI_MINOR_AXIS;
+        double f = FLATTENING;
+
+        double l = Math.toRadians(lon2 - lon1);
+        double u1 = Math.atan((1 - f) * Math.tan(Math.toRadians(lat1)));
+        double u2 = Math.atan((1 - f) * Math.tan(Math.toRadians(lat2)));
+        double sinU1 = Math.sin(u1), cosU1 = Math.cos(u1);
+        double sinU2 = Math.sin(u2), cosU2 = Math.cos(u2);
+
+        double lambda = l;
+        double sinSigma, cosSigma, sigma, cosSqAlpha, cos2SigmaM;
+        int iterations = 0;
+        while (true) {
+            double sinLambda = Math.sin(lambda), cosLambda = Math.cos(lambda);
+            double t1 = cosU2 * sinLambda;
+            double t2 = cosU1 * sinU2 - sinU1 * cosU2 * cosLambda;
+            sinSigma = Math.sqrt(t1 * t1 + t2 * t2);
+            if (sinSigma == 0) {
+                return 0; // coincident points
+            }
+            cosSigma = sinU1 * sinU2 + cosU1 * cosU2 * cosLambda;
+            sigma = Math.atan2(sinSigma, cosSigma);
+            double sinAlpha = cosU1 * cosU2 * sinLambda / sinSigma;
+            cosSqAlpha = 1 - sinAlpha * sinAlpha;
+            // Equatorial line: cosSqAlpha = 0
+            cos2SigmaM = cosSqAlpha != 0 ? cosSigma - 2 * sinU1 * sinU2 / cosSqAlpha : 0;
+            double c = f / 16 * cosSqAlpha * (4 + f * (4 - 3 * cosSqAlpha));
+            double previous = lambda;
+            lambda = l + (1 - c) * f * sinAlpha
+                    * (sigma + c * sinSigma * (cos2SigmaM + c * cosSigma * (-1 + 2 * cos2SigmaM * cos2SigmaM)));
+            if (Math.abs(lambda - previous) < 1e-12) {
+                break;
+            }
+            if (++iterations >= VINCENTY_MAX_ITERATIONS) {
+                return haversine(lat1, lon1, lat2, lon2);
+            }
+        }
+
+        double uSq = cosSqAlpha * (a * a - b * b) / (b * b);
+        double bigA = 1 + uSq / 16384 * (4096 + uSq * (-768 + uSq * (320 - 175 * uSq)));
+        double bigB = uSq / 1024 * (256 + uSq * (-128 + uSq * (74 - 47 * uSq)));
+        double deltaSigma = bigB * sinSigma * (cos2SigmaM + bigB / 4 * (cosSigma * (-1 + 2 * cos2SigmaM * cos2SigmaM)
+                - bigB / 6 * cos2SigmaM * (-3 + 4 * sinSigma * sinSigma) * (-3 + 4 * cos2SigmaM * cos2SigmaM)));
+        return b * bigA * (sigma - deltaSigma);
+    }
+
+    /**
+     * Length of one degree of latitude at {@code latitude}, from the WGS84 meridional
+     * radius of curvature.
+     */
+    static double metersPerDegreeLatitude(double latitude) {
+        double sinPhi = Math.sin(Math.toRadians(latitude));
+        double w = 1 - ECCENTRICITY_SQUARED * sinPhi * sinPhi;
+        return Math.toRadians(SEMI_MAJOR_AXIS * (1 - ECCENTRICITY_SQUARED) / (w * Math.sqrt(w)));
+    }
+
+    /**
+     * Length of one degree of longitude at {@code latitude}, from the WGS84
+     * prime-vertical radius of curvature.
+     */
+    static double metersPerDegreeLongitude(double latitude) {
+        double phi = Math.toRadians(latitude);
+        double sinPhi = Math.sin(phi);
+        double w = 1 - ECCENTRICITY_SQUARED * sinPhi * sinPhi;
+        return Math.toRadians(SEMI_MAJOR_AXIS / Math.sqrt(w) * Math.cos(phi));
+    }
+}
@@ -0,0 +1,196 @@
+package com.taile.runner.geo;
+
+/**
+ * Constant-velocity Kalman filter over raw GPS fixes.
+ *
+ * Fixes are projected onto a local east/north plane in meters around an origin that
+ * follows the runner. Each axis has a position/velocity state; both axes share the
+ * same dynamics and measurement noise (from the reported accuracy), so one 2x2
+ * covariance serves both. A fix whose innovation is too unlikely under the predicted
+ * covariance is rejected as an outlier; several rejections in a row mean the filter
+ * lost track, and it restarts at the latest fix.
+ *
+ * Distance is best taken from {@link #getPathIncrement()}, the estimated speed
+ * integrated over each interval: summing distances between smoothed positions still
+ * adds up their residual jitter.
+ *
+ * All state lives in primitive fields: updating allocates nothing. Pure Java; not
+ * thread-safe.
+ */
+public class GpsKalmanFilter {
+
+    public enum Result {
+        // Fix folded into the estimate
+        ACCEPTED,
+        // Fix discarded as an outlier; the estimate is unchanged
+        REJECTED,
+        // Filter (re)started at this fix; no motion is known yet
+        RESET
+    }
+
+    // Acceleration noise density in m^2/s^3; a runner changes pace and turns gently
+    static final double ACCELERATION_NOISE = 0.5;
+    // Squared Mahalanobis distance with 2 degrees of freedom, 99.9% quantile
+    static final double GATE = 13.8;
+    static final int REJECTIONS_TO_RESET = 3;
+    // Android accuracy is a 68% radius; per-axis sigma is about 2/3 of it
+    static final double ACCURACY_TO_SIGMA = 1 / 1.5;
+    static final float MIN_ACCURACY_M = 3f;
+    static final float UNKNOWN_ACCURACY_M = 30f;
+    static final double INITIAL_VELOCITY_VARIANCE = 25; // (5 m/s)^2
+    // Origin moves once the estimate is this far away, keeping the plane accurate
+    static final double MAX_ORIGIN_DISTANCE_M = 5_000;
+    // Beyond this interval the speed was not observed and the path is the straight line
+    static final double MAX_INTEGRATION_INTERVAL_S = 10;
+
+    private boolean initialized = false;
+    private long lastTime;
+    private int rejectionsInRow;
+
+    private double originLat, originLon;
+    private double metersPerDegreeLat, metersPerDegreeLon;
+
+    // State: east/north position (m) and velocity (m/s)
+    private double x, y, vx, vy;
+    // Shared covariance [p00 p01; p01 p11]
+    private double p00, p01, p11;
+    private double pathIncrement;
+
+    public void reset() {
+        initialized = false;
+        rejectionsInRow = 0;
+    }
+
+    /**
+     * @param timeMillis monotonic fix time
+     * @param accuracy   reported horizontal accuracy in meters, NaN or 0 if unknown
+     */
+    public Result update(long timeMillis, double latitude, double longitude, float accuracy) {
+        double r = measurementVariance(accuracy);
+        if (!initialized) {
+            start(timeMillis, latitude, longitude, r);
+            return Result.RESET;
+        }
+
+        // Predict from the last accepted fix; an out-of-order fix counts as simultaneous
+        double dt = Math.max(0, timeMillis - lastTime) / 1000.0;
+        double dt2 = dt * dt;
+        double q = ACCELERATION_NOISE;
+        double predictedX = x + vx * dt;
+        double predictedY = y + vy * dt;
+        double q00 = p00 + 2 * dt * p01 + dt2 * p11 + q * dt2 * dt / 3;
+        double q01 = p01 + dt * p11 + q * dt2 / 2;
+        double q11 = p11 + q * dt;
+
+        // Innovation and its variance (same on both axes)
+        double dLon = longitude - originLon;
+        if (dLon > 180) {
+            dLon -= 360;
+        } else if (dLon < -180) {
+            dLon += 360;
+        }
+        double innovationX = dLon * metersPerDegreeLon - predictedX;
+        double innovationY = (latitude - originLat) * metersPerDegreeLat - predictedY;
+        double s = q00 + r;
+        double distanceSquared = (innovationX * innovationX + innovationY * innovationY) / s;
+        if (distanceSquared > GATE) {
+            // The estimate stays at the last accepted fix
+            if (++rejectionsInRow >= REJECTIONS_TO_RESET) {
+                start(timeMillis, latitude, longitude, r);
+                return Result.RESET;
+            }
+            return Result.REJECTED;
+        }
+        rejectionsInRow = 0;
+        lastTime = Math.max(lastTime, timeMillis);
+
+        double k0 = q00 / s;
+        double k1 = q01 / s;
+        double previousX = x;
+        double previousY = y;
+        double previousSpeed = Math.sqrt(vx * vx + vy * vy);
+        x = predictedX + k0 * innovationX;
+        y = predictedY + k0 * innovationY;
+        vx += k1 * innovationX;
+        vy += k1 * innovationY;
+        p00 = (1 - k0) * q00;
+        p01 = (1 - k0) * q01;
+        p11 = q11 - k1 * q01;
+
+        if (dt <= MAX_INTEGRATION_INTERVAL_S) {
+            pathIncrement = 0.5 * (previousSpeed + Math.sqrt(vx * vx + vy * vy)) * dt;
+        } else {
+            double dx = x - previousX;
+            double dy = y - previousY;
+            pathIncrement = Math.sqrt(dx * dx + dy * dy);
+        }
+
+        if (Math.abs(x) > MAX_ORIGIN_DISTANCE_M || Math.abs(y) > MAX_ORIGIN_DISTANCE_M) {
+            moveOrigin(getLatitude(), getLongitude());
+        }
+        return Result.ACCEPTED;
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    public double getLatitude() {
+        return originLat + y / metersPerDegreeLat;
+    }
+
+    public double getLongitude() {
+        return originLon + x / metersPerDegreeLon;
+    }
+
+    /**
+     * @return meters travelled between the previous accepted fix and the last one,
+     *         0 after a {@link Result#RESET}
+     */
+    public double getPathIncrement() {
+        return pathIncrement;
+    }
+
+    /**
+     * @return estimated speed in m/s
+     */
+    public float getSpeed() {
+        return (float) Math.sqrt(vx * vx + vy * vy);
+    }
+
+    /**
+     * @return estimated position accuracy in meters, on the same scale as
+     *         {@code Location.getAccuracy()}
+     */
+    public float getAccuracy() {
+        return (float) (Math.sqrt(p00) / ACCURACY_TO_SIGMA);
+    }
+
+    private void start(long timeMillis, double latitude, double longitude, double r) {
+        initialized = true;
+        lastTime = timeMillis;
+        rejectionsInRow = 0;
+        moveOrigin(latitude, longitude);
+        vx = 0;
+        vy = 0;
+        p00 = r;
+        p01 = 0;
+        p11 = INITIAL_VELOCITY_VARIANCE;
+        pathIncrement = 0;
+    }
+
+    private void moveOrigin(double latitude, double longitude) {
+        originLat = latitude;
+        originLon = longitude;
+        metersPerDegreeLat = GeoDistance.metersPerDegreeLatitude(latitude);
+        metersPerDegreeLon = GeoDistance.metersPerDegreeLongitude(latitude);
+        x = 0;
+        y = 0;
+    }
+
+    private static double measurementVariance(float accuracy) {
+        float meters = accuracy > 0 ? Math.max(accuracy, MIN_ACCURACY_M) : UNKNOWN_ACCURACY_M;
+        double sigma = meters * ACCURACY_TO_SIGMA;
+        return sigma * sigma;
+    }
+}
@@ -0,0 +1,53 @@
+package com.taile.runner.geo;
+
+/**
+ * Fast distance for short spans around a reference latitude.
+ *
+ * The ellipsoid is flattened onto a local plane: meters per degree of latitude and
+ * longitude are taken from the WGS84 meridional and prime-vertical radii at the
+ * reference latitude and cached, so a distance is two multiplies and a square root.
+ * The reference moves along with the fixes and the scales are only recomputed once
+ * it drifts by more than {@link #REFERENCE_TOLERANCE_DEGREES}. Spans longer than
+ * {@link #MAX_LOCAL_SPAN_METERS} go to {@link GeoDistance#vincenty} instead.
+ *
+ * Not thread-safe; keep one per caller.
+ */
+public class LocalDistanceKernel {
+
+    // About 110 m north-south; the scale error it allows stays below 1e-4 up to 70 degrees
+    static final double REFERENCE_TOLERANCE_DEGREES = 0.001;
+    static final double MAX_LOCAL_SPAN_METERS = 10_000;
+
+    private double referenceLatitude = Double.NaN;
+    private double metersPerDegreeLat;
+    private double metersPerDegreeLon;
+
+    public double distance(double lat1, double lon1, double lat2, double lon2) {
+        double midLatitude = (lat1 + lat2) * 0.5;
+        if (!(Math.abs(midLatitude - referenceLatitude) <= REFERENCE_TOLERANCE_DEGREES)) {
+            setReferenceLatitude(midLatitude);
+        }
+
+        double dLon = lon2 - lon1;
+        // Shortest way across the antimeridian
+        if (dLon > 180) {
+            dLon -= 360;
+        } else if (dLon < -180) {
+            dLon += 360;
+        }
+        double x = dLon * metersPerDegreeLon;
+        double y = (lat2 - lat1) * metersPerDegreeLat;
+        double meters = Math.sqrt(x * x + y * y);
+
+        if (meters > MAX_LOCAL_SPAN_METERS) {
+            return GeoDistance.vincenty(lat1, lon1, lat2, lon2);
+        }
+        return meters;
+    }
+
+    private void setReferenceLatitude(double latitude) {
+        referenceLatitude = latitude;
+        metersPerDegreeLat = GeoDistance.metersPerDegreeLatitude(latitude);
+        metersPerDegreeLon = GeoDistance.metersPerDegreeLongitude(latitude);
+    }
+}
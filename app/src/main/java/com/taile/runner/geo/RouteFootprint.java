@@ -0,0 +1,126 @@
+package com.taile.runner.geo;
+
+import com.taile.runner.track.TrackBuffer;
+
+import java.util.Arrays;
+
+/**
+ * Where a run went, reduced to what the spatial index needs: its bounding box and the
+ * grid cells its route passes through.
+ *
+ * Cells are {@link #CELL_DEGREES} squares of latitude/longitude, about 280 m north to
+ * south. Consecutive fixes further apart than a cell (GPS outages) are joined by
+ * a straight line so the cells in between are not missed.
+ */
+public final class RouteFootprint {
+
+    public static final double CELL_DEGREES = 0.0025;
+    // Bounds the cells filled in for one long gap
+    private static final int MAX_GAP_STEPS = 4096;
+
+    public final long runId;
+    public final int minLatE7;
+    public final int minLonE7;
+    public final int maxLatE7;
+    public final int maxLonE7;
+    // Sorted, distinct cell keys
+    public final long[] cells;
+
+    public RouteFootprint(long runId, int minLatE7, int minLonE7, int maxLatE7, int maxLonE7, long[] cells) {
+        this.runId = runId;
+        this.minLatE7 = minLatE7;
+        this.minLonE7 = minLonE7;
+        this.maxLatE7 = maxLatE7;
+        this.maxLonE7 = maxLonE7;
+        this.cells = cells;
+    }
+
+    /**
+     * @return the footprint of {@code track}, or null if it has no points
+     */
+    public static RouteFootprint of(long runId, TrackBuffer track) {
+        int n = track.size();
+        if (n == 0) {
+            return null;
+        }
+        int minLat = Integer.MAX_VALUE;
+        int minLon = Integer.MAX_VALUE;
+        int maxLat = Integer.MIN_VALUE;
+        int maxLon = Integer.MIN_VALUE;
+        long[] keys = new long[Math.max(16, n / 8)];
+        int count = 0;
+        long previousKey = 0;
+        for (int i = 0; i < n; i++) {
+            int latE7 = track.getLatitudeE7(i);
+            int lonE7 = track.getLongitudeE7(i);
+            minLat = Math.min(minLat, latE7);
+            minLon = Math.min(minLon, lonE7);
+            maxLat = Math.max(maxLat, latE7);
+            maxLon = Math.max(maxLon, lonE7);
+
+            double latitude = latE7 / TrackBuffer.E7;
+            double longitude = lonE7 / TrackBuffer.E7;
+            long key = cellKey(latitude, longitude);
+            if (i > 0 && key == previousKey) {
+                // Most fixes stay in the cell of the previous one
+                continue;
+            }
+            if (i > 0 && !adjacent(key, previousKey)) {
+                double fromLat = track.getLatitude(i - 1);
+                double fromLon = track.getLongitude(i - 1);
+                double span = Math.max(Math.abs(latitude - fromLat), Math.abs(longitude - fromLon));
+                int steps = (int) Math.min(MAX_GAP_STEPS, Math.ceil(span / (CELL_DEGREES / 2)));
+                for (int s = 1; s < steps; s++) {
+                    double t = (double) s / steps;
+                    if (count == keys.length) {
+                        keys = Arrays.copyOf(keys, count * 2);
+                    }
+                    keys[count++] = cellKey(fromLat + (latitude - fromLat) * t,
+                            fromLon + (longitude - fromLon) * t);
+                }
+            }
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+            }
+            keys[count++] = key;
+            previousKey = key;
+        }
+
+        Arrays.sort(keys, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || keys[i] != keys[distinct - 1]) {
+                keys[distinct++] = keys[i];
+            }
+        }
+        return new RouteFootprint(runId, minLat, minLon, maxLat, maxLon, Arrays.copyOf(keys, distinct));
+    }
+
+    public static int cellRow(double latitude) {
+        return (int) Math.floor(latitude / CELL_DEGREES);
+    }
+
+    public static int cellColumn(double longitude) {
+        return (int) Math.floor(longitude / CELL_DEGREES);
+    }
+
+    public static long cellKey(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    public static long cellKey(double latitude, double longitude) {
+        return cellKey(cellRow(latitude), cellColumn(longitude));
+    }
+
+    public static int rowOf(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static int columnOf(long key) {
+        return (int) key;
+    }
+
+    private static boolean adjacent(long a, long b) {
+        return Math.abs(rowOf(a) - rowOf(b)) <= 1 && Math.abs(columnOf(a) - columnOf(b)) <= 1;
+    }
+}
@@ -0,0 +1,268 @@
+package com.taile.runner.geo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds stored runs by place: an inverted index from {@link RouteFootprint} grid cells
+ * to the runs passing through them.
+ *
+ * A query visits the cells overlapping the area, or every occupied cell when that is
+ * fewer (zoomed-out map), and collects their runs, each once. Runs are matched at
+ * cell granularity and additionally filtered by their bounding box, so a result may
+ * pass up to a cell's width outside the area but no run passing through it is
+ * missed. Not thread-safe.
+ */
+public class RouteSpatialIndex {
+
+    private static final double METERS_PER_DEGREE = 111_320;
+
+    /**
+     * Runs passing through one cell, as slots into {@link #footprints}.
+     */
+    private static final class Posting {
+        int[] slots = new int[4];
+        int size;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+
+        void remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    slots[i] = slots[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    private final Map<Long, Posting> postings = new HashMap<>();
+    private final Map<Long, Integer> slotsByRunId = new HashMap<>();
+    // Dense slots so a query can mark runs already collected without hashing
+    private RouteFootprint[] footprints = new RouteFootprint[64];
+    private int[] seenInQuery = new int[64];
+    private int queryStamp = 0;
+    private int slotCount = 0;
+    private int[] freeSlots = new int[16];
+    private int freeCount = 0;
+
+    // Result of the query in progress
+    private long[] found = new long[64];
+    private int foundCount;
+
+    /**
+     * Adds the run of {@code footprint}, replacing an earlier footprint of the same run.
+     */
+    public void add(RouteFootprint footprint) {
+        remove(footprint.runId);
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (slotCount == footprints.length) {
+                footprints = Arrays.copyOf(footprints, slotCount * 2);
+                seenInQuery = Arrays.copyOf(seenInQuery, slotCount * 2);
+            }
+            slot = slotCount++;
+        }
+        footprints[slot] = footprint;
+        seenInQuery[slot] = 0;
+        slotsByRunId.put(footprint.runId, slot);
+        for (long cell : footprint.cells) {
+            Posting posting = postings.get(cell);
+            if (posting == null) {
+                posting = new Posting();
+                postings.put(cell, posting);
+            }
+            posting.add(slot);
+        }
+    }
+
+    /**
+     * Same as {@link #add} for each footprint.
+     */
+    public void addAll(Collection<RouteFootprint> all) {
+        for (RouteFootprint footprint : all) {
+            add(footprint);
+        }
+    }
+
+    public void remove(long runId) {
+        Integer slot = slotsByRunId.remove(runId);
+        if (slot == null) {
+            return;
+        }
+        for (long cell : footprints[slot].cells) {
+            Posting posting = postings.get(cell);
+            posting.remove(slot);
+            if (posting.size == 0) {
+                postings.remove(cell);
+            }
+        }
+        footprints[slot] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    public void clear() {
+        postings.clear();
+        slotsByRunId.clear();
+        Arrays.fill(footprints, null);
+        slotCount = 0;
+        freeCount = 0;
+    }
+
+    public int size() {
+        return slotsByRunId.size();
+    }
+
+    public boolean contains(long runId) {
+        return slotsByRunId.containsKey(runId);
+    }
+
+    /**
+     * @return the footprints of all indexed runs, e.g. to persist them
+     */
+    public List<RouteFootprint> getFootprints() {
+        List<RouteFootprint> result = new ArrayList<>(size());
+        for (int slot : slotsByRunId.values()) {
+            result.add(footprints[slot]);
+        }
+        return result;
+    }
+
+    /**
+     * Runs passing through the area; {@code west} greater than {@code east} means the
+     * area spans the antimeridian.
+     *
+     * @return run ids, unordered
+     */
+    public long[] queryBox(double south, double west, double north, double east) {
+        beginQuery();
+        if (west <= east) {
+            collect(south, west, north, east, Double.NaN, 0, 0);
+        } else {
+            collect(south, west, north, 180, Double.NaN, 0, 0);
+            collect(south, -180, north, east, Double.NaN, 0, 0);
+        }
+        return Arrays.copyOf(found, foundCount);
+    }
+
+    /**
+     * Runs passing within {@code radiusMeters} of a point.
+     *
+     * @return run ids, unordered
+     */
+    public long[] queryRadius(double latitude, double longitude, double radiusMeters) {
+        beginQuery();
+        double latSpan = radiusMeters / METERS_PER_DEGREE;
+        double lonSpan = Math.min(180, radiusMeters / metersPerDegreeLon(latitude));
+        collect(latitude - latSpan, longitude - lonSpan, latitude + latSpan, longitude + lonSpan,
+                latitude, longitude, radiusMeters);
+        return Arrays.copyOf(found, foundCount);
+    }
+
+    private void beginQuery() {
+        foundCount = 0;
+        queryStamp++;
+        if (queryStamp == Integer.MAX_VALUE) {
+            Arrays.fill(seenInQuery, 0);
+            queryStamp = 1;
+        }
+    }
+
+    /**
+     * Adds the runs of cells overlapping the box, and within the radius of the center
+     * unless {@code centerLat} is NaN.
+     */
+    private void collect(double south, double west, double north, double east,
+                         double centerLat, double centerLon, double radius) {
+        int firstRow = RouteFootprint.cellRow(south);
+        int lastRow = RouteFootprint.cellRow(north);
+        int firstColumn = RouteFootprint.cellColumn(west);
+        int lastColumn = RouteFootprint.cellColumn(east);
+        int minLatE7 = toE7(south);
+        int maxLatE7 = toE7(north);
+        int minLonE7 = toE7(west);
+        int maxLonE7 = toE7(east);
+
+        long cellsInArea = (long) (lastRow - firstRow + 1) * (lastColumn - firstColumn + 1);
+        if (cellsInArea > postings.size()) {
+            // Wide area: cheaper to walk the occupied cells
+            for (Map.Entry<Long, Posting> entry : postings.entrySet()) {
+                long cell = entry.getKey();
+                int row = RouteFootprint.rowOf(cell);
+                int column = RouteFootprint.columnOf(cell);
+                if (row >= firstRow && row <= lastRow && column >= firstColumn && column <= lastColumn
+                        && cellWithinRadius(row, column, centerLat, centerLon, radius)) {
+                    collectPosting(entry.getValue(), minLatE7, minLonE7, maxLatE7, maxLonE7);
+                }
+            }
+            return;
+        }
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                Posting posting = postings.get(RouteFootprint.cellKey(row, column));
+                if (posting != null && cellWithinRadius(row, column, centerLat, centerLon, radius)) {
+                    collectPosting(posting, minLatE7, minLonE7, maxLatE7, maxLonE7);
+                }
+            }
+        }
+    }
+
+    private void collectPosting(Posting posting, int minLatE7, int minLonE7, int maxLatE7, int maxLonE7) {
+        for (int i = 0; i < posting.size; i++) {
+            int slot = posting.slots[i];
+            if (seenInQuery[slot] == queryStamp) {
+                continue;
+            }
+            seenInQuery[slot] = queryStamp;
+            RouteFootprint footprint = footprints[slot];
+            if (footprint.maxLatE7 < minLatE7 || footprint.minLatE7 > maxLatE7
+                    || footprint.maxLonE7 < minLonE7 || footprint.minLonE7 > maxLonE7) {
+                continue;
+            }
+            if (foundCount == found.length) {
+                found = Arrays.copyOf(found, foundCount * 2);
+            }
+            found[foundCount++] = footprint.runId;
+        }
+    }
+
+    /**
+     * @return true if the cell comes within {@code radius} meters of the center, or
+     *         if there is no center
+     */
+    private static boolean cellWithinRadius(int row, int column, double centerLat, double centerLon, double radius) {
+        if (Double.isNaN(centerLat)) {
+            return true;
+        }
+        double south = row * RouteFootprint.CELL_DEGREES;
+        double west = column * RouteFootprint.CELL_DEGREES;
+        // Nearest point of the cell to the center
+        double nearestLat = Math.max(south, Math.min(centerLat, south + RouteFootprint.CELL_DEGREES));
+        double nearestLon = Math.max(west, Math.min(centerLon, west + RouteFootprint.CELL_DEGREES));
+        double y = (nearestLat - centerLat) * METERS_PER_DEGREE;
+        double x = (nearestLon - centerLon) * metersPerDegreeLon(centerLat);
+        return x * x + y * y <= radius * radius;
+    }
+
+    private static double metersPerDegreeLon(double latitude) {
+        return Math.max(1, METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude)));
+    }
+
+    private static int toE7(double degrees) {
+        return (int) Math.round(degrees * 1e7);
+    }
+}
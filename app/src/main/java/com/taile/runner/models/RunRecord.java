@@ -9,6 +9,9 @@ public class RunRecord implements Serializable {
     private float distance; // in km
     private int steps;
     private float avgSpeed; // in m/s
+    private long movingTime; // in milliseconds, excluding auto-paused stops
+    private float avgCadence; // in steps/min over moving time
+    private float maxCadence; // in steps/min, best sliding-window value
 
     public RunRecord() {
     }
@@ -70,6 +73,30 @@ public class RunRecord implements Serializable {
         this.avgSpeed = avgSpeed;
     }
 
+    public long getMovingTime() {
+        return movingTime;
+    }
+
+    public void setMovingTime(long movingTime) {
+        this.movingTime = movingTime;
+    }
+
+    public float getAvgCadence() {
+        return avgCadence;
+    }
+
+    public void setAvgCadence(float avgCadence) {
+        this.avgCadence = avgCadence;
+    }
+
+    public float getMaxCadence() {
+        return maxCadence;
+    }
+
+    public void setMaxCadence(float maxCadence) {
+        this.maxCadence = maxCadence;
+    }
+
     // Calculate duration in milliseconds
     public long getDuration() {
         return endTime - startTime;
@@ -0,0 +1,47 @@
+package com.taile.runner.models;
+
+import java.io.Serializable;
+
+public class Split implements Serializable {
+    private float distance; // in meters, the split length (shorter for the last one)
+    private long duration; // moving time in milliseconds
+    private int steps;
+
+    public Split() {
+    }
+
+    public Split(float distance, long duration, int steps) {
+        this.distance = distance;
+        this.duration = duration;
+        this.steps = steps;
+    }
+
+    public float getDistance() {
+        return distance;
+    }
+
+    public void setDistance(float distance) {
+        this.distance = distance;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    public int getSteps() {
+        return steps;
+    }
+
+    public void setSteps(int steps) {
+        this.steps = steps;
+    }
+
+    // Pace in seconds per kilometer
+    public float getPace() {
+        return distance > 0 ? (duration / 1000f) / (distance / 1000f) : 0;
+    }
+}
@@ -0,0 +1,198 @@
+package com.taile.runner.stats;
+
+import com.taile.runner.models.RunRecord;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * Leaderboards over stored runs.
+ *
+ * Every metric keeps its own ordered index (best first) plus one index by start
+ * time, so adding or removing a run costs O(log n) per index and nothing is ever
+ * re-sorted. Top-K queries over a time window walk the metric index while it keeps
+ * producing hits, and fall back to scanning the window with a bounded heap of size
+ * K when the window is too sparse for that to pay off.
+ */
+public class RankingEngine {
+
+    public enum Metric {
+        DISTANCE,
+        AVG_SPEED,
+        STEPS,
+        DURATION
+    }
+
+    /**
+     * Preset windows ending now.
+     */
+    public enum Window {
+        LAST_7_DAYS(7),
+        LAST_30_DAYS(30),
+        LAST_365_DAYS(365),
+        ALL_TIME(0);
+
+        private final int days;
+
+        Window(int days) {
+            this.days = days;
+        }
+
+        public long startMillis(long nowMillis) {
+            return days == 0 ? Long.MIN_VALUE : nowMillis - days * 24L * 60 * 60 * 1000;
+        }
+    }
+
+    // Metric-ordered candidates examined before switching to the window scan
+    private static final int MIN_METRIC_SCAN = 64;
+    private static final int METRIC_SCAN_PER_RESULT = 8;
+
+    private static final Comparator<RunRecord> BY_START_TIME = (r1, r2) -> {
+        int byTime = Long.compare(r1.getStartTime(), r2.getStartTime());
+        return byTime != 0 ? byTime : Long.compare(r1.getId(), r2.getId());
+    };
+
+    private final Map<Metric, TreeSet<RunRecord>> byMetric = new EnumMap<>(Metric.class);
+    private final TreeSet<RunRecord> byStartTime = new TreeSet<>(BY_START_TIME);
+
+    public RankingEngine() {
+        for (Metric metric : Metric.values()) {
+            byMetric.put(metric, new TreeSet<>(bestFirst(metric)));
+        }
+    }
+
+    public void rebuild(Collection<RunRecord> records) {
+        clear();
+        for (RunRecord record : records) {
+            add(record);
+        }
+    }
+
+    public void add(RunRecord record) {
+        for (TreeSet<RunRecord> index : byMetric.values()) {
+            index.add(record);
+        }
+        byStartTime.add(record);
+    }
+
+    public void remove(RunRecord record) {
+        for (TreeSet<RunRecord> index : byMetric.values()) {
+            index.remove(record);
+        }
+        byStartTime.remove(record);
+    }
+
+    public void clear() {
+        for (TreeSet<RunRecord> index : byMetric.values()) {
+            index.clear();
+        }
+        byStartTime.clear();
+    }
+
+    public int size() {
+        return byStartTime.size();
+    }
+
+    public List<RunRecord> top(Metric metric, Window window, int k, long nowMillis) {
+        return top(metric, window.startMillis(nowMillis), Long.MAX_VALUE, k);
+    }
+
+    /**
+     * @return up to {@code k} runs started within [fromMillis, toMillis], best first
+     */
+    public List<RunRecord> top(Metric metric, long fromMillis, long toMillis, int k) {
+        List<RunRecord> result = new ArrayList<>(k);
+        if (k <= 0 || byStartTime.isEmpty()) {
+            return result;
+        }
+
+        // Walk the metric order; for wide windows the first hits come quickly
+        int budget = Math.max(MIN_METRIC_SCAN, k * METRIC_SCAN_PER_RESULT);
+        boolean extended = false;
+        int scanned = 0;
+        Iterator<RunRecord> candidates = byMetric.get(metric).iterator();
+        while (candidates.hasNext()) {
+            if (scanned == budget) {
+                // Hit rate so far estimates the window size (n * hits / scanned) and the
+                // walk still needed; keep walking only if that beats scanning the window
+                int hits = result.size();
+                if (extended || hits == 0) {
+                    break;
+                }
+                long remainingWalk = 2L * (k - hits) * scanned / hits;
+                long windowSize = (long) size() * hits / scanned;
+                if (remainingWalk >= windowSize) {
+                    break;
+                }
+                budget += (int) remainingWalk;
+                extended = true;
+            }
+            RunRecord record = candidates.next();
+            scanned++;
+            long start = record.getStartTime();
+            if (start >= fromMillis && start <= toMillis) {
+                result.add(record);
+                if (result.size() == k) {
+                    return result;
+                }
+            }
+        }
+        if (!candidates.hasNext()) {
+            return result;
+        }
+
+        // Sparse window: scan it once keeping the best k in a min-heap
+        Comparator<RunRecord> bestFirst = bestFirst(metric);
+        PriorityQueue<RunRecord> heap = new PriorityQueue<>(k + 1, Collections.reverseOrder(bestFirst));
+        for (RunRecord record : window(fromMillis, toMillis)) {
+            heap.add(record);
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        }
+        result = new ArrayList<>(heap);
+        Collections.sort(result, bestFirst);
+        return result;
+    }
+
+    private Collection<RunRecord> window(long fromMillis, long toMillis) {
+        RunRecord from = probe(fromMillis, Long.MIN_VALUE);
+        RunRecord to = probe(toMillis, Long.MAX_VALUE);
+        return byStartTime.subSet(from, true, to, true);
+    }
+
+    private static RunRecord probe(long startTime, long id) {
+        RunRecord probe = new RunRecord();
+        probe.setStartTime(startTime);
+        probe.setId(id);
+        return probe;
+    }
+
+    public static double valueOf(Metric metric, RunRecord record) {
+        switch (metric) {
+            case DISTANCE:
+                return record.getDistance();
+            case AVG_SPEED:
+                return record.getAvgSpeed();
+            case STEPS:
+                return record.getSteps();
+            default:
+                return record.getDuration();
+        }
+    }
+
+    private static Comparator<RunRecord> bestFirst(Metric metric) {
+        return (r1, r2) -> {
+            int byValue = Double.compare(valueOf(metric, r2), valueOf(metric, r1));
+            return byValue != 0 ? byValue : Long.compare(r2.getId(), r1.getId());
+        };
+    }
+}
@@ -0,0 +1,282 @@
+package com.taile.runner.stats;
+
+import com.taile.runner.models.RunRecord;
+
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.TimeZone;
+
+/**
+ * Running totals (distance, steps, duration, run count) bucketed by local calendar
+ * day, kept in Fenwick trees so any day range sums in O(log d) and a run is added
+ * or removed in O(log d), d being the number of days spanned by the history.
+ *
+ * Runs are attributed to the day they started on. Query ranges are widened to
+ * whole days.
+ */
+public class RunAggregateIndex {
+
+    public enum Period {
+        WEEK,
+        MONTH,
+        YEAR
+    }
+
+    /**
+     * Sums over a range of days.
+     */
+    public static final class Totals {
+        public final float distance; // in km
+        public final long steps;
+        public final long duration; // in milliseconds
+        public final int runCount;
+
+        Totals(float distance, long steps, long duration, int runCount) {
+            this.distance = distance;
+            this.steps = steps;
+            this.duration = duration;
+            this.runCount = runCount;
+        }
+    }
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final int INITIAL_CAPACITY = 366;
+
+    private final TimeZone timeZone;
+
+    // Day number (days since epoch, local time) stored at tree index 1
+    private long baseDay;
+    private int capacity;
+
+    // Plain per-day values, used to rebuild the trees when the day range grows
+    private double[] dayDistance;
+    private long[] daySteps;
+    private long[] dayDuration;
+    private int[] dayCount;
+
+    // Fenwick trees, 1-based
+    private double[] treeDistance;
+    private long[] treeSteps;
+    private long[] treeDuration;
+    private int[] treeCount;
+
+    private boolean empty = true;
+
+    public RunAggregateIndex(TimeZone timeZone) {
+        this.timeZone = timeZone;
+        allocate(0, INITIAL_CAPACITY);
+    }
+
+    public RunAggregateIndex() {
+        this(TimeZone.getDefault());
+    }
+
+    /**
+     * Replaces the index contents with totals over {@code records}.
+     */
+    public void rebuild(Collection<RunRecord> records) {
+        long minDay = Long.MAX_VALUE;
+        long maxDay = Long.MIN_VALUE;
+        for (RunRecord record : records) {
+            long day = dayOf(record.getStartTime());
+            minDay = Math.min(minDay, day);
+            maxDay = Math.max(maxDay, day);
+        }
+        if (records.isEmpty()) {
+            allocate(0, INITIAL_CAPACITY);
+            empty = true;
+            return;
+        }
+
+        allocate(minDay, (int) Math.max(INITIAL_CAPACITY, maxDay - minDay + 1));
+        empty = false;
+        for (RunRecord record : records) {
+            int i = (int) (dayOf(record.getStartTime()) - baseDay);
+            dayDistance[i] += record.getDistance();
+            daySteps[i] += record.getSteps();
+            dayDuration[i] += record.getDuration();
+            dayCount[i]++;
+        }
+        buildTrees();
+    }
+
+    public void add(RunRecord record) {
+        update(record, 1);
+    }
+
+    public void remove(RunRecord record) {
+        update(record, -1);
+    }
+
+    public void clear() {
+        allocate(0, INITIAL_CAPACITY);
+        empty = true;
+    }
+
+    /**
+     * Totals of runs started between the local days containing {@code fromMillis}
+     * and {@code toMillis}, both inclusive.
+     */
+    public Totals query(long fromMillis, long toMillis) {
+        return queryDays(dayOf(fromMillis), dayOf(toMillis));
+    }
+
+    /**
+     * Totals for the calendar week, month or year containing {@code timeMillis}.
+     */
+    public Totals query(Period period, long timeMillis) {
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.setTimeInMillis(timeMillis);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+
+        int field;
+        switch (period) {
+            case WEEK:
+                calendar.set(Calendar.DAY_OF_WEEK, calendar.getFirstDayOfWeek());
+                field = Calendar.WEEK_OF_YEAR;
+                break;
+            case MONTH:
+                calendar.set(Calendar.DAY_OF_MONTH, 1);
+                field = Calendar.MONTH;
+                break;
+            default:
+                calendar.set(Calendar.DAY_OF_YEAR, 1);
+                field = Calendar.YEAR;
+                break;
+        }
+        long start = calendar.getTimeInMillis();
+        calendar.add(field, 1);
+        long end = calendar.getTimeInMillis() - 1;
+        return query(start, end);
+    }
+
+    private Totals queryDays(long fromDay, long toDay) {
+        if (empty) {
+            return new Totals(0, 0, 0, 0);
+        }
+        // Clamp to the indexed range; days outside it hold nothing
+        long from = Math.max(fromDay, baseDay);
+        long to = Math.min(toDay, baseDay + capacity - 1);
+        if (from > to) {
+            return new Totals(0, 0, 0, 0);
+        }
+        int hi = (int) (to - baseDay) + 1;
+        int lo = (int) (from - baseDay);
+
+        double distance = 0;
+        long steps = 0;
+        long duration = 0;
+        int count = 0;
+        for (int i = hi; i > 0; i -= i & -i) {
+            distance += treeDistance[i];
+            steps += treeSteps[i];
+            duration += treeDuration[i];
+            count += treeCount[i];
+        }
+        for (int i = lo; i > 0; i -= i & -i) {
+            distance -= treeDistance[i];
+            steps -= treeSteps[i];
+            duration -= treeDuration[i];
+            count -= treeCount[i];
+        }
+        return new Totals((float) distance, steps, duration, count);
+    }
+
+    private void update(RunRecord record, int sign) {
+        long day = dayOf(record.getStartTime());
+        if (empty) {
+            allocate(day - capacity / 2, capacity);
+            empty = false;
+        }
+        ensureDayInRange(day);
+
+        int i = (int) (day - baseDay);
+        double distance = sign * (double) record.getDistance();
+        long steps = sign * (long) record.getSteps();
+        long duration = sign * record.getDuration();
+
+        dayDistance[i] += distance;
+        daySteps[i] += steps;
+        dayDuration[i] += duration;
+        dayCount[i] += sign;
+
+        for (int t = i + 1; t <= capacity; t += t & -t) {
+            treeDistance[t] += distance;
+            treeSteps[t] += steps;
+            treeDuration[t] += duration;
+            treeCount[t] += sign;
+        }
+    }
+
+    /**
+     * Grows the day range (doubling) so {@code day} fits, re-basing if needed.
+     */
+    private void ensureDayInRange(long day) {
+        if (day >= baseDay && day < baseDay + capacity) {
+            return;
+        }
+        long newBase = Math.min(baseDay, day);
+        long newEnd = Math.max(baseDay + capacity, day + 1);
+        int newCapacity = capacity;
+        while (newCapacity < newEnd - newBase) {
+            newCapacity *= 2;
+        }
+        // Leave headroom on the side we grew towards
+        if (day < baseDay) {
+            newBase = newEnd - newCapacity;
+        }
+
+        double[] oldDistance = dayDistance;
+        long[] oldSteps = daySteps;
+        long[] oldDuration = dayDuration;
+        int[] oldCount = dayCount;
+        int offset = (int) (baseDay - newBase);
+        int oldCapacity = capacity;
+
+        allocate(newBase, newCapacity);
+        System.arraycopy(oldDistance, 0, dayDistance, offset, oldCapacity);
+        System.arraycopy(oldSteps, 0, daySteps, offset, oldCapacity);
+        System.arraycopy(oldDuration, 0, dayDuration, offset, oldCapacity);
+        System.arraycopy(oldCount, 0, dayCount, offset, oldCapacity);
+        buildTrees();
+    }
+
+    private void allocate(long baseDay, int capacity) {
+        this.baseDay = baseDay;
+        this.capacity = capacity;
+        dayDistance = new double[capacity];
+        daySteps = new long[capacity];
+        dayDuration = new long[capacity];
+        dayCount = new int[capacity];
+        treeDistance = new double[capacity + 1];
+        treeSteps = new long[capacity + 1];
+        treeDuration = new long[capacity + 1];
+        treeCount = new int[capacity + 1];
+    }
+
+    /**
+     * Linear-time Fenwick construction from the per-day arrays.
+     */
+    private void buildTrees() {
+        for (int i = 1; i <= capacity; i++) {
+            treeDistance[i] += dayDistance[i - 1];
+            treeSteps[i] += daySteps[i - 1];
+            treeDuration[i] += dayDuration[i - 1];
+            treeCount[i] += dayCount[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                treeDistance[parent] += treeDistance[i];
+                treeSteps[parent] += treeSteps[i];
+                treeDuration[parent] += treeDuration[i];
+                treeCount[parent] += treeCount[i];
+            }
+        }
+    }
+
+    private long dayOf(long millis) {
+        return Math.floorDiv(millis + timeZone.getOffset(millis), DAY_MS);
+    }
+}
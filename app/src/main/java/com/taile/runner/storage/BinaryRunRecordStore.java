@@ -0,0 +1,399 @@
+package com.taile.runner.storage;
+
+import com.taile.runner.models.RunRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Append-only file engine with fixed-width records.
+ *
+ * Layout: a 16 byte header (magic, version, record size, last id) followed by one
+ * slot per record. Appending writes a single slot at the end of the file; deleting
+ * only flips the slot's status byte. Once tombstones outnumber live records the file
+ * is compacted on a background thread.
+ */
+public class BinaryRunRecordStore implements RunRecordStore {
+    public static final String FILE_NAME = "run_records.bin";
+
+    private static final int MAGIC = 0x52554E52; // "RUNR"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int LAST_ID_OFFSET = 8;
+
+    // status(1) id(8) startTime(8) endTime(8) distance(4) steps(4) avgSpeed(4) movingTime(8)
+    // avgCadence(4) maxCadence(4)
+    static final int RECORD_SIZE = 53;
+    // Layouts written by earlier versions
+    private static final int RECORD_SIZE_V1 = 37;
+    private static final int RECORD_SIZE_V2 = 45;
+
+    private static final byte STATUS_DELETED = 0;
+    private static final byte STATUS_LIVE = 1;
+
+    private static final int MIN_TOMBSTONES_FOR_COMPACTION = 64;
+    private static final int READ_BATCH_RECORDS = 256;
+
+    private final File file;
+    private final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "run-store-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Slot index of every live record, so deletes are a single byte write
+    private final Map<Long, Integer> slotsById = new HashMap<>();
+    private RandomAccessFile raf;
+    private boolean indexed = false;
+    private int slotCount = 0;
+    private int tombstones = 0;
+    private long lastId = 0;
+    private boolean compactionScheduled = false;
+
+    public BinaryRunRecordStore(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public synchronized List<RunRecord> loadAll() {
+        List<RunRecord> records = new ArrayList<>();
+        try {
+            open();
+            scan(records);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return records;
+    }
+
+    @Override
+    public synchronized long getLastId() {
+        ensureIndexed();
+        return lastId;
+    }
+
+    public synchronized boolean contains(long id) {
+        ensureIndexed();
+        return slotsById.containsKey(id);
+    }
+
+    public synchronized int size() {
+        ensureIndexed();
+        return slotsById.size();
+    }
+
+    @Override
+    public synchronized void append(RunRecord record) {
+        appendAll(Collections.singletonList(record));
+    }
+
+    @Override
+    public synchronized void appendAll(List<RunRecord> records) {
+        if (records.isEmpty() || !ensureIndexed()) {
+            return;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * records.size());
+            long maxId = lastId;
+            for (RunRecord record : records) {
+                encode(record, buffer);
+                maxId = Math.max(maxId, record.getId());
+            }
+            raf.seek(slotOffset(slotCount));
+            raf.write(buffer.array());
+            for (RunRecord record : records) {
+                slotsById.put(record.getId(), slotCount++);
+            }
+
+            if (maxId > lastId) {
+                lastId = maxId;
+                raf.seek(LAST_ID_OFFSET);
+                raf.writeLong(lastId);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public synchronized void delete(long id) {
+        if (!ensureIndexed()) {
+            return;
+        }
+        Integer slot = slotsById.remove(id);
+        if (slot == null) {
+            return;
+        }
+        try {
+            raf.seek(slotOffset(slot));
+            raf.writeByte(STATUS_DELETED);
+            tombstones++;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        maybeScheduleCompaction();
+    }
+
+    @Override
+    public synchronized void clear() {
+        try {
+            open();
+            raf.setLength(HEADER_SIZE);
+            lastId = 0;
+            writeHeader(raf, RECORD_SIZE, lastId);
+            slotsById.clear();
+            slotCount = 0;
+            tombstones = 0;
+            indexed = true;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Raises the persisted id counter, e.g. after importing records whose ids
+     * were assigned by another engine.
+     */
+    public synchronized void ensureLastIdAtLeast(long id) {
+        if (!ensureIndexed() || id <= lastId) {
+            return;
+        }
+        try {
+            lastId = id;
+            raf.seek(LAST_ID_OFFSET);
+            raf.writeLong(lastId);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Rewrites the file with live records only. Normally triggered automatically
+     * from {@link #delete(long)}; safe to call from any thread.
+     */
+    public synchronized void compact() {
+        compactionScheduled = false;
+        if (!ensureIndexed()) {
+            return;
+        }
+        try {
+            rewrite(RECORD_SIZE);
+        } catch (IOException e) {
+            e.printStackTrace();
+            if (raf == null) {
+                // The file could not be reopened; the next call starts over
+                indexed = false;
+            }
+        }
+    }
+
+    public synchronized void close() {
+        compactionExecutor.shutdown();
+        if (raf != null) {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            raf = null;
+            indexed = false;
+        }
+    }
+
+    private void maybeScheduleCompaction() {
+        if (!compactionScheduled
+                && tombstones >= MIN_TOMBSTONES_FOR_COMPACTION
+                && tombstones > slotsById.size()) {
+            compactionScheduled = true;
+            compactionExecutor.execute(this::compact);
+        }
+    }
+
+    private boolean ensureIndexed() {
+        if (indexed) {
+            return true;
+        }
+        try {
+            open();
+            scan(null);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private void open() throws IOException {
+        if (raf != null) {
+            return;
+        }
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        raf = new RandomAccessFile(file, "rw");
+        if (raf.length() < HEADER_SIZE) {
+            raf.setLength(0);
+            writeHeader(raf, RECORD_SIZE, 0);
+        }
+    }
+
+    /**
+     * Reads the whole file once, rebuilding the slot index and optionally collecting
+     * the live records.
+     */
+    private void scan(List<RunRecord> out) throws IOException {
+        indexed = false;
+        raf.seek(0);
+        if (raf.readInt() != MAGIC) {
+            throw new IOException("Not a run record file: " + file);
+        }
+        raf.readShort(); // version
+        int recordSize = raf.readUnsignedShort();
+        if (recordSize < RECORD_SIZE_V1) {
+            throw new IOException("Bad record size " + recordSize + " in " + file);
+        }
+        lastId = raf.readLong();
+
+        // A torn append at the tail is dropped
+        slotCount = (int) ((raf.length() - HEADER_SIZE) / recordSize);
+        raf.setLength(HEADER_SIZE + (long) slotCount * recordSize);
+
+        slotsById.clear();
+        tombstones = 0;
+
+        byte[] chunk = new byte[recordSize * READ_BATCH_RECORDS];
+        raf.seek(HEADER_SIZE);
+        int slot = 0;
+        while (slot < slotCount) {
+            int count = Math.min(READ_BATCH_RECORDS, slotCount - slot);
+            raf.readFully(chunk, 0, count * recordSize);
+            ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, count * recordSize);
+            for (int i = 0; i < count; i++, slot++) {
+                buffer.position(i * recordSize);
+                if (buffer.get() == STATUS_LIVE) {
+                    RunRecord record = decode(buffer, recordSize);
+                    slotsById.put(record.getId(), slot);
+                    lastId = Math.max(lastId, record.getId());
+                    if (out != null) {
+                        out.add(record);
+                    }
+                } else {
+                    tombstones++;
+                }
+            }
+        }
+        // Older files with a narrower layout are upgraded in place
+        if (recordSize != RECORD_SIZE) {
+            rewrite(recordSize);
+        }
+        indexed = true;
+    }
+
+    /**
+     * Copies live slots into a fresh file with the current layout and swaps it in.
+     */
+    private void rewrite(int sourceRecordSize) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        Map<Long, Integer> newSlots = new HashMap<>();
+
+        try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+            out.setLength(0);
+            writeHeader(out, RECORD_SIZE, lastId);
+
+            byte[] chunk = new byte[sourceRecordSize * READ_BATCH_RECORDS];
+            ByteBuffer outBuffer = ByteBuffer.allocate(RECORD_SIZE * READ_BATCH_RECORDS);
+            raf.seek(HEADER_SIZE);
+            int slot = 0;
+            while (slot < slotCount) {
+                int count = Math.min(READ_BATCH_RECORDS, slotCount - slot);
+                raf.readFully(chunk, 0, count * sourceRecordSize);
+                ByteBuffer in = ByteBuffer.wrap(chunk, 0, count * sourceRecordSize);
+                outBuffer.clear();
+                for (int i = 0; i < count; i++, slot++) {
+                    in.position(i * sourceRecordSize);
+                    if (in.get() == STATUS_LIVE) {
+                        RunRecord record = decode(in, sourceRecordSize);
+                        newSlots.put(record.getId(), newSlots.size());
+                        encode(record, outBuffer);
+                    }
+                }
+                out.write(outBuffer.array(), 0, outBuffer.position());
+            }
+            out.getFD().sync();
+        }
+
+        raf.close();
+        raf = null;
+        boolean replaced = tmp.renameTo(file);
+        if (!replaced) {
+            tmp.delete();
+        }
+        // Reopened either way; if the swap failed the old file and its index still match
+        raf = new RandomAccessFile(file, "rw");
+        if (!replaced) {
+            throw new IOException("Could not replace " + file);
+        }
+
+        slotsById.clear();
+        slotsById.putAll(newSlots);
+        slotCount = newSlots.size();
+        tombstones = 0;
+    }
+
+    private long slotOffset(int slot) {
+        return HEADER_SIZE + (long) slot * RECORD_SIZE;
+    }
+
+    private static void writeHeader(RandomAccessFile out, int recordSize, long lastId) throws IOException {
+        out.seek(0);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(recordSize);
+        out.writeLong(lastId);
+    }
+
+    private static void encode(RunRecord record, ByteBuffer buffer) {
+        buffer.put(STATUS_LIVE);
+        buffer.putLong(record.getId());
+        buffer.putLong(record.getStartTime());
+        buffer.putLong(record.getEndTime());
+        buffer.putFloat(record.getDistance());
+        buffer.putInt(record.getSteps());
+        buffer.putFloat(record.getAvgSpeed());
+        buffer.putLong(record.getMovingTime());
+        buffer.putFloat(record.getAvgCadence());
+        buffer.putFloat(record.getMaxCadence());
+    }
+
+    /**
+     * Decodes the slot body following the status byte. Fields beyond
+     * {@code recordSize} (written by an older layout) keep their defaults.
+     */
+    private static RunRecord decode(ByteBuffer buffer, int recordSize) {
+        RunRecord record = new RunRecord();
+        record.setId(buffer.getLong());
+        record.setStartTime(buffer.getLong());
+        record.setEndTime(buffer.getLong());
+        record.setDistance(buffer.getFloat());
+        record.setSteps(buffer.getInt());
+        record.setAvgSpeed(buffer.getFloat());
+        if (recordSize > RECORD_SIZE_V1) {
+            record.setMovingTime(buffer.getLong());
+        }
+        if (recordSize > RECORD_SIZE_V2) {
+            record.setAvgCadence(buffer.getFloat());
+            record.setMaxCadence(buffer.getFloat());
+        }
+        return record;
+    }
+}
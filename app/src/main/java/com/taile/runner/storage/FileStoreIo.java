@@ -0,0 +1,123 @@
+package com.taile.runner.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The background thread of one file store, and the atomic write the stores share.
+ *
+ * Tasks run one at a time in submission order, so a write queued for a file is
+ * always visible to a later read or delete of it.
+ */
+final class FileStoreIo {
+
+    interface Task {
+        void run() throws IOException;
+    }
+
+    interface Payload {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    private final ExecutorService executor;
+
+    FileStoreIo(String threadName) {
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void execute(Task task) {
+        executor.execute(() -> {
+            try {
+                task.run();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Blocks until {@code task} has run; call from a worker thread.
+     *
+     * @return its result, or {@code fallback} if it failed
+     */
+    <T> T call(Callable<T> task, T fallback) {
+        try {
+            return executor.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+        return fallback;
+    }
+
+    /**
+     * Blocks until everything queued before this call is on disk.
+     *
+     * @return false if that took longer than {@code timeoutMs}
+     */
+    boolean flush(long timeoutMs) {
+        try {
+            executor.submit(() -> { }).get(timeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        } catch (TimeoutException e) {
+            // Still writing
+        }
+        return false;
+    }
+
+    /**
+     * Queues deleting every file in {@code directory} ending in {@code extension}.
+     */
+    void deleteAll(File directory, String extension) {
+        execute(() -> {
+            File[] files = directory.listFiles();
+            if (files == null) {
+                return;
+            }
+            for (File file : files) {
+                if (file.getName().endsWith(extension)) {
+                    file.delete();
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes {@code payload} to a temporary file, syncs it and renames it over
+     * {@code file}, so a crash leaves either the old or the new contents.
+     */
+    static void writeAtomically(File file, Payload payload) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+            payload.writeTo(out);
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not write " + file);
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.taile.runner.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.taile.runner.models.RunRecord;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams the legacy {@code records} JSON array out of the SharedPreferences XML file,
+ * where earlier versions kept the whole list as one Gson blob, into a
+ * {@link BinaryRunRecordStore}, one record at a time.
+ *
+ * The XML is never handed to SharedPreferences (which would load the whole blob
+ * as one String); instead the escaped string value is decoded on the fly and fed to
+ * a token-level {@link JsonReader}. Records are written in small batches and the
+ * number of array elements consumed is checkpointed after each batch, so a killed
+ * import resumes where it stopped. Ids already in the target are skipped as well,
+ * which covers a kill between a batch write and its checkpoint.
+ */
+public class LegacyRecordsImporter {
+
+    public interface ProgressListener {
+        void onProgress(int imported, long bytesRead, long totalBytes);
+    }
+
+    // SharedPreferences file and keys written by earlier versions
+    static final String PREFS_NAME = "run_records";
+    static final String RECORDS_KEY = "records";
+    static final String LAST_ID_KEY = "last_id";
+
+    private static final String RECORDS_START_TAG = "<string name=\"" + RECORDS_KEY + "\">";
+    private static final String LAST_ID_TAG = "<long name=\"" + LAST_ID_KEY + "\" value=\"";
+    private static final int BATCH_SIZE = 256;
+
+    private final File prefsFile;
+    private final File checkpointFile;
+    private final Gson gson = new Gson();
+
+    public LegacyRecordsImporter(File prefsFile, File checkpointFile) {
+        this.prefsFile = prefsFile;
+        this.checkpointFile = checkpointFile;
+    }
+
+    public boolean hasPendingImport() {
+        return prefsFile.exists();
+    }
+
+    /**
+     * Imports every legacy record not yet present in {@code target}. The caller is
+     * responsible for deleting the legacy preferences once this returns.
+     *
+     * @return the number of records written by this call
+     */
+    public int importInto(BinaryRunRecordStore target, ProgressListener listener) throws IOException {
+        long totalBytes = prefsFile.length();
+        long consumed = readCheckpoint();
+        int imported = 0;
+        long maxId = 0;
+
+        try (CountingInputStream counter = new CountingInputStream(
+                new BufferedInputStream(new FileInputStream(prefsFile)));
+             XmlStringValueReader value = new XmlStringValueReader(
+                     new BufferedReader(new InputStreamReader(counter, StandardCharsets.UTF_8)));
+             JsonReader json = new JsonReader(value)) {
+
+            if (!value.seekToValue() || json.peek() != JsonToken.BEGIN_ARRAY) {
+                target.ensureLastIdAtLeast(readLastId());
+                deleteCheckpoint();
+                return 0;
+            }
+            json.beginArray();
+
+            // Elements handled by an earlier, interrupted run are skipped without parsing
+            long index = 0;
+            while (index < consumed && json.hasNext()) {
+                json.skipValue();
+                index++;
+            }
+
+            List<RunRecord> batch = new ArrayList<>(BATCH_SIZE);
+            while (json.hasNext()) {
+                RunRecord record = gson.fromJson(json, RunRecord.class);
+                index++;
+                if (record == null || target.contains(record.getId())) {
+                    continue;
+                }
+                maxId = Math.max(maxId, record.getId());
+                batch.add(record);
+
+                if (batch.size() == BATCH_SIZE) {
+                    target.appendAll(batch);
+                    imported += batch.size();
+                    batch.clear();
+                    writeCheckpoint(index);
+                    if (listener != null) {
+                        listener.onProgress(imported, counter.getCount(), totalBytes);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                target.appendAll(batch);
+                imported += batch.size();
+            }
+            if (listener != null) {
+                listener.onProgress(imported, totalBytes, totalBytes);
+            }
+        }
+
+        // Ids of runs deleted before the import were handed out too, never reuse them
+        target.ensureLastIdAtLeast(Math.max(readLastId(), maxId));
+        deleteCheckpoint();
+        return imported;
+    }
+
+    /**
+     * Reads the legacy id counter in a separate streaming pass, as SharedPreferences
+     * may have written it on either side of the records value.
+     *
+     * @return the counter, or 0 if absent
+     */
+    private long readLastId() {
+        try (Reader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(prefsFile), StandardCharsets.UTF_8))) {
+            if (!seekPast(in, LAST_ID_TAG)) {
+                return 0;
+            }
+            StringBuilder digits = new StringBuilder(20);
+            int c;
+            while ((c = in.read()) != -1 && c != '"') {
+                digits.append((char) c);
+            }
+            return Long.parseLong(digits.toString());
+        } catch (IOException | NumberFormatException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * Advances {@code in} past the next occurrence of {@code tag}, which must start
+     * with '<'. The escaped string values never contain '<', so a match is always a
+     * real tag.
+     */
+    private static boolean seekPast(Reader in, String tag) throws IOException {
+        int matched = 0;
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == tag.charAt(matched)) {
+                matched++;
+                if (matched == tag.length()) {
+                    return true;
+                }
+            } else {
+                // '<' only occurs at the start of a tag
+                matched = c == '<' ? 1 : 0;
+            }
+        }
+        return false;
+    }
+
+    private long readCheckpoint() {
+        if (!checkpointFile.exists()) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(checkpointFile))) {
+            return in.readLong();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void writeCheckpoint(long consumed) throws IOException {
+        File tmp = new File(checkpointFile.getPath() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(fileOut)) {
+            out.writeLong(consumed);
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        if (!tmp.renameTo(checkpointFile)) {
+            throw new IOException("Could not write " + checkpointFile);
+        }
+    }
+
+    private void deleteCheckpoint() {
+        checkpointFile.delete();
+    }
+
+    /**
+     * Exposes the XML-escaped text of the records {@code <string>} element as a plain
+     * character stream.
+     */
+    static final class XmlStringValueReader extends Reader {
+        private final Reader in;
+        private boolean inValue = false;
+        private boolean finished = false;
+        // Pending char from a decoded supplementary code point
+        private int pendingLowSurrogate = -1;
+
+        XmlStringValueReader(Reader in) {
+            this.in = in;
+        }
+
+        /**
+         * Advances past the records start tag.
+         *
+         * @return false if the file holds no records value
+         */
+        boolean seekToValue() throws IOException {
+            if (seekPast(in, RECORDS_START_TAG)) {
+                inValue = true;
+                return true;
+            }
+            finished = true;
+            return false;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (!inValue && !finished) {
+                seekToValue();
+            }
+            if (finished) {
+                return -1;
+            }
+            int count = 0;
+            while (count < length) {
+                int c = nextChar();
+                if (c == -1) {
+                    break;
+                }
+                buffer[offset + count++] = (char) c;
+            }
+            return count == 0 ? -1 : count;
+        }
+
+        private int nextChar() throws IOException {
+            if (pendingLowSurrogate != -1) {
+                int c = pendingLowSurrogate;
+                pendingLowSurrogate = -1;
+                return c;
+            }
+            int c = in.read();
+            if (c == -1 || c == '<') {
+                // End of the element
+                finished = true;
+                return -1;
+            }
+            if (c != '&') {
+                return c;
+            }
+            return decodeEntity();
+        }
+
+        private int decodeEntity() throws IOException {
+            StringBuilder entity = new StringBuilder(8);
+            int c;
+            while ((c = in.read()) != ';') {
+                if (c == -1 || entity.length() > 10) {
+                    throw new IOException("Malformed entity &" + entity);
+                }
+                entity.append((char) c);
+            }
+            String name = entity.toString();
+            switch (name) {
+                case "amp":
+                    return '&';
+                case "lt":
+                    return '<';
+                case "gt":
+                    return '>';
+                case "quot":
+                    return '"';
+                case "apos":
+                    return '\'';
+                default:
+                    break;
+            }
+            if (name.startsWith("#")) {
+                int codePoint = name.startsWith("#x") || name.startsWith("#X")
+                        ? Integer.parseInt(name.substring(2), 16)
+                        : Integer.parseInt(name.substring(1));
+                if (Character.isSupplementaryCodePoint(codePoint)) {
+                    pendingLowSurrogate = Character.lowSurrogate(codePoint);
+                    return Character.highSurrogate(codePoint);
+                }
+                return codePoint;
+            }
+            throw new IOException("Unknown entity &" + name + ";");
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
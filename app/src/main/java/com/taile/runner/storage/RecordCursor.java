@@ -0,0 +1,35 @@
+package com.taile.runner.storage;
+
+import com.taile.runner.models.RunRecord;
+
+/**
+ * Position in the history order used by {@link RunRecordsManager#NEWEST_FIRST}.
+ */
+public final class RecordCursor {
+    private final long startTime;
+    private final long id;
+
+    public RecordCursor(long startTime, long id) {
+        this.startTime = startTime;
+        this.id = id;
+    }
+
+    public static RecordCursor of(RunRecord record) {
+        return new RecordCursor(record.getStartTime(), record.getId());
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    RunRecord toProbe() {
+        RunRecord probe = new RunRecord();
+        probe.setId(id);
+        probe.setStartTime(startTime);
+        return probe;
+    }
+}
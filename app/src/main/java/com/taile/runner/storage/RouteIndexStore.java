@@ -0,0 +1,165 @@
+package com.taile.runner.storage;
+
+import com.taile.runner.geo.RouteFootprint;
+import com.taile.runner.geo.RouteSpatialIndex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Persists the {@link RouteSpatialIndex} as a log of run footprints added and removed,
+ * replayed on load. Like {@link TrackStore}, file access is serialized on one
+ * {@link FileStoreIo} thread.
+ *
+ * Layout: magic, version, then entries: type byte, run id, and for an added run its
+ * bounding box (4 x int E7), cell count and cell keys. The file is only ever created
+ * by a full {@link #rewrite}, so while it exists it covers every run; appends are
+ * dropped until then. A torn last entry is dropped on load.
+ */
+public class RouteIndexStore {
+    public static final String FILE_NAME = "route_index.bin";
+
+    private static final int MAGIC = 0x52494458; // "RIDX"
+    private static final short VERSION = 1;
+    private static final byte ENTRY_ADD = 1;
+    private static final byte ENTRY_REMOVE = 2;
+
+    private final File file;
+    private final FileStoreIo io = new FileStoreIo("route-index-io");
+
+    public RouteIndexStore(File file) {
+        this.file = file;
+    }
+
+    public void append(RouteFootprint footprint) {
+        io.execute(() -> {
+            if (!file.exists()) {
+                return;
+            }
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(file, true)))) {
+                writeAdd(out, footprint);
+            }
+        });
+    }
+
+    public void appendRemoval(long runId) {
+        io.execute(() -> {
+            if (!file.exists()) {
+                return;
+            }
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(file, true)))) {
+                out.writeByte(ENTRY_REMOVE);
+                out.writeLong(runId);
+            }
+        });
+    }
+
+    /**
+     * Replaces the file with exactly {@code footprints}.
+     */
+    public void rewrite(Collection<RouteFootprint> footprints) {
+        Collection<RouteFootprint> copy = new ArrayList<>(footprints);
+        io.execute(() -> write(copy));
+    }
+
+    /**
+     * Blocks until everything queued before this call is on disk.
+     *
+     * @return false if that took longer than {@code timeoutMs}
+     */
+    public boolean flush(long timeoutMs) {
+        return io.flush(timeoutMs);
+    }
+
+    /**
+     * Blocks until the stored footprints are replayed into {@code index}; call from a
+     * worker thread.
+     *
+     * @return false if there is no complete index on disk and it must be rebuilt
+     */
+    public boolean load(RouteSpatialIndex index) {
+        Boolean loaded = io.call(() -> read(index), null);
+        if (loaded == null) {
+            index.clear();
+            return false;
+        }
+        return loaded;
+    }
+
+    private boolean read(RouteSpatialIndex index) throws IOException {
+        if (!file.exists()) {
+            return false;
+        }
+        int removals = 0;
+        boolean torn = false;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                return false;
+            }
+            while (true) {
+                int type = in.read();
+                if (type == -1) {
+                    break;
+                }
+                long runId = in.readLong();
+                if (type == ENTRY_REMOVE) {
+                    index.remove(runId);
+                    removals++;
+                    continue;
+                }
+                int minLat = in.readInt();
+                int minLon = in.readInt();
+                int maxLat = in.readInt();
+                int maxLon = in.readInt();
+                long[] cells = new long[in.readInt()];
+                for (int i = 0; i < cells.length; i++) {
+                    cells[i] = in.readLong();
+                }
+                index.add(new RouteFootprint(runId, minLat, minLon, maxLat, maxLon, cells));
+            }
+        } catch (EOFException e) {
+            // Torn last append; the entries before it are intact
+            torn = true;
+        }
+        if (torn || removals > index.size()) {
+            // Start a clean log, also so later appends do not follow a torn entry
+            write(index.getFootprints());
+        }
+        return true;
+    }
+
+    private void write(Collection<RouteFootprint> footprints) throws IOException {
+        FileStoreIo.writeAtomically(file, out -> {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            for (RouteFootprint footprint : footprints) {
+                writeAdd(out, footprint);
+            }
+        });
+    }
+
+    private static void writeAdd(DataOutputStream out, RouteFootprint footprint) throws IOException {
+        out.writeByte(ENTRY_ADD);
+        out.writeLong(footprint.runId);
+        out.writeInt(footprint.minLatE7);
+        out.writeInt(footprint.minLonE7);
+        out.writeInt(footprint.maxLatE7);
+        out.writeInt(footprint.maxLonE7);
+        out.writeInt(footprint.cells.length);
+        for (long cell : footprint.cells) {
+            out.writeLong(cell);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.taile.runner.storage;
+
+import com.taile.runner.models.RunRecord;
+
+import java.util.List;
+
+/**
+ * Persistence engine behind {@link RunRecordsManager}.
+ * Records passed to {@link #append(RunRecord)} already carry their final id.
+ */
+public interface RunRecordStore {
+
+    List<RunRecord> loadAll();
+
+    long getLastId();
+
+    void append(RunRecord record);
+
+    /**
+     * Appends several records in one write. Engines that rewrite their whole state
+     * per change should override this to persist only once.
+     */
+    default void appendAll(List<RunRecord> records) {
+        for (RunRecord record : records) {
+            append(record);
+        }
+    }
+
+    void delete(long id);
+
+    void clear();
+}
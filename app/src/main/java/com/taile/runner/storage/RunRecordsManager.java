@@ -1,88 +1,491 @@
 package com.taile.runner.storage;
 
 import android.content.Context;
-import android.content.SharedPreferences;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.taile.runner.geo.RouteFootprint;
+import com.taile.runner.geo.RouteSpatialIndex;
 import com.taile.runner.models.RunRecord;
+import com.taile.runner.models.Split;
+import com.taile.runner.stats.RankingEngine;
+import com.taile.runner.stats.RunAggregateIndex;
+import com.taile.runner.track.TrackBuffer;
 
-import java.lang.reflect.Type;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
+/**
+ * Process-wide repository of run records. Obtain it with {@link #getInstance(Context)};
+ * storage is read and parsed once, on first access, and kept in memory afterwards.
+ */
 public class RunRecordsManager {
-    private static final String PREFS_NAME = "run_records";
-    private static final String RECORDS_KEY = "records";
-    private static final String LAST_ID_KEY = "last_id";
 
-    private final SharedPreferences sharedPreferences;
-    private final Gson gson = new Gson();
-    private List<RunRecord> records;
+    /**
+     * Receives incremental changes, always on the main thread.
+     */
+    public interface OnRecordsChangedListener {
+        void onRecordsChanged(long[] addedIds, long[] removedIds);
+    }
+
+    /**
+     * History order: most recent start time first, ties broken by id.
+     */
+    public static final Comparator<RunRecord> NEWEST_FIRST = (r1, r2) -> {
+        int byTime = Long.compare(r2.getStartTime(), r1.getStartTime());
+        return byTime != 0 ? byTime : Long.compare(r2.getId(), r1.getId());
+    };
+
+    public static final int DEFAULT_PAGE_SIZE = 30;
+
+    private static final String TAG = "RunRecordsManager";
+    private static final String IMPORT_CHECKPOINT_FILE = "run_records.import";
+    private static final long[] NO_IDS = new long[0];
+    private static final int WORKER_THREADS = 2;
+
+    private static RunRecordsManager instance;
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<OnRecordsChangedListener> listeners = new CopyOnWriteArrayList<>();
+    // Shared by screens for the blocking calls below, instead of a thread per request
+    private final ExecutorService worker = Executors.newFixedThreadPool(WORKER_THREADS, r -> {
+        Thread thread = new Thread(r, "records-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private WriteBehindRunRecordStore store;
+    private final TrackStore trackStore;
+    private final SplitStore splitStore;
+    private final RouteIndexStore routeIndexStore;
+    // Runs by place, loaded on the first place query
+    private RouteSpatialIndex routeIndex;
+    // Serializes index builds, which run without holding this manager's monitor
+    private final Object routeIndexBuildLock = new Object();
+    // Changes made while the index is being built, replayed onto it before it is published
+    private List<Consumer<RouteSpatialIndex>> routeIndexBacklog;
+    private Map<Long, RunRecord> recordsById;
+    // Same records kept in NEWEST_FIRST order for paging
+    private NavigableSet<RunRecord> sortedRecords;
+    private final RunAggregateIndex aggregates = new RunAggregateIndex();
+    private final RankingEngine rankings = new RankingEngine();
     private long lastId = 0;
 
-    public RunRecordsManager(Context context) {
-        sharedPreferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        loadRecords();
+    public static synchronized RunRecordsManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new RunRecordsManager(context.getApplicationContext());
+        }
+        return instance;
     }
 
-    private void loadRecords() {
-        String recordsJson = sharedPreferences.getString(RECORDS_KEY, null);
-        lastId = sharedPreferences.getLong(LAST_ID_KEY, 0);
+    private RunRecordsManager(Context context) {
+        this.context = context;
+        this.trackStore = new TrackStore(new File(context.getFilesDir(), TrackStore.DIRECTORY_NAME));
+        this.splitStore = new SplitStore(new File(context.getFilesDir(), SplitStore.DIRECTORY_NAME));
+        this.routeIndexStore = new RouteIndexStore(new File(context.getFilesDir(), RouteIndexStore.FILE_NAME));
+    }
 
-        if (recordsJson != null) {
-            Type type = new TypeToken<ArrayList<RunRecord>>() {}.getType();
-            records = gson.fromJson(recordsJson, type);
-        } else {
-            records = new ArrayList<>();
+    private void ensureLoaded() {
+        if (recordsById != null) {
+            return;
         }
+        store = openStore(context);
+
+        List<RunRecord> loaded = store.loadAll();
+        recordsById = new HashMap<>(Math.max(16, loaded.size() * 2));
+        sortedRecords = new TreeSet<>(NEWEST_FIRST);
+        for (RunRecord record : loaded) {
+            recordsById.put(record.getId(), record);
+            sortedRecords.add(record);
+        }
+        aggregates.rebuild(loaded);
+        rankings.rebuild(loaded);
+        lastId = store.getLastId();
+    }
+
+    private static WriteBehindRunRecordStore openStore(Context context) {
+        BinaryRunRecordStore fileStore = new BinaryRunRecordStore(
+                new File(context.getFilesDir(), BinaryRunRecordStore.FILE_NAME));
+        migrateLegacyRecords(context, fileStore);
+        return new WriteBehindRunRecordStore(fileStore);
     }
 
-    private void saveRecords() {
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        String recordsJson = gson.toJson(records);
-        editor.putString(RECORDS_KEY, recordsJson);
-        editor.putLong(LAST_ID_KEY, lastId);
-        editor.apply();
+    /**
+     * One-time streaming import of the legacy SharedPreferences blob into the binary
+     * store. The preferences file is read directly so the blob is never loaded as a
+     * whole; an interrupted import resumes on the next start.
+     */
+    private static void migrateLegacyRecords(Context context, BinaryRunRecordStore target) {
+        File legacyFile = new File(context.getDataDir(),
+                "shared_prefs/" + LegacyRecordsImporter.PREFS_NAME + ".xml");
+        LegacyRecordsImporter importer = new LegacyRecordsImporter(
+                legacyFile, new File(context.getFilesDir(), IMPORT_CHECKPOINT_FILE));
+        if (!importer.hasPendingImport()) {
+            return;
+        }
+
+        try {
+            int imported = importer.importInto(target, (count, bytesRead, totalBytes) ->
+                    Log.i(TAG, "Importing legacy records: " + count + " done, "
+                            + bytesRead + "/" + totalBytes + " bytes"));
+            Log.i(TAG, "Imported " + imported + " legacy records");
+            context.deleteSharedPreferences(LegacyRecordsImporter.PREFS_NAME);
+        } catch (IOException e) {
+            // Left in place, the next start resumes from the last checkpoint
+            e.printStackTrace();
+        }
     }
 
-    public List<RunRecord> getAllRecords() {
-        return new ArrayList<>(records);
+    /**
+     * Background executor for the calls of this class that block on storage, such as
+     * {@link #getTrack}, {@link #getSplits} and the place queries.
+     */
+    public Executor getExecutor() {
+        return worker;
     }
 
-    public List<RunRecord> getRecordsSortedByDate() {
-        List<RunRecord> sortedRecords = new ArrayList<>(records);
-        Collections.sort(sortedRecords, new Comparator<RunRecord>() {
-            @Override
-            public int compare(RunRecord r1, RunRecord r2) {
-                // Sort descending (most recent first)
-                return Long.compare(r2.getStartTime(), r1.getStartTime());
+    /**
+     * Loads storage on the background executor, importing legacy records on the first
+     * start, then runs {@code callback} on the main thread. Screens wait for this before
+     * their first query so the main thread never parses or imports storage.
+     */
+    public void whenLoaded(Runnable callback) {
+        worker.execute(() -> {
+            synchronized (this) {
+                ensureLoaded();
             }
+            mainHandler.post(callback);
         });
-        return sortedRecords;
+    }
+
+    public void addOnRecordsChangedListener(OnRecordsChangedListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeOnRecordsChangedListener(OnRecordsChangedListener listener) {
+        listeners.remove(listener);
+    }
+
+    public synchronized RunRecord getRecord(long id) {
+        ensureLoaded();
+        return recordsById.get(id);
+    }
+
+    public synchronized int getRecordCount() {
+        ensureLoaded();
+        return recordsById.size();
+    }
+
+    public synchronized List<RunRecord> getAllRecords() {
+        ensureLoaded();
+        return new ArrayList<>(recordsById.values());
+    }
+
+    public synchronized List<RunRecord> getRecordsSortedByDate() {
+        ensureLoaded();
+        // Most recent first, already kept in order
+        return new ArrayList<>(sortedRecords);
+    }
+
+    /**
+     * Keyset paging over the history, most recent first.
+     *
+     * @param after last record of the previous page, or null for the first page
+     * @return up to {@code pageSize} records strictly older than {@code after}
+     */
+    public synchronized List<RunRecord> getPageAfter(RecordCursor after, int pageSize) {
+        ensureLoaded();
+        Iterator<RunRecord> iterator = after == null
+                ? sortedRecords.iterator()
+                : sortedRecords.tailSet(after.toProbe(), false).iterator();
+        List<RunRecord> page = new ArrayList<>(pageSize);
+        while (page.size() < pageSize && iterator.hasNext()) {
+            page.add(iterator.next());
+        }
+        return page;
+    }
+
+    /**
+     * @param before first record of the following page
+     * @return up to {@code pageSize} records strictly newer than {@code before},
+     *         most recent first
+     */
+    public synchronized List<RunRecord> getPageBefore(RecordCursor before, int pageSize) {
+        ensureLoaded();
+        Iterator<RunRecord> iterator = sortedRecords.headSet(before.toProbe(), false).descendingIterator();
+        List<RunRecord> page = new ArrayList<>(pageSize);
+        while (page.size() < pageSize && iterator.hasNext()) {
+            page.add(iterator.next());
+        }
+        Collections.reverse(page);
+        return page;
+    }
+
+    /**
+     * Totals of runs started between the local days of {@code fromMillis} and
+     * {@code toMillis} (inclusive), in O(log n).
+     */
+    public synchronized RunAggregateIndex.Totals getTotals(long fromMillis, long toMillis) {
+        ensureLoaded();
+        return aggregates.query(fromMillis, toMillis);
+    }
+
+    public synchronized RunAggregateIndex.Totals getTotals(RunAggregateIndex.Period period, long timeMillis) {
+        ensureLoaded();
+        return aggregates.query(period, timeMillis);
+    }
+
+    /**
+     * @return up to {@code k} runs of the window, best first by {@code metric}
+     */
+    public synchronized List<RunRecord> getTopRecords(RankingEngine.Metric metric,
+                                                      RankingEngine.Window window, int k) {
+        ensureLoaded();
+        return rankings.top(metric, window, k, System.currentTimeMillis());
+    }
+
+    /**
+     * Loads the GPS track recorded with a run. Blocks on file I/O; call from a
+     * worker thread.
+     *
+     * @return the track, or null if the run has none
+     */
+    public TrackBuffer getTrack(long id) {
+        return trackStore.load(id);
+    }
+
+    /**
+     * Loads the splits recorded with a run. Blocks on file I/O; call from a worker
+     * thread.
+     *
+     * @return the splits in order, empty if the run has none
+     */
+    public List<Split> getSplits(long id) {
+        return splitStore.load(id);
+    }
+
+    /**
+     * Runs whose route passes through the area; {@code west} greater than {@code east}
+     * means the area spans the antimeridian. The first call loads the index, building
+     * it from the stored tracks if needed; call from a worker thread.
+     *
+     * @return run ids, unordered
+     */
+    public long[] findRunsInArea(double south, double west, double north, double east) {
+        ensureRouteIndexLoaded();
+        synchronized (this) {
+            return routeIndex.queryBox(south, west, north, east);
+        }
+    }
+
+    /**
+     * Runs whose route passes within {@code radiusMeters} of a point. Same threading
+     * as {@link #findRunsInArea}.
+     *
+     * @return run ids, unordered
+     */
+    public long[] findRunsNear(double latitude, double longitude, double radiusMeters) {
+        ensureRouteIndexLoaded();
+        synchronized (this) {
+            return routeIndex.queryRadius(latitude, longitude, radiusMeters);
+        }
+    }
+
+    /**
+     * Loads or rebuilds the index without holding the monitor, which may take seconds
+     * when every track has to be read, then swaps it in.
+     */
+    private void ensureRouteIndexLoaded() {
+        synchronized (routeIndexBuildLock) {
+            long[] ids;
+            synchronized (this) {
+                if (routeIndex != null) {
+                    return;
+                }
+                ensureLoaded();
+                ids = new long[recordsById.size()];
+                int i = 0;
+                for (Long id : recordsById.keySet()) {
+                    ids[i++] = id;
+                }
+                routeIndexBacklog = new ArrayList<>();
+            }
+
+            RouteSpatialIndex index = new RouteSpatialIndex();
+            boolean rebuilt = false;
+            if (!routeIndexStore.load(index)) {
+                // First use, or runs saved before the index existed: read every track once
+                for (long id : ids) {
+                    TrackBuffer track = trackStore.load(id);
+                    if (track != null && !track.isEmpty()) {
+                        index.add(RouteFootprint.of(id, track));
+                    }
+                }
+                rebuilt = true;
+            }
+
+            synchronized (this) {
+                for (Consumer<RouteSpatialIndex> change : routeIndexBacklog) {
+                    change.accept(index);
+                }
+                routeIndexBacklog = null;
+                if (rebuilt) {
+                    // Queued under the monitor, so it lands before any later append
+                    routeIndexStore.rewrite(index.getFootprints());
+                    Log.i(TAG, "Route index built for " + index.size() + " runs");
+                }
+                routeIndex = index;
+            }
+        }
+    }
+
+    /**
+     * Applies {@code change} to the index if loaded, or records it for the build in
+     * progress. Call with the monitor held.
+     */
+    private void updateRouteIndex(Consumer<RouteSpatialIndex> change) {
+        if (routeIndex != null) {
+            change.accept(routeIndex);
+        } else if (routeIndexBacklog != null) {
+            routeIndexBacklog.add(change);
+        }
     }
 
     public void addRecord(RunRecord record) {
-        // Set a unique ID
-        record.setId(++lastId);
-        records.add(record);
-        saveRecords();
+        addRecord(record, null, null);
+    }
+
+    /**
+     * Stores {@code record} and, if given, its GPS track and splits under the newly
+     * assigned id. Both are written in the background; the track must not be
+     * modified afterwards.
+     */
+    public void addRecord(RunRecord record, TrackBuffer track, List<Split> splits) {
+        synchronized (this) {
+            ensureLoaded();
+            // Set a unique ID
+            record.setId(++lastId);
+            recordsById.put(record.getId(), record);
+            sortedRecords.add(record);
+            aggregates.add(record);
+            rankings.add(record);
+            store.append(record);
+            if (track != null && !track.isEmpty()) {
+                trackStore.save(record.getId(), track);
+                RouteFootprint footprint = RouteFootprint.of(record.getId(), track);
+                updateRouteIndex(index -> index.add(footprint));
+                routeIndexStore.append(footprint);
+            }
+            if (splits != null && !splits.isEmpty()) {
+                splitStore.save(record.getId(), splits);
+            }
+        }
+        notifyChanged(new long[]{record.getId()}, NO_IDS);
     }
 
     public void deleteRecord(long id) {
-        for (int i = 0; i < records.size(); i++) {
-            if (records.get(i).getId() == id) {
-                records.remove(i);
-                saveRecords();
+        synchronized (this) {
+            ensureLoaded();
+            RunRecord removed = recordsById.remove(id);
+            if (removed == null) {
                 return;
             }
+            sortedRecords.remove(removed);
+            aggregates.remove(removed);
+            rankings.remove(removed);
+            store.delete(id);
+            trackStore.delete(id);
+            splitStore.delete(id);
+            updateRouteIndex(index -> index.remove(id));
+            routeIndexStore.appendRemoval(id);
         }
+        notifyChanged(NO_IDS, new long[]{id});
     }
 
     public void deleteAllRecords() {
-        records.clear();
-        lastId = 0;
-        saveRecords();
+        long[] removed;
+        synchronized (this) {
+            ensureLoaded();
+            removed = new long[recordsById.size()];
+            int i = 0;
+            for (Long id : recordsById.keySet()) {
+                removed[i++] = id;
+            }
+            recordsById.clear();
+            sortedRecords.clear();
+            aggregates.clear();
+            rankings.clear();
+            lastId = 0;
+            store.clear();
+            trackStore.clear();
+            splitStore.clear();
+            updateRouteIndex(RouteSpatialIndex::clear);
+            // An empty index is complete; no rebuild from tracks needed
+            routeIndexStore.rewrite(Collections.emptyList());
+        }
+        notifyChanged(NO_IDS, removed);
+    }
+
+    /**
+     * Changes are persisted by background writers. Blocks until everything queued
+     * so far, records, tracks and splits, is on disk; call from a worker thread.
+     */
+    public void flush() {
+        synchronized (this) {
+            ensureLoaded();
+        }
+        store.flush();
+        trackStore.flush(Long.MAX_VALUE);
+        splitStore.flush(Long.MAX_VALUE);
+        routeIndexStore.flush(Long.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #flush()} but gives up once {@code timeoutMs} have passed in total.
+     *
+     * @return true if pending changes reached disk in time
+     */
+    public boolean flush(long timeoutMs) {
+        synchronized (this) {
+            ensureLoaded();
+        }
+        long deadline = SystemClock.elapsedRealtime() + timeoutMs;
+        return store.flush(timeoutMs)
+                && trackStore.flush(Math.max(0, deadline - SystemClock.elapsedRealtime()))
+                && splitStore.flush(Math.max(0, deadline - SystemClock.elapsedRealtime()))
+                && routeIndexStore.flush(Math.max(0, deadline - SystemClock.elapsedRealtime()));
+    }
+
+    public synchronized WriteBehindRunRecordStore.Stats getWriteStats() {
+        ensureLoaded();
+        return store.getStats();
+    }
+
+    private void notifyChanged(long[] addedIds, long[] removedIds) {
+        if (addedIds.length == 0 && removedIds.length == 0) {
+            return;
+        }
+        mainHandler.post(() -> {
+            for (OnRecordsChangedListener listener : listeners) {
+                listener.onRecordsChanged(addedIds, removedIds);
+            }
+        });
     }
 }
@@ -0,0 +1,106 @@
+package com.taile.runner.storage;
+
+import com.taile.runner.models.Split;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Splits of each run, one small file per run under {@code splits/}, named after the
+ * {@link com.taile.runner.models.RunRecord} id. Like {@link TrackStore}, file access
+ * is serialized on one {@link FileStoreIo} thread.
+ *
+ * Layout: magic, version, split count, then per split distance (float meters),
+ * duration (long ms) and steps (int).
+ */
+public class SplitStore {
+    public static final String DIRECTORY_NAME = "splits";
+
+    private static final int MAGIC = 0x53504C54; // "SPLT"
+    private static final short VERSION = 1;
+    private static final String EXTENSION = ".spl";
+
+    private final File directory;
+    private final FileStoreIo io = new FileStoreIo("split-store-io");
+
+    public SplitStore(File directory) {
+        this.directory = directory;
+    }
+
+    public void save(long runId, List<Split> splits) {
+        List<Split> copy = new ArrayList<>(splits);
+        io.execute(() -> write(runId, copy));
+    }
+
+    /**
+     * Blocks until the splits of {@code runId} are read; call from a worker thread.
+     *
+     * @return the splits, empty if none were recorded
+     */
+    public List<Split> load(long runId) {
+        return io.call(() -> read(runId), Collections.emptyList());
+    }
+
+    /**
+     * Blocks until everything queued before this call is on disk.
+     *
+     * @return false if that took longer than {@code timeoutMs}
+     */
+    public boolean flush(long timeoutMs) {
+        return io.flush(timeoutMs);
+    }
+
+    public void delete(long runId) {
+        io.execute(() -> fileFor(runId).delete());
+    }
+
+    public void clear() {
+        io.deleteAll(directory, EXTENSION);
+    }
+
+    private File fileFor(long runId) {
+        return new File(directory, runId + EXTENSION);
+    }
+
+    private void write(long runId, List<Split> splits) throws IOException {
+        FileStoreIo.writeAtomically(fileFor(runId), out -> {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(splits.size());
+            for (Split split : splits) {
+                out.writeFloat(split.getDistance());
+                out.writeLong(split.getDuration());
+                out.writeInt(split.getSteps());
+            }
+        });
+    }
+
+    private List<Split> read(long runId) throws IOException {
+        File file = fileFor(runId);
+        if (!file.exists()) {
+            return Collections.emptyList();
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a splits file: " + file);
+            }
+            in.readShort(); // version
+            int count = in.readInt();
+            List<Split> splits = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                float distance = in.readFloat();
+                long duration = in.readLong();
+                int steps = in.readInt();
+                splits.add(new Split(distance, duration, steps));
+            }
+            return splits;
+        }
+    }
+}
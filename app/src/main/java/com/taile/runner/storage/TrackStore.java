@@ -0,0 +1,101 @@
+package com.taile.runner.storage;
+
+import com.taile.runner.track.TrackBuffer;
+import com.taile.runner.track.TrackCodec;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * One file per run under {@code tracks/}, named after the {@link com.taile.runner.models.RunRecord} id.
+ *
+ * Layout: magic, version, payload length, then the {@link TrackCodec} encoding of the
+ * points; files of any other version are rejected. All file access goes through a
+ * {@link FileStoreIo} thread, so a save queued for a run is always visible to a later
+ * load or delete of the same run.
+ */
+public class TrackStore {
+    public static final String DIRECTORY_NAME = "tracks";
+
+    private static final int MAGIC = 0x5452414B; // "TRAK"
+    private static final short VERSION = 2;
+    private static final String EXTENSION = ".trk";
+
+    private final File directory;
+    private final FileStoreIo io = new FileStoreIo("track-store-io");
+
+    public TrackStore(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Queues {@code track} to be written for run {@code runId}. The buffer must not be
+     * modified afterwards.
+     */
+    public void save(long runId, TrackBuffer track) {
+        io.execute(() -> write(runId, track));
+    }
+
+    /**
+     * Blocks until the track of {@code runId} is read; call from a worker thread.
+     *
+     * @return the track, or null if none was recorded
+     */
+    public TrackBuffer load(long runId) {
+        return io.call(() -> read(runId), null);
+    }
+
+    /**
+     * Blocks until everything queued before this call is on disk.
+     *
+     * @return false if that took longer than {@code timeoutMs}
+     */
+    public boolean flush(long timeoutMs) {
+        return io.flush(timeoutMs);
+    }
+
+    public void delete(long runId) {
+        io.execute(() -> fileFor(runId).delete());
+    }
+
+    public void clear() {
+        io.deleteAll(directory, EXTENSION);
+    }
+
+    private File fileFor(long runId) {
+        return new File(directory, runId + EXTENSION);
+    }
+
+    private void write(long runId, TrackBuffer track) throws IOException {
+        byte[] payload = TrackCodec.encode(track);
+        FileStoreIo.writeAtomically(fileFor(runId), out -> {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(payload.length);
+            out.write(payload);
+        });
+    }
+
+    private TrackBuffer read(long runId) throws IOException {
+        File file = fileFor(runId);
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a track file: " + file);
+            }
+            short version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported track version " + version + ": " + file);
+            }
+            byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+            return TrackCodec.decode(payload);
+        }
+    }
+}
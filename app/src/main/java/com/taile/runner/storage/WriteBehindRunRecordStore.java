@@ -0,0 +1,292 @@
+package com.taile.runner.storage;
+
+import com.taile.runner.models.RunRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind decorator: mutations are queued on the caller's thread and applied to
+ * the wrapped engine by a single background writer.
+ *
+ * The first queued mutation arms a flush deadline; everything queued before it fires
+ * goes out as one batch. Within a batch consecutive appends become one
+ * {@link RunRecordStore#appendAll(List)} call, an append followed by a delete of the
+ * same id cancels out, and a clear drops whatever was queued before it.
+ */
+public class WriteBehindRunRecordStore implements RunRecordStore {
+
+    public static final long DEFAULT_FLUSH_DELAY_MS = 250;
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private static final int OP_APPEND = 0;
+    private static final int OP_DELETE = 1;
+    private static final int OP_CLEAR = 2;
+
+    private static final class Mutation {
+        final int op;
+        final RunRecord record;
+        final long id;
+        final long enqueuedAtNanos;
+
+        Mutation(int op, RunRecord record, long id) {
+            this.op = op;
+            this.record = record;
+            this.id = id;
+            this.enqueuedAtNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Point-in-time view of the writer's counters.
+     */
+    public static final class Stats {
+        public final int queueDepth;
+        public final long enqueued;
+        public final long applied;
+        public final long coalesced;
+        public final long batches;
+        public final long lastLatencyMs;
+        public final long maxLatencyMs;
+        public final long avgLatencyMs;
+
+        Stats(int queueDepth, long enqueued, long applied, long coalesced, long batches,
+              long lastLatencyMs, long maxLatencyMs, long avgLatencyMs) {
+            this.queueDepth = queueDepth;
+            this.enqueued = enqueued;
+            this.applied = applied;
+            this.coalesced = coalesced;
+            this.batches = batches;
+            this.lastLatencyMs = lastLatencyMs;
+            this.maxLatencyMs = maxLatencyMs;
+            this.avgLatencyMs = avgLatencyMs;
+        }
+
+        @Override
+        public String toString() {
+            return "queue=" + queueDepth + " enqueued=" + enqueued + " applied=" + applied
+                    + " coalesced=" + coalesced + " batches=" + batches
+                    + " latency(last/avg/max)=" + lastLatencyMs + "/" + avgLatencyMs + "/" + maxLatencyMs + "ms";
+        }
+    }
+
+    private final RunRecordStore delegate;
+    private final long flushDelayMs;
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "run-store-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by this
+    private List<Mutation> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledDrain;
+    private long lastId = -1;
+
+    // Counters
+    private final AtomicLong enqueuedCount = new AtomicLong();
+    private final AtomicLong appliedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong lastLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+
+    public WriteBehindRunRecordStore(RunRecordStore delegate) {
+        this(delegate, DEFAULT_FLUSH_DELAY_MS);
+    }
+
+    public WriteBehindRunRecordStore(RunRecordStore delegate, long flushDelayMs) {
+        this.delegate = delegate;
+        this.flushDelayMs = flushDelayMs;
+    }
+
+    @Override
+    public List<RunRecord> loadAll() {
+        flush();
+        return delegate.loadAll();
+    }
+
+    @Override
+    public synchronized long getLastId() {
+        if (lastId < 0) {
+            lastId = delegate.getLastId();
+        }
+        return lastId;
+    }
+
+    @Override
+    public synchronized void append(RunRecord record) {
+        lastId = Math.max(getLastId(), record.getId());
+        enqueue(new Mutation(OP_APPEND, record, record.getId()));
+    }
+
+    @Override
+    public synchronized void delete(long id) {
+        enqueue(new Mutation(OP_DELETE, null, id));
+    }
+
+    @Override
+    public synchronized void clear() {
+        lastId = 0;
+        enqueue(new Mutation(OP_CLEAR, null, 0));
+    }
+
+    /**
+     * Blocks until every mutation queued before this call has reached the wrapped engine.
+     */
+    public void flush() {
+        try {
+            writer.submit(this::drain).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Like {@link #flush()} but gives up after {@code timeoutMs}.
+     *
+     * @return true if the queue was drained in time
+     */
+    public boolean flush(long timeoutMs) {
+        Future<?> drained = writer.submit(this::drain);
+        try {
+            drained.get(timeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            return false;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    public synchronized int getQueueDepth() {
+        return pending.size();
+    }
+
+    public Stats getStats() {
+        long applied = appliedCount.get();
+        long batches = batchCount.get();
+        return new Stats(
+                getQueueDepth(),
+                enqueuedCount.get(),
+                applied,
+                coalescedCount.get(),
+                batches,
+                TimeUnit.NANOSECONDS.toMillis(lastLatencyNanos.get()),
+                TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get()),
+                batches > 0 ? TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.get() / batches) : 0);
+    }
+
+    private void enqueue(Mutation mutation) {
+        pending.add(mutation);
+        enqueuedCount.incrementAndGet();
+
+        if (pending.size() >= MAX_BATCH_SIZE) {
+            if (scheduledDrain != null) {
+                scheduledDrain.cancel(false);
+            }
+            scheduledDrain = writer.schedule(this::drain, 0, TimeUnit.MILLISECONDS);
+        } else if (scheduledDrain == null) {
+            // The deadline is armed by the first mutation only, later ones ride along
+            scheduledDrain = writer.schedule(this::drain, flushDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Runs on the writer thread only.
+     */
+    private void drain() {
+        List<Mutation> batch;
+        synchronized (this) {
+            if (scheduledDrain != null) {
+                scheduledDrain.cancel(false);
+                scheduledDrain = null;
+            }
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new ArrayList<>();
+        }
+
+        int received = batch.size();
+        // The oldest mutation of the batch waited the longest
+        long oldestEnqueuedAt = batch.get(0).enqueuedAtNanos;
+        batch = coalesce(batch);
+        coalescedCount.addAndGet(received - batch.size());
+
+        List<RunRecord> appends = new ArrayList<>();
+        for (Mutation mutation : batch) {
+            if (mutation.op == OP_APPEND) {
+                appends.add(mutation.record);
+                continue;
+            }
+            if (!appends.isEmpty()) {
+                delegate.appendAll(appends);
+                appends = new ArrayList<>();
+            }
+            if (mutation.op == OP_DELETE) {
+                delegate.delete(mutation.id);
+            } else {
+                delegate.clear();
+            }
+        }
+        if (!appends.isEmpty()) {
+            delegate.appendAll(appends);
+        }
+
+        long latency = System.nanoTime() - oldestEnqueuedAt;
+        lastLatencyNanos.set(latency);
+        totalLatencyNanos.addAndGet(latency);
+        if (latency > maxLatencyNanos.get()) {
+            maxLatencyNanos.set(latency);
+        }
+        appliedCount.addAndGet(received);
+        batchCount.incrementAndGet();
+    }
+
+    private static List<Mutation> coalesce(List<Mutation> batch) {
+        // Nothing before the last clear matters
+        int start = 0;
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            if (batch.get(i).op == OP_CLEAR) {
+                start = i;
+                break;
+            }
+        }
+        List<Mutation> result = new ArrayList<>(batch.subList(start, batch.size()));
+
+        // A record appended and deleted within the same batch never hits storage
+        for (int i = result.size() - 1; i >= 0; i--) {
+            Mutation mutation = result.get(i);
+            if (mutation.op != OP_DELETE) {
+                continue;
+            }
+            for (int j = i - 1; j >= 0; j--) {
+                Mutation earlier = result.get(j);
+                if (earlier.op == OP_APPEND && earlier.id == mutation.id) {
+                    result.remove(i);
+                    result.remove(j);
+                    i--;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,189 @@
+package com.taile.runner.track;
+
+/**
+ * Keeps a live route drawable as it grows: points that add no visible shape are
+ * dropped as they arrive, in O(1) per point and without allocating.
+ *
+ * The route is a list of kept points whose last entry, the tail, is the latest
+ * point. From the last kept point before the tail, every dropped point allows a cone
+ * of directions within which a segment passes closer than the tolerance to it. A
+ * new point inside all those cones, and not heading back, simply replaces the tail;
+ * otherwise the tail is kept and the new point starts the next segment. Every dropped
+ * point therefore lies within the tolerance of the drawn line.
+ *
+ * When the kept points reach the limit, the tolerance doubles and the points are
+ * decimated again in place, so long runs stay bounded at a coarser detail.
+ * Distances use a flat local approximation, plenty for meters-scale tolerances.
+ * Not thread-safe.
+ */
+public class RouteDecimator {
+
+    /**
+     * Results of {@link #add}: what changed in the point list.
+     */
+    public static final int TAIL_MOVED = 0;
+    public static final int POINT_ADDED = 1;
+    public static final int COMPACTED = 2;
+
+    public static final double DEFAULT_TOLERANCE_METERS = 2.0;
+    public static final int DEFAULT_MAX_POINTS = 4000;
+
+    private static final double METERS_PER_DEGREE = 111_320;
+
+    private final double initialTolerance;
+    private final int maxPoints;
+    private double tolerance;
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private int size = 0;
+    private double metersPerDegreeLon;
+
+    // Directions from the anchor (last kept point before the tail) still allowed,
+    // relative to the reference bearing; unbounded until a point constrains them
+    private boolean coneBounded;
+    private double referenceBearing;
+    private double coneLow;
+    private double coneHigh;
+    // Farthest distance from the anchor seen in the current segment
+    private double reach;
+
+    public RouteDecimator() {
+        this(DEFAULT_TOLERANCE_METERS, DEFAULT_MAX_POINTS);
+    }
+
+    public RouteDecimator(double toleranceMeters, int maxPoints) {
+        this.initialTolerance = toleranceMeters;
+        this.tolerance = toleranceMeters;
+        this.maxPoints = Math.max(3, maxPoints);
+        latitudes = new double[this.maxPoints + 1];
+        longitudes = new double[this.maxPoints + 1];
+    }
+
+    public void clear() {
+        size = 0;
+        tolerance = initialTolerance;
+    }
+
+    /**
+     * @return {@link #TAIL_MOVED} if only the last point changed, {@link #POINT_ADDED}
+     *         if a point was appended, {@link #COMPACTED} if earlier points changed too
+     */
+    public int add(double latitude, double longitude) {
+        if (size == 0) {
+            metersPerDegreeLon = METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude));
+        }
+        if (!push(latitude, longitude)) {
+            return TAIL_MOVED;
+        }
+        if (size > maxPoints) {
+            compact();
+            return COMPACTED;
+        }
+        return POINT_ADDED;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getLatitude(int index) {
+        return latitudes[index];
+    }
+
+    public double getLongitude(int index) {
+        return longitudes[index];
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * @return true if the point was appended, false if it replaced the tail
+     */
+    private boolean push(double latitude, double longitude) {
+        if (size >= 2) {
+            int anchor = size - 2;
+            double x = (longitude - longitudes[anchor]) * metersPerDegreeLon;
+            double y = (latitude - latitudes[anchor]) * METERS_PER_DEGREE;
+            double distance = Math.sqrt(x * x + y * y);
+            if (distance >= reach - tolerance && insideCone(x, y, distance)) {
+                narrowCone(x, y, distance);
+                reach = Math.max(reach, distance);
+                latitudes[size - 1] = latitude;
+                longitudes[size - 1] = longitude;
+                return false;
+            }
+        }
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        size++;
+        // The previous tail (or the first point) anchors a new segment
+        coneBounded = false;
+        reach = 0;
+        if (size >= 2) {
+            int anchor = size - 2;
+            double x = (longitude - longitudes[anchor]) * metersPerDegreeLon;
+            double y = (latitude - latitudes[anchor]) * METERS_PER_DEGREE;
+            double distance = Math.sqrt(x * x + y * y);
+            narrowCone(x, y, distance);
+            reach = distance;
+        }
+        return true;
+    }
+
+    private boolean insideCone(double x, double y, double distance) {
+        if (!coneBounded || distance <= tolerance) {
+            return true;
+        }
+        double angle = relativeAngle(x, y);
+        return angle >= coneLow && angle <= coneHigh;
+    }
+
+    /**
+     * Restricts the cone to directions passing within the tolerance of (x, y).
+     */
+    private void narrowCone(double x, double y, double distance) {
+        if (distance <= tolerance) {
+            return;
+        }
+        double halfWidth = Math.asin(tolerance / distance);
+        if (!coneBounded) {
+            coneBounded = true;
+            referenceBearing = Math.atan2(y, x);
+            coneLow = -halfWidth;
+            coneHigh = halfWidth;
+            return;
+        }
+        double angle = relativeAngle(x, y);
+        coneLow = Math.max(coneLow, angle - halfWidth);
+        coneHigh = Math.min(coneHigh, angle + halfWidth);
+    }
+
+    private double relativeAngle(double x, double y) {
+        double angle = Math.atan2(y, x) - referenceBearing;
+        if (angle > Math.PI) {
+            angle -= 2 * Math.PI;
+        } else if (angle < -Math.PI) {
+            angle += 2 * Math.PI;
+        }
+        return angle;
+    }
+
+    /**
+     * Re-decimates the kept points at twice the tolerance until the route fits
+     * comfortably. Runs in place: a point is always written at or before the index it
+     * is read from.
+     */
+    private void compact() {
+        do {
+            tolerance *= 2;
+            int count = size;
+            size = 0;
+            for (int i = 0; i < count; i++) {
+                push(latitudes[i], longitudes[i]);
+            }
+        } while (size > maxPoints * 3 / 4);
+    }
+}
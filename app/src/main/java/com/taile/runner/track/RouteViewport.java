@@ -0,0 +1,45 @@
+package com.taile.runner.track;
+
+/**
+ * Decides when the live map should follow the runner: the camera stays put while
+ * the position is inside the visible area minus a margin on every side, so it pans
+ * once in a while instead of animating on every fix.
+ */
+public final class RouteViewport {
+
+    // Fraction of the visible width and height kept clear on each side
+    public static final double DEFAULT_MARGIN = 0.2;
+
+    private RouteViewport() {
+    }
+
+    /**
+     * @param south  southern edge of the visible area, degrees
+     * @param west   western edge; greater than {@code east} when the area spans the
+     *               antimeridian
+     * @param margin fraction of the span excluded on each side, 0 to 0.5
+     * @return true if the point lies inside the visible area shrunk by the margin
+     */
+    public static boolean isInsideMargin(double latitude, double longitude,
+                                         double south, double west, double north, double east,
+                                         double margin) {
+        double latSpan = north - south;
+        if (latSpan <= 0) {
+            return false;
+        }
+        if (latitude < south + latSpan * margin || latitude > north - latSpan * margin) {
+            return false;
+        }
+
+        double lonSpan = east - west;
+        if (lonSpan < 0) {
+            lonSpan += 360;
+        }
+        // Offset east of the western edge, unwrapped across the antimeridian
+        double offset = longitude - west;
+        if (offset < 0) {
+            offset += 360;
+        }
+        return offset >= lonSpan * margin && offset <= lonSpan * (1 - margin);
+    }
+}
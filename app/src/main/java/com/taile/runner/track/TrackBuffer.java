@@ -0,0 +1,152 @@
+package com.taile.runner.track;
+
+import java.util.Arrays;
+
+/**
+ * Growable GPS track held in parallel primitive arrays.
+ *
+ * Coordinates are stored as int degrees * 1e7 (about 1 cm resolution), times as
+ * epoch milliseconds, accuracy and speed as floats. Appending a point allocates
+ * nothing except when the arrays have to grow, which happens by doubling.
+ * Not thread-safe; the tracking service owns one buffer per run.
+ */
+public class TrackBuffer {
+
+    public static final double E7 = 1e7;
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private int[] latE7;
+    private int[] lonE7;
+    private long[] times;
+    private float[] accuracies;
+    private float[] speeds;
+    private int size = 0;
+
+    public TrackBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public TrackBuffer(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        latE7 = new int[capacity];
+        lonE7 = new int[capacity];
+        times = new long[capacity];
+        accuracies = new float[capacity];
+        speeds = new float[capacity];
+    }
+
+    public void add(double latitude, double longitude, long timeMillis, float accuracy, float speed) {
+        addE7(toE7(latitude), toE7(longitude), timeMillis, accuracy, speed);
+    }
+
+    public void addE7(int latitudeE7, int longitudeE7, long timeMillis, float accuracy, float speed) {
+        if (size == times.length) {
+            grow(size * 2);
+        }
+        latE7[size] = latitudeE7;
+        lonE7[size] = longitudeE7;
+        times[size] = timeMillis;
+        accuracies[size] = accuracy;
+        speeds[size] = speed;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int getLatitudeE7(int index) {
+        checkIndex(index);
+        return latE7[index];
+    }
+
+    public int getLongitudeE7(int index) {
+        checkIndex(index);
+        return lonE7[index];
+    }
+
+    public double getLatitude(int index) {
+        return getLatitudeE7(index) / E7;
+    }
+
+    public double getLongitude(int index) {
+        return getLongitudeE7(index) / E7;
+    }
+
+    public long getTime(int index) {
+        checkIndex(index);
+        return times[index];
+    }
+
+    public float getAccuracy(int index) {
+        checkIndex(index);
+        return accuracies[index];
+    }
+
+    public float getSpeed(int index) {
+        checkIndex(index);
+        return speeds[index];
+    }
+
+    /**
+     * @return a new buffer holding the points in [{@code from}, {@code to})
+     */
+    public TrackBuffer copyRange(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range " + from + ".." + to + ", size " + size);
+        }
+        int count = to - from;
+        TrackBuffer copy = new TrackBuffer(count);
+        System.arraycopy(latE7, from, copy.latE7, 0, count);
+        System.arraycopy(lonE7, from, copy.lonE7, 0, count);
+        System.arraycopy(times, from, copy.times, 0, count);
+        System.arraycopy(accuracies, from, copy.accuracies, 0, count);
+        System.arraycopy(speeds, from, copy.speeds, 0, count);
+        copy.size = count;
+        return copy;
+    }
+
+    /**
+     * Makes room for at least {@code capacity} points without further growth.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > times.length) {
+            grow(capacity);
+        }
+    }
+
+    /**
+     * Releases unused capacity, e.g. once a run has finished recording.
+     */
+    public void trimToSize() {
+        if (size < times.length) {
+            grow(Math.max(1, size));
+        }
+    }
+
+    public static int toE7(double degrees) {
+        return (int) Math.round(degrees * E7);
+    }
+
+    private void grow(int capacity) {
+        latE7 = Arrays.copyOf(latE7, capacity);
+        lonE7 = Arrays.copyOf(lonE7, capacity);
+        times = Arrays.copyOf(times, capacity);
+        accuracies = Arrays.copyOf(accuracies, capacity);
+        speeds = Arrays.copyOf(speeds, capacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.taile.runner.track;
+
+/**
+ * Levels of detail of a stored track for drawing it on the map, one per integer
+ * camera zoom, built once from {@link TrackSimplifier} importances.
+ *
+ * The level for a zoom keeps the points needed for the line to stay within
+ * {@link #TOLERANCE_DP} of the full track on screen; picking it is an array lookup.
+ * Consecutive zooms with the same point count share one index array.
+ */
+public class TrackLod {
+
+    public static final int MIN_ZOOM = 2;
+    public static final int MAX_ZOOM = 21;
+    // Allowed on-screen deviation from the full track
+    public static final double TOLERANCE_DP = 1.0;
+    // Ground size of one dp at zoom 0 on the equator (256 dp world)
+    private static final double EQUATOR_METERS_PER_DP = 156_543.03392;
+
+    private final TrackBuffer track;
+    private final double[] tolerances;
+    private final int[][] levels;
+
+    private TrackLod(TrackBuffer track, double[] tolerances, int[][] levels) {
+        this.track = track;
+        this.tolerances = tolerances;
+        this.levels = levels;
+    }
+
+    /**
+     * Simplifies {@code track} for every zoom. Takes a few milliseconds for long runs;
+     * call from a worker thread.
+     */
+    public static TrackLod build(TrackBuffer track) {
+        double[] importance = TrackSimplifier.computeImportance(track);
+        double latitude = track.isEmpty() ? 0 : track.getLatitude(0);
+        int count = MAX_ZOOM - MIN_ZOOM + 1;
+        double[] tolerances = new double[count];
+        int[][] levels = new int[count][];
+        for (int level = 0; level < count; level++) {
+            tolerances[level] = metersPerDp(latitude, MIN_ZOOM + level) * TOLERANCE_DP;
+            int[] indices = TrackSimplifier.select(importance, tolerances[level]);
+            if (level > 0 && levels[level - 1].length == indices.length) {
+                // Same points as the coarser level; levels are nested
+                indices = levels[level - 1];
+            }
+            levels[level] = indices;
+        }
+        return new TrackLod(track, tolerances, levels);
+    }
+
+    public static double metersPerDp(double latitude, int zoom) {
+        return EQUATOR_METERS_PER_DP * Math.cos(Math.toRadians(latitude)) / (1L << zoom);
+    }
+
+    public TrackBuffer getTrack() {
+        return track;
+    }
+
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    /**
+     * Level for a camera zoom; fractional zooms take the finer neighbor.
+     */
+    public int levelForZoom(float zoom) {
+        int level = (int) Math.ceil(zoom) - MIN_ZOOM;
+        return Math.max(0, Math.min(levels.length - 1, level));
+    }
+
+    /**
+     * @return indices into {@link #getTrack()} of the level's points, in track order;
+     *         shared, do not modify
+     */
+    public int[] getPoints(int level) {
+        return levels[level];
+    }
+
+    /**
+     * @return maximum deviation of the level from the full track, in meters
+     */
+    public double getTolerance(int level) {
+        return tolerances[level];
+    }
+}
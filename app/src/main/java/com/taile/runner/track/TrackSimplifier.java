@@ -0,0 +1,120 @@
+package com.taile.runner.track;
+
+/**
+ * Douglas–Peucker simplification run once for every tolerance at the same time.
+ *
+ * Instead of a point list for one tolerance, {@link #computeImportance} gives each
+ * point the largest tolerance at which Douglas–Peucker still keeps it: its distance
+ * to the segment it split, capped by the importance of the point that split the
+ * enclosing range. Keeping the points whose importance exceeds a tolerance then
+ * yields exactly the Douglas–Peucker result for that tolerance, so every dropped
+ * point lies within it of the simplified line.
+ *
+ * Distances are in meters on a flat local plane around the first point, accurate
+ * well beyond the length of a run.
+ */
+public final class TrackSimplifier {
+
+    private static final double METERS_PER_DEGREE = 111_320;
+
+    private TrackSimplifier() {
+    }
+
+    /**
+     * @return per-point importance in meters; the first and last point are
+     *         {@link Double#POSITIVE_INFINITY}
+     */
+    public static double[] computeImportance(TrackBuffer track) {
+        int n = track.size();
+        double[] importance = new double[n];
+        if (n == 0) {
+            return importance;
+        }
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        double lat0 = track.getLatitude(0);
+        double lon0 = track.getLongitude(0);
+        double metersPerDegreeLon = METERS_PER_DEGREE * Math.cos(Math.toRadians(lat0));
+        for (int i = 0; i < n; i++) {
+            xs[i] = (track.getLongitude(i) - lon0) * metersPerDegreeLon;
+            ys[i] = (track.getLatitude(i) - lat0) * METERS_PER_DEGREE;
+        }
+
+        importance[0] = Double.POSITIVE_INFINITY;
+        importance[n - 1] = Double.POSITIVE_INFINITY;
+        // Ranges still to split, as (first, last) pairs; explicit so long tracks cannot
+        // overflow the call stack. Each split leaves at most one more range than it took.
+        int[] stack = new int[2 * Math.max(2, n)];
+        int top = 0;
+        if (n > 2) {
+            stack[top++] = 0;
+            stack[top++] = n - 1;
+        }
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            double cap = Math.min(importance[first], importance[last]);
+
+            double ax = xs[first];
+            double ay = ys[first];
+            double dx = xs[last] - ax;
+            double dy = ys[last] - ay;
+            double lengthSq = dx * dx + dy * dy;
+            int farthest = first + 1;
+            double maxSq = -1;
+            for (int i = first + 1; i < last; i++) {
+                double distanceSq = segmentDistanceSq(xs[i] - ax, ys[i] - ay, dx, dy, lengthSq);
+                if (distanceSq > maxSq) {
+                    maxSq = distanceSq;
+                    farthest = i;
+                }
+            }
+            importance[farthest] = Math.min(Math.sqrt(maxSq), cap);
+
+            if (farthest - first > 1) {
+                stack[top++] = first;
+                stack[top++] = farthest;
+            }
+            if (last - farthest > 1) {
+                stack[top++] = farthest;
+                stack[top++] = last;
+            }
+        }
+        return importance;
+    }
+
+    /**
+     * @return indices, in track order, of the points kept at {@code tolerance} meters
+     */
+    public static int[] select(double[] importance, double tolerance) {
+        int count = 0;
+        for (double value : importance) {
+            if (value > tolerance) {
+                count++;
+            }
+        }
+        int[] indices = new int[count];
+        int k = 0;
+        for (int i = 0; i < importance.length; i++) {
+            if (importance[i] > tolerance) {
+                indices[k++] = i;
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Squared distance from (px, py) to the segment from the origin to (dx, dy).
+     */
+    private static double segmentDistanceSq(double px, double py, double dx, double dy, double lengthSq) {
+        double t = lengthSq > 0 ? (px * dx + py * dy) / lengthSq : 0;
+        if (t < 0) {
+            t = 0;
+        } else if (t > 1) {
+            t = 1;
+        }
+        double ex = px - t * dx;
+        double ey = py - t * dy;
+        return ex * ex + ey * ey;
+    }
+}
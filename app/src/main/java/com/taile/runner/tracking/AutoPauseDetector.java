@@ -0,0 +1,112 @@
+package com.taile.runner.tracking;
+
+/**
+ * Detects stops (traffic lights, tying a shoe) from speed and step cadence and
+ * accounts moving time.
+ *
+ * A stop needs both a low speed, or none known, and a low cadence for
+ * {@link #STOP_DWELL_MS}; either signal clearly above its resume level for
+ * {@link #RESUME_DWELL_MS} resumes. A single contrary sample (GPS jitter) does not
+ * restart the dwell. Both transitions are back-dated to when the evidence started,
+ * so moving time does not include the detection delay.
+ *
+ * Pure Java; feed samples in time order with monotonic millisecond timestamps.
+ * A sample older than the previous one still counts as evidence but adds no time.
+ */
+public class AutoPauseDetector {
+
+    static final float STOP_SPEED = 0.5f; // m/s
+    static final float RESUME_SPEED = 1.0f;
+    static final float STOP_CADENCE = 20f; // steps/min
+    static final float RESUME_CADENCE = 60f;
+
+    static final long STOP_DWELL_MS = 6_000;
+    static final long RESUME_DWELL_MS = 2_000;
+    // A speed is used as evidence this long after it was measured
+    static final long SPEED_FRESH_MS = 10_000;
+    // Consecutive contrary samples that discard the evidence gathered so far
+    static final int CONTRARY_SAMPLES_TO_RESET = 2;
+
+    private boolean paused = false;
+    private long evidenceSince = -1;
+    private int contrarySamples = 0;
+    private long lastTime = -1;
+    private long movingTime = 0;
+    private int pauseCount = 0;
+
+    private float lastSpeed = Float.NaN;
+    private long lastSpeedTime = -1;
+
+    public void reset() {
+        paused = false;
+        evidenceSince = -1;
+        contrarySamples = 0;
+        lastTime = -1;
+        movingTime = 0;
+        pauseCount = 0;
+        lastSpeed = Float.NaN;
+        lastSpeedTime = -1;
+    }
+
+    /**
+     * @param speed   m/s, or NaN if this sample carries no speed (a step event)
+     * @param cadence steps per minute at {@code timeMillis}
+     * @return true while paused
+     */
+    public boolean update(long timeMillis, float speed, float cadence) {
+        if (!Float.isNaN(speed) && timeMillis >= lastSpeedTime) {
+            lastSpeed = speed;
+            lastSpeedTime = timeMillis;
+        }
+        if (lastTime >= 0 && timeMillis > lastTime && !paused) {
+            movingTime += timeMillis - lastTime;
+        }
+        lastTime = Math.max(lastTime, timeMillis);
+
+        boolean speedKnown = lastSpeedTime >= 0 && lastTime - lastSpeedTime <= SPEED_FRESH_MS;
+        boolean switching;
+        if (paused) {
+            switching = (speedKnown && lastSpeed >= RESUME_SPEED) || cadence >= RESUME_CADENCE;
+        } else {
+            switching = (!speedKnown || lastSpeed < STOP_SPEED) && cadence < STOP_CADENCE;
+        }
+
+        if (!switching) {
+            if (++contrarySamples >= CONTRARY_SAMPLES_TO_RESET) {
+                evidenceSince = -1;
+            }
+            return paused;
+        }
+        contrarySamples = 0;
+        if (evidenceSince < 0) {
+            evidenceSince = timeMillis;
+        }
+        long evidenceAge = lastTime - evidenceSince;
+        if (paused && evidenceAge >= RESUME_DWELL_MS) {
+            paused = false;
+            movingTime += evidenceAge;
+            evidenceSince = -1;
+        } else if (!paused && evidenceAge >= STOP_DWELL_MS) {
+            paused = true;
+            pauseCount++;
+            movingTime -= evidenceAge;
+            evidenceSince = -1;
+        }
+        return paused;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * @return milliseconds spent moving up to the latest sample
+     */
+    public long getMovingTime() {
+        return movingTime;
+    }
+
+    public int getPauseCount() {
+        return pauseCount;
+    }
+}
@@ -0,0 +1,117 @@
+package com.taile.runner.tracking;
+
+/**
+ * Cadence (steps/min) over a sliding time window, from cumulative step counts.
+ *
+ * Samples are kept in a fixed ring of (time, total steps). A sample arriving
+ * within {@code window / capacity} of the previous one replaces it, so the ring spans
+ * the whole window however fast step events come in, e.g. when a batch from the
+ * sensor hub delivers one event per step. The highest cadence measured over a
+ * sufficiently long span is kept as the peak.
+ *
+ * Pure Java; times are monotonic milliseconds supplied by the caller.
+ */
+public class CadenceMeter {
+
+    private final long windowMillis;
+    // Shortest span a cadence is measured over, so a single burst of steps reads low
+    private final long minSpanMillis;
+    private final long sampleSpacing;
+    private final int capacity;
+
+    private final long[] times;
+    private final int[] counts;
+    private int head = 0; // next slot to write
+    private int size = 0;
+
+    private float peak = 0f;
+
+    public CadenceMeter(long windowMillis, long minSpanMillis, int capacity) {
+        this.windowMillis = windowMillis;
+        this.minSpanMillis = minSpanMillis;
+        this.capacity = capacity;
+        this.sampleSpacing = windowMillis / capacity;
+        times = new long[capacity];
+        counts = new int[capacity];
+    }
+
+    public void reset() {
+        head = 0;
+        size = 0;
+        peak = 0f;
+    }
+
+    /**
+     * @param totalSteps steps since the start of the run
+     */
+    public void onSteps(long timeMillis, int totalSteps) {
+        int newest = (head - 1 + capacity) % capacity;
+        if (size > 1 && timeMillis - times[(newest - 1 + capacity) % capacity] < sampleSpacing) {
+            // Too close to the sample before the newest: move the newest forward instead
+            times[newest] = timeMillis;
+            counts[newest] = totalSteps;
+        } else {
+            times[head] = timeMillis;
+            counts[head] = totalSteps;
+            head = (head + 1) % capacity;
+            if (size < capacity) {
+                size++;
+            }
+        }
+        updatePeak(timeMillis);
+    }
+
+    /**
+     * @return steps per minute over the window ending at {@code nowMillis}, 0 once
+     *         steps have stopped for a whole window
+     */
+    public float getCadence(long nowMillis) {
+        if (size == 0) {
+            return 0f;
+        }
+        int newest = (head - 1 + capacity) % capacity;
+        int oldest = oldestInWindow(nowMillis);
+        if (oldest < 0) {
+            return 0f;
+        }
+        long span = Math.max(times[newest] - times[oldest], minSpanMillis);
+        return (counts[newest] - counts[oldest]) * 60_000f / span;
+    }
+
+    /**
+     * @return the highest cadence seen over at least half a window, 0 if none yet
+     */
+    public float getPeakCadence() {
+        return peak;
+    }
+
+    /**
+     * @return index of the oldest sample within the window, -1 if the newest is
+     *         already outside it
+     */
+    private int oldestInWindow(long nowMillis) {
+        int newest = (head - 1 + capacity) % capacity;
+        long windowStart = nowMillis - windowMillis;
+        if (times[newest] < windowStart) {
+            return -1;
+        }
+        int oldest = newest;
+        for (int n = 1; n < size; n++) {
+            int i = (newest - n + capacity) % capacity;
+            if (times[i] < windowStart) {
+                break;
+            }
+            oldest = i;
+        }
+        return oldest;
+    }
+
+    private void updatePeak(long nowMillis) {
+        int newest = (head - 1 + capacity) % capacity;
+        int oldest = oldestInWindow(nowMillis);
+        if (oldest < 0 || times[newest] - times[oldest] < windowMillis / 2) {
+            return;
+        }
+        peak = Math.max(peak, getCadence(nowMillis));
+    }
+}
@@ -0,0 +1,258 @@
+package com.taile.runner.tracking;
+
+/**
+ * Run distance from GPS, with the step counter filling in where GPS cannot be
+ * trusted.
+ *
+ * Distance advances in segments between accepted GPS fixes. A segment with accurate
+ * endpoints and no gap counts its GPS length and also calibrates the stride length
+ * (meters per step). A segment that spans an outage, a rejected fix or an
+ * inaccurate endpoint counts the distance its steps imply at the calibrated stride;
+ * the straight line between the fixes is used as a lower bound. While an outage is
+ * ongoing the steps taken so far are reported provisionally, so the distance keeps
+ * moving in a tunnel.
+ *
+ * Fixes and steps can both arrive late in batches, so a fix is matched with the
+ * steps counted up to its own timestamp, interpolated from a short ring of
+ * (time, total steps) samples like {@link CadenceMeter}'s.
+ *
+ * Pure Java; times are monotonic milliseconds supplied by the caller.
+ */
+public class DistanceFusion {
+
+    // Longer than any sampling interval, so only a missing signal counts as a gap
+    static final long MAX_SEGMENT_GAP_MS = 12_000;
+    static final float GOOD_ACCURACY_M = 20f;
+    // Calibration uses stretches of good GPS at least this long
+    static final double CALIBRATION_METERS = 100;
+    static final float CALIBRATION_WEIGHT = 0.3f;
+    static final float MIN_STRIDE_M = 0.3f;
+    static final float MAX_STRIDE_M = 2.0f;
+    // Step history kept for matching fixes delivered late
+    static final long STEP_HISTORY_MS = 120_000;
+    static final int STEP_SAMPLES = 64;
+    private static final long STEP_SAMPLE_SPACING_MS = STEP_HISTORY_MS / STEP_SAMPLES;
+
+    private final float defaultStride;
+    private float stride;
+    private int calibrations = 0;
+
+    private double committedMeters = 0;
+    private double stepFilledMeters = 0;
+
+    private int totalSteps = 0;
+    private boolean hasSteps = false;
+    private final long[] stepTimes = new long[STEP_SAMPLES];
+    private final int[] stepCounts = new int[STEP_SAMPLES];
+    private int stepHead = 0; // next slot to write
+    private int stepSampleCount = 0;
+
+    // How late fixes may be delivered, which is waiting rather than an outage
+    private long deliveryDelayMs = 0;
+
+    // Last accepted fix
+    private boolean anchored = false;
+    private long anchorTime;
+    private int anchorSteps;
+    private float anchorAccuracy;
+    private boolean rejectedSinceAnchor = false;
+
+    // Good GPS distance and steps not yet used for calibration
+    private double calibrationMeters = 0;
+    private int calibrationSteps = 0;
+
+    public DistanceFusion(float defaultStride) {
+        this.defaultStride = defaultStride;
+        reset();
+    }
+
+    public void reset() {
+        stride = defaultStride;
+        calibrations = 0;
+        committedMeters = 0;
+        stepFilledMeters = 0;
+        totalSteps = 0;
+        hasSteps = false;
+        stepHead = 0;
+        stepSampleCount = 0;
+        anchored = false;
+        rejectedSinceAnchor = false;
+        calibrationMeters = 0;
+        calibrationSteps = 0;
+    }
+
+    /**
+     * @param delayMillis longest time fixes may be held back before delivery, e.g.
+     *                    while location updates are batched; 0 when they arrive live
+     */
+    public void setDeliveryDelay(long delayMillis) {
+        deliveryDelayMs = delayMillis;
+    }
+
+    /**
+     * @param timeMillis when the steps were counted, not when they were delivered
+     * @param steps      steps since the start of the run
+     */
+    public void onSteps(long timeMillis, int steps) {
+        totalSteps = steps;
+        hasSteps = true;
+        int newest = (stepHead - 1 + STEP_SAMPLES) % STEP_SAMPLES;
+        if (stepSampleCount > 1
+                && timeMillis - stepTimes[(newest - 1 + STEP_SAMPLES) % STEP_SAMPLES] < STEP_SAMPLE_SPACING_MS) {
+            // Too close to the sample before the newest: move the newest forward instead
+            stepTimes[newest] = timeMillis;
+            stepCounts[newest] = steps;
+        } else {
+            stepTimes[stepHead] = timeMillis;
+            stepCounts[stepHead] = steps;
+            stepHead = (stepHead + 1) % STEP_SAMPLES;
+            if (stepSampleCount < STEP_SAMPLES) {
+                stepSampleCount++;
+            }
+        }
+    }
+
+    /**
+     * Starts a new segment at an accepted fix without counting the GPS distance since
+     * the previous one, e.g. the first fix, or one taken while paused or after coarse
+     * sampling. Steps of an ongoing outage are still counted.
+     */
+    public void restart(long timeMillis, float accuracy) {
+        // The fix time is when GPS came back, however late the fix was delivered
+        double provisional = outageMeters(timeMillis, stepsAt(timeMillis), MAX_SEGMENT_GAP_MS);
+        committedMeters += provisional;
+        stepFilledMeters += provisional;
+        anchor(timeMillis, accuracy);
+    }
+
+    private void anchor(long timeMillis, float accuracy) {
+        anchored = true;
+        anchorTime = timeMillis;
+        anchorSteps = stepsAt(timeMillis);
+        anchorAccuracy = accuracy;
+        rejectedSinceAnchor = false;
+    }
+
+    /**
+     * A fix was discarded; the segment it belongs to is left to the steps.
+     */
+    public void onFixRejected() {
+        rejectedSinceAnchor = true;
+    }
+
+    /**
+     * Ends the current segment at an accepted fix.
+     *
+     * @param gpsMeters straight-line distance from the previous accepted fix
+     * @param accuracy  horizontal accuracy of this fix in meters
+     * @return meters added to the run distance for this segment
+     */
+    public double onFix(long timeMillis, double gpsMeters, float accuracy) {
+        if (!anchored) {
+            anchor(timeMillis, accuracy);
+            return 0;
+        }
+        int steps = Math.max(0, stepsAt(timeMillis) - anchorSteps);
+        boolean trusted = !rejectedSinceAnchor
+                && timeMillis - anchorTime <= MAX_SEGMENT_GAP_MS
+                && anchorAccuracy <= GOOD_ACCURACY_M && accuracy <= GOOD_ACCURACY_M;
+
+        double meters;
+        if (trusted || !hasSteps) {
+            meters = gpsMeters;
+            if (trusted && hasSteps) {
+                calibrate(gpsMeters, steps);
+            }
+        } else {
+            double stepMeters = steps * (double) stride;
+            meters = Math.max(stepMeters, gpsMeters);
+            stepFilledMeters += meters - gpsMeters;
+        }
+        committedMeters += meters;
+        anchor(timeMillis, accuracy);
+        return meters;
+    }
+
+    /**
+     * @return run distance in meters, including steps taken during an ongoing outage
+     */
+    public double getDistance(long nowMillis) {
+        return committedMeters + getProvisionalMeters(nowMillis);
+    }
+
+    /**
+     * @return meters implied by steps since the last fix if GPS has been missing for
+     *         longer than a segment gap plus the delivery delay, else 0
+     */
+    public double getProvisionalMeters(long nowMillis) {
+        return outageMeters(nowMillis, totalSteps, MAX_SEGMENT_GAP_MS + deliveryDelayMs);
+    }
+
+    private double outageMeters(long timeMillis, int steps, long maxGapMillis) {
+        if (!anchored || !hasSteps) {
+            return 0;
+        }
+        if (!rejectedSinceAnchor && timeMillis - anchorTime <= maxGapMillis) {
+            return 0;
+        }
+        return Math.max(0, steps - anchorSteps) * (double) stride;
+    }
+
+    /**
+     * @return total steps at {@code timeMillis}, interpolated between the samples
+     *         around it; the newest count once past the end of the history
+     */
+    private int stepsAt(long timeMillis) {
+        if (stepSampleCount == 0) {
+            return totalSteps;
+        }
+        int later = (stepHead - 1 + STEP_SAMPLES) % STEP_SAMPLES;
+        if (timeMillis >= stepTimes[later]) {
+            return stepCounts[later];
+        }
+        for (int n = 1; n < stepSampleCount; n++) {
+            int i = (later - 1 + STEP_SAMPLES) % STEP_SAMPLES;
+            if (stepTimes[i] <= timeMillis) {
+                long span = stepTimes[later] - stepTimes[i];
+                return stepCounts[i] + (int) Math.round(
+                        (stepCounts[later] - stepCounts[i]) * (double) (timeMillis - stepTimes[i]) / span);
+            }
+            later = i;
+        }
+        // Older than the history
+        return stepCounts[later];
+    }
+
+    /**
+     * @return meters added beyond the GPS straight lines by step-filled segments
+     */
+    public double getStepFilledMeters() {
+        return stepFilledMeters;
+    }
+
+    public float getStrideLength() {
+        return stride;
+    }
+
+    public int getCalibrationCount() {
+        return calibrations;
+    }
+
+    private void calibrate(double gpsMeters, int steps) {
+        calibrationMeters += gpsMeters;
+        calibrationSteps += steps;
+        if (calibrationMeters < CALIBRATION_METERS) {
+            return;
+        }
+        if (calibrationSteps > 0) {
+            float measured = (float) (calibrationMeters / calibrationSteps);
+            if (measured >= MIN_STRIDE_M && measured <= MAX_STRIDE_M) {
+                // The first measurement replaces the default; later ones are blended in
+                stride = calibrations == 0 ? measured : stride + CALIBRATION_WEIGHT * (measured - stride);
+                calibrations++;
+            }
+        }
+        calibrationMeters = 0;
+        calibrationSteps = 0;
+    }
+}
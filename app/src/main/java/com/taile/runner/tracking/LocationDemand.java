@@ -0,0 +1,101 @@
+package com.taile.runner.tracking;
+
+import com.google.android.gms.location.Priority;
+
+import java.util.Collection;
+
+/**
+ * What one consumer of {@link LocationHub} needs from the shared location
+ * subscription. The hub subscribes with the merge of all demands, i.e. the fastest
+ * rate and best accuracy anyone asked for, and thins the fixes out again for each
+ * consumer.
+ */
+public final class LocationDemand {
+
+    // Fixes arriving up to a tenth of the minimum interval early, at most this much,
+    // still pass; provider timing jitters around the requested interval
+    private static final long MAX_EARLY_NANOS = 500_000_000L;
+
+    public final long intervalMs;
+    // Fastest rate the consumer accepts fixes at
+    public final long minUpdateIntervalMs;
+    // One of the Priority constants; lower values are more accurate
+    public final int priority;
+    // Longest the provider may hold fixes back to deliver them in a batch, 0 for none
+    public final long maxUpdateDelayMs;
+
+    public LocationDemand(long intervalMs, long minUpdateIntervalMs, int priority, long maxUpdateDelayMs) {
+        this.intervalMs = intervalMs;
+        this.minUpdateIntervalMs = Math.min(minUpdateIntervalMs, intervalMs);
+        this.priority = priority;
+        this.maxUpdateDelayMs = maxUpdateDelayMs;
+    }
+
+    public LocationDemand(long intervalMs, int priority) {
+        this(intervalMs, intervalMs, priority, 0);
+    }
+
+    /**
+     * @return the demand satisfying all of {@code demands}, or null if there are none
+     */
+    public static LocationDemand merge(Collection<LocationDemand> demands) {
+        if (demands.isEmpty()) {
+            return null;
+        }
+        long interval = Long.MAX_VALUE;
+        long minUpdateInterval = Long.MAX_VALUE;
+        int priority = Priority.PRIORITY_PASSIVE;
+        long maxUpdateDelay = Long.MAX_VALUE;
+        for (LocationDemand demand : demands) {
+            interval = Math.min(interval, demand.intervalMs);
+            minUpdateInterval = Math.min(minUpdateInterval, demand.minUpdateIntervalMs);
+            priority = Math.min(priority, demand.priority);
+            maxUpdateDelay = Math.min(maxUpdateDelay, demand.maxUpdateDelayMs);
+        }
+        return new LocationDemand(interval, minUpdateInterval, priority, maxUpdateDelay);
+    }
+
+    /**
+     * Per-consumer rate limit on the shared stream.
+     *
+     * @param lastNanos elapsed-realtime time of the last fix passed on, or a negative
+     *                  value if none was
+     * @return true if a fix taken at {@code fixNanos} should be passed on
+     */
+    public boolean admits(long lastNanos, long fixNanos) {
+        if (lastNanos < 0) {
+            return true;
+        }
+        long minGapNanos = minUpdateIntervalMs * 1_000_000L;
+        return fixNanos - lastNanos >= minGapNanos - Math.min(minGapNanos / 10, MAX_EARLY_NANOS);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LocationDemand)) {
+            return false;
+        }
+        LocationDemand other = (LocationDemand) o;
+        return intervalMs == other.intervalMs
+                && minUpdateIntervalMs == other.minUpdateIntervalMs
+                && priority == other.priority
+                && maxUpdateDelayMs == other.maxUpdateDelayMs;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Long.hashCode(intervalMs);
+        result = 31 * result + Long.hashCode(minUpdateIntervalMs);
+        result = 31 * result + priority;
+        return 31 * result + Long.hashCode(maxUpdateDelayMs);
+    }
+
+    @Override
+    public String toString() {
+        return "every " + intervalMs + " ms (min " + minUpdateIntervalMs + "), priority " + priority
+                + ", delay " + maxUpdateDelayMs + " ms";
+    }
+}
@@ -0,0 +1,205 @@
+package com.taile.runner.tracking;
+
+import android.content.Context;
+import android.location.Location;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.tasks.Task;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Owns the app's one fused location subscription and multicasts its fixes.
+ *
+ * Each listener registers a {@link LocationDemand}; the provider is asked for the
+ * merge of all of them and re-requested only when that merge changes. Fixes are
+ * thinned out per listener to its own minimum interval and posted to its handler.
+ * The subscription is dropped when the last listener leaves. Obtain the hub with
+ * {@link #getInstance(Context)}.
+ */
+public class LocationHub {
+
+    /**
+     * Receives the fixes of one delivery in time order, on the handler given at
+     * subscription.
+     */
+    public interface Listener {
+        void onLocations(List<Location> locations);
+    }
+
+    private static final String TAG = "LocationHub";
+
+    private static LocationHub instance;
+
+    private final FusedLocationProviderClient fusedLocationClient;
+    private final HandlerThread deliveryThread;
+    private final Map<Listener, Subscription> subscriptions = new IdentityHashMap<>();
+    // Demand currently requested from the provider, null while unsubscribed
+    private LocationDemand activeDemand;
+    private int requestCount = 0;
+
+    private final LocationCallback locationCallback = new LocationCallback() {
+        @Override
+        public void onLocationResult(@NonNull LocationResult locationResult) {
+            dispatch(locationResult.getLocations());
+        }
+    };
+
+    private static final class Subscription {
+        final Listener listener;
+        final Handler handler;
+        LocationDemand demand;
+        // Elapsed-realtime time of the last fix passed on, -1 if none
+        long lastDeliveredNanos = -1;
+        // Cleared on unsubscribe so deliveries already posted are dropped
+        volatile boolean active = true;
+
+        Subscription(Listener listener, Handler handler, LocationDemand demand) {
+            this.listener = listener;
+            this.handler = handler;
+            this.demand = demand;
+        }
+    }
+
+    public static synchronized LocationHub getInstance(Context context) {
+        if (instance == null) {
+            instance = new LocationHub(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private LocationHub(Context context) {
+        fusedLocationClient = LocationServices.getFusedLocationProviderClient(context);
+        deliveryThread = new HandlerThread("location-hub");
+        deliveryThread.start();
+    }
+
+    /**
+     * Adds {@code listener}, or replaces its demand if it is already subscribed.
+     * Callers must hold the location permission.
+     */
+    public synchronized void subscribe(Listener listener, LocationDemand demand, Handler handler) {
+        Subscription subscription = subscriptions.get(listener);
+        if (subscription == null || subscription.handler != handler) {
+            if (subscription != null) {
+                subscription.active = false;
+            }
+            subscriptions.put(listener, new Subscription(listener, handler, demand));
+        } else {
+            subscription.demand = demand;
+        }
+        updateRequest();
+    }
+
+    public synchronized void unsubscribe(Listener listener) {
+        Subscription subscription = subscriptions.remove(listener);
+        if (subscription == null) {
+            return;
+        }
+        subscription.active = false;
+        updateRequest();
+    }
+
+    public synchronized boolean isSubscribed(Listener listener) {
+        return subscriptions.containsKey(listener);
+    }
+
+    /**
+     * Asks the provider to hand over fixes it is holding for a batch.
+     */
+    public synchronized void flush() {
+        if (activeDemand != null) {
+            fusedLocationClient.flushLocations();
+        }
+    }
+
+    /**
+     * Last known fix from the provider, without subscribing.
+     */
+    public Task<Location> getLastLocation() throws SecurityException {
+        return fusedLocationClient.getLastLocation();
+    }
+
+    /**
+     * @return how many times the provider subscription was (re)requested
+     */
+    public synchronized int getRequestCount() {
+        return requestCount;
+    }
+
+    private void updateRequest() {
+        List<LocationDemand> demands = new ArrayList<>(subscriptions.size());
+        for (Subscription subscription : subscriptions.values()) {
+            demands.add(subscription.demand);
+        }
+        LocationDemand merged = LocationDemand.merge(demands);
+        if (merged == null ? activeDemand == null : merged.equals(activeDemand)) {
+            return;
+        }
+        if (merged == null) {
+            fusedLocationClient.removeLocationUpdates(locationCallback);
+            activeDemand = null;
+            Log.d(TAG, "Location updates stopped");
+            return;
+        }
+        try {
+            // Replaces the previous request for the same callback
+            fusedLocationClient.requestLocationUpdates(buildLocationRequest(merged),
+                    locationCallback, deliveryThread.getLooper());
+            activeDemand = merged;
+            requestCount++;
+            Log.d(TAG, "Location updates " + merged + " for " + subscriptions.size() + " listeners");
+        } catch (SecurityException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static LocationRequest buildLocationRequest(LocationDemand demand) {
+        LocationRequest.Builder builder = new LocationRequest.Builder(demand.intervalMs)
+                .setPriority(demand.priority)
+                .setMinUpdateIntervalMillis(demand.minUpdateIntervalMs);
+        if (demand.maxUpdateDelayMs > 0) {
+            builder.setMaxUpdateDelayMillis(demand.maxUpdateDelayMs);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Runs on the delivery thread: picks each listener's share of the fixes and posts it.
+     */
+    private synchronized void dispatch(List<Location> locations) {
+        for (Subscription subscription : subscriptions.values()) {
+            List<Location> selected = null;
+            for (Location location : locations) {
+                long fixNanos = location.getElapsedRealtimeNanos();
+                if (subscription.demand.admits(subscription.lastDeliveredNanos, fixNanos)) {
+                    if (selected == null) {
+                        selected = new ArrayList<>(locations.size());
+                    }
+                    selected.add(location);
+                    subscription.lastDeliveredNanos = fixNanos;
+                }
+            }
+            if (selected != null) {
+                List<Location> delivery = selected;
+                subscription.handler.post(() -> {
+                    if (subscription.active) {
+                        subscription.listener.onLocations(delivery);
+                    }
+                });
+            }
+        }
+    }
+}
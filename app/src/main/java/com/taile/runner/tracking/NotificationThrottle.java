@@ -0,0 +1,80 @@
+package com.taile.runner.tracking;
+
+/**
+ * Decides when the live notification is worth re-posting: only when its text
+ * changed, and at most once per {@code minIntervalMillis}. Offers skipped by the rate
+ * limit stay pending and go out with the first offer after the interval, so the
+ * last value is never lost.
+ *
+ * Counters are kept so the effective update rate can be checked. Not thread-safe.
+ */
+public class NotificationThrottle {
+
+    public static final long DEFAULT_MIN_INTERVAL_MS = 5000;
+
+    private final long minIntervalMillis;
+
+    private String postedContent;
+    private long lastPostTime;
+
+    private int offered;
+    private int posted;
+    private int skippedUnchanged;
+    private int skippedRateLimited;
+
+    public NotificationThrottle() {
+        this(DEFAULT_MIN_INTERVAL_MS);
+    }
+
+    public NotificationThrottle(long minIntervalMillis) {
+        this.minIntervalMillis = minIntervalMillis;
+    }
+
+    public void reset() {
+        postedContent = null;
+        lastPostTime = 0;
+        offered = posted = skippedUnchanged = skippedRateLimited = 0;
+    }
+
+    /**
+     * @return true if {@code content} should be posted now; it is then considered
+     *         shown
+     */
+    public boolean offer(long nowMillis, String content) {
+        offered++;
+        if (content.equals(postedContent)) {
+            skippedUnchanged++;
+            return false;
+        }
+        if (postedContent != null && nowMillis - lastPostTime < minIntervalMillis) {
+            skippedRateLimited++;
+            return false;
+        }
+        postedContent = content;
+        lastPostTime = nowMillis;
+        posted++;
+        return true;
+    }
+
+    public int getOffered() {
+        return offered;
+    }
+
+    public int getPosted() {
+        return posted;
+    }
+
+    public int getSkippedUnchanged() {
+        return skippedUnchanged;
+    }
+
+    public int getSkippedRateLimited() {
+        return skippedRateLimited;
+    }
+
+    @Override
+    public String toString() {
+        return "offered " + offered + ", posted " + posted + ", unchanged " + skippedUnchanged
+                + ", rate-limited " + skippedRateLimited;
+    }
+}
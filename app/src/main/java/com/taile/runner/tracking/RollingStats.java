@@ -0,0 +1,131 @@
+package com.taile.runner.tracking;
+
+/**
+ * Speed over the last few seconds of a run, for display.
+ *
+ * Movement arrives as segments (distance and duration between two fixes) and is
+ * kept in a fixed-capacity ring covering {@code windowMillis}. Running sums give the
+ * window's average speed in amortized O(1) per segment and without allocating after
+ * construction. Segments shorter than {@link #MIN_SEGMENT_MS} are
+ * merged with the following ones first, so two fixes a few milliseconds apart do not
+ * produce an absurd speed.
+ *
+ * Not thread-safe; owned by the tracking thread.
+ */
+public class RollingStats {
+
+    public static final long DEFAULT_WINDOW_MS = 30_000;
+    public static final int DEFAULT_CAPACITY = 64;
+    static final long MIN_SEGMENT_MS = 1000;
+
+    private final long windowMillis;
+    private final int capacity;
+
+    // Ring of segments, addressed by sequence number modulo capacity
+    private final long[] endTimes;
+    private final double[] meters;
+    private final long[] durations;
+    private long headSeq = 0; // oldest segment kept
+    private long tailSeq = 0; // next segment to write
+
+    private double windowMeters = 0;
+    private long windowDuration = 0;
+
+    // Short segments waiting to be merged
+    private double pendingMeters = 0;
+    private long pendingDuration = 0;
+
+    public RollingStats() {
+        this(DEFAULT_WINDOW_MS, DEFAULT_CAPACITY);
+    }
+
+    public RollingStats(long windowMillis, int capacity) {
+        this.windowMillis = windowMillis;
+        this.capacity = capacity;
+        endTimes = new long[capacity];
+        meters = new double[capacity];
+        durations = new long[capacity];
+    }
+
+    public void reset() {
+        headSeq = tailSeq = 0;
+        windowMeters = 0;
+        windowDuration = 0;
+        pendingMeters = 0;
+        pendingDuration = 0;
+    }
+
+    /**
+     * @param endTimeMillis  time of the fix ending the segment
+     * @param segmentMeters  distance covered since the previous fix
+     * @param durationMillis time since the previous fix
+     */
+    public void add(long endTimeMillis, double segmentMeters, long durationMillis) {
+        if (durationMillis <= 0) {
+            return;
+        }
+        pendingMeters += segmentMeters;
+        pendingDuration += durationMillis;
+        if (pendingDuration < MIN_SEGMENT_MS) {
+            return;
+        }
+        double segment = pendingMeters;
+        long duration = pendingDuration;
+        pendingMeters = 0;
+        pendingDuration = 0;
+
+        if (tailSeq - headSeq == capacity) {
+            evictOldest();
+        }
+        int slot = (int) (tailSeq % capacity);
+        endTimes[slot] = endTimeMillis;
+        meters[slot] = segment;
+        durations[slot] = duration;
+        tailSeq++;
+        windowMeters += segment;
+        windowDuration += duration;
+
+        // Drop segments that ended before the window, but always keep the newest
+        while (tailSeq - headSeq > 1 && endTimes[(int) (headSeq % capacity)] <= endTimeMillis - windowMillis) {
+            evictOldest();
+        }
+    }
+
+    public boolean isEmpty() {
+        return tailSeq == headSeq;
+    }
+
+    /**
+     * @return average speed over the window in m/s, 0 if empty
+     */
+    public float getAverageSpeed() {
+        return windowDuration > 0 ? (float) (windowMeters * 1000 / windowDuration) : 0f;
+    }
+
+    /**
+     * @return seconds per kilometer at the window's average speed, 0 if not moving
+     */
+    public float getPace() {
+        float speed = getAverageSpeed();
+        return speed > 0 ? 1000f / speed : 0f;
+    }
+
+    /**
+     * @return milliseconds of movement currently covered by the window
+     */
+    public long getWindowDuration() {
+        return windowDuration;
+    }
+
+    private void evictOldest() {
+        int slot = (int) (headSeq % capacity);
+        windowMeters -= meters[slot];
+        windowDuration -= durations[slot];
+        headSeq++;
+        if (headSeq == tailSeq) {
+            // Avoid drift in the running sums
+            windowMeters = 0;
+            windowDuration = 0;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.taile.runner.tracking;
+
+/**
+ * Decides how often to sample GPS from step-counter activity and recent speed.
+ *
+ * Running (high cadence or speed) samples at the high rate, walking at the low
+ * rate, and standing still pauses precise sampling. Two things keep the mode from
+ * flapping: the running thresholds have separate enter and exit levels, and a new
+ * mode must be proposed continuously for a dwell time before it is taken. Dwell
+ * times are short when more sampling is needed and long when less is.
+ *
+ * Pure Java; all times are monotonic milliseconds supplied by the caller.
+ */
+public class SamplingPolicy {
+
+    public enum Mode {
+        HIGH_RATE,
+        LOW_RATE,
+        PAUSED
+    }
+
+    // Running: cadence in steps/min, speed in m/s
+    static final float RUN_CADENCE_ENTER = 140f;
+    static final float RUN_CADENCE_EXIT = 120f;
+    static final float RUN_SPEED_ENTER = 2.5f;
+    static final float RUN_SPEED_EXIT = 2.0f;
+    // Anything above this is at least walking
+    static final float MOVE_CADENCE = 30f;
+    static final float MOVE_SPEED = 0.6f;
+
+    static final long CADENCE_WINDOW_MS = 15_000;
+    // Shortest span a cadence is measured over, so a single burst of steps reads low
+    static final long MIN_CADENCE_SPAN_MS = 3_000;
+    static final long SPEED_STALE_MS = 20_000;
+    private static final float SPEED_SMOOTHING = 0.4f;
+
+    static final long UPGRADE_DWELL_MS = 3_000;
+    static final long DOWNGRADE_DWELL_MS = 15_000;
+    static final long PAUSE_DWELL_MS = 30_000;
+
+    private static final int STEP_SAMPLES = 32;
+
+    private final CadenceMeter cadenceMeter =
+            new CadenceMeter(CADENCE_WINDOW_MS, MIN_CADENCE_SPAN_MS, STEP_SAMPLES);
+
+    private float smoothedSpeed = 0f;
+    private long speedTime = Long.MIN_VALUE;
+
+    private boolean autoPaused = false;
+    private Mode mode = Mode.HIGH_RATE;
+    private Mode candidate = Mode.HIGH_RATE;
+    private long candidateSince = 0;
+    private long lastEvaluation = 0;
+    private final long[] timeInMode = new long[Mode.values().length];
+
+    public SamplingPolicy() {
+        reset(0);
+    }
+
+    /**
+     * Starts a new run in high-rate mode.
+     */
+    public void reset(long nowMillis) {
+        cadenceMeter.reset();
+        smoothedSpeed = 0f;
+        speedTime = Long.MIN_VALUE;
+        autoPaused = false;
+        mode = Mode.HIGH_RATE;
+        candidate = Mode.HIGH_RATE;
+        candidateSince = nowMillis;
+        lastEvaluation = nowMillis;
+        for (int i = 0; i < timeInMode.length; i++) {
+            timeInMode[i] = 0;
+        }
+    }
+
+    /**
+     * @param totalSteps steps since the start of the run
+     */
+    public void onSteps(long timeMillis, int totalSteps) {
+        cadenceMeter.onSteps(timeMillis, totalSteps);
+    }
+
+    public void onSpeed(long timeMillis, float speed) {
+        if (speedTime == Long.MIN_VALUE) {
+            smoothedSpeed = speed;
+        } else {
+            smoothedSpeed += SPEED_SMOOTHING * (speed - smoothedSpeed);
+        }
+        speedTime = Math.max(speedTime, timeMillis);
+    }
+
+    /**
+     * Tells the policy a stop has been confirmed (see {@link AutoPauseDetector}); high-rate
+     * sampling then ends at the next evaluation without waiting out its dwell time.
+     */
+    public void setAutoPaused(boolean autoPaused) {
+        this.autoPaused = autoPaused;
+    }
+
+    /**
+     * Accounts the time since the previous call to the current mode, then applies
+     * any mode change that has been proposed for long enough.
+     *
+     * @return the mode to sample in from now on
+     */
+    public Mode evaluate(long nowMillis) {
+        if (nowMillis > lastEvaluation) {
+            timeInMode[mode.ordinal()] += nowMillis - lastEvaluation;
+            lastEvaluation = nowMillis;
+        }
+
+        if (autoPaused && mode == Mode.HIGH_RATE) {
+            mode = Mode.LOW_RATE;
+            candidate = Mode.LOW_RATE;
+            candidateSince = nowMillis;
+        }
+
+        Mode proposed = classify(nowMillis);
+        if (proposed == mode) {
+            candidate = mode;
+            return mode;
+        }
+        if (proposed != candidate) {
+            candidate = proposed;
+            candidateSince = nowMillis;
+        }
+        if (nowMillis - candidateSince >= dwellFor(proposed)) {
+            mode = proposed;
+        }
+        return mode;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return milliseconds spent in {@code mode} up to the last {@link #evaluate} call
+     */
+    public long getTimeInMode(Mode mode) {
+        return timeInMode[mode.ordinal()];
+    }
+
+    /**
+     * @return steps per minute over the recent window
+     */
+    public float getCadence(long nowMillis) {
+        return cadenceMeter.getCadence(nowMillis);
+    }
+
+    /**
+     * @return the smoothed speed, or 0 once no fresh speed has been reported
+     */
+    public float getRecentSpeed(long nowMillis) {
+        if (speedTime == Long.MIN_VALUE || nowMillis - speedTime > SPEED_STALE_MS) {
+            return 0f;
+        }
+        return smoothedSpeed;
+    }
+
+    private Mode classify(long nowMillis) {
+        float cadence = getCadence(nowMillis);
+        float speed = getRecentSpeed(nowMillis);
+
+        boolean running = mode == Mode.HIGH_RATE
+                ? cadence >= RUN_CADENCE_EXIT || speed >= RUN_SPEED_EXIT
+                : cadence >= RUN_CADENCE_ENTER || speed >= RUN_SPEED_ENTER;
+        if (running) {
+            return Mode.HIGH_RATE;
+        }
+        if (cadence >= MOVE_CADENCE || speed >= MOVE_SPEED) {
+            return Mode.LOW_RATE;
+        }
+        return Mode.PAUSED;
+    }
+
+    private long dwellFor(Mode proposed) {
+        if (proposed.ordinal() < mode.ordinal()) {
+            return UPGRADE_DWELL_MS;
+        }
+        return proposed == Mode.PAUSED ? PAUSE_DWELL_MS : DOWNGRADE_DWELL_MS;
+    }
+}
@@ -0,0 +1,126 @@
+package com.taile.runner.tracking;
+
+import com.taile.runner.models.Split;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cuts a run into fixed-distance splits as it is recorded.
+ *
+ * Each progress update covers the segment since the previous one; every split
+ * boundary inside it is located by linear interpolation of time and steps along
+ * the segment, so a split ends exactly at its distance rather than at the next fix.
+ * Work per update is constant apart from the boundaries crossed.
+ *
+ * The time axis is whatever the caller supplies; the tracking service passes moving
+ * time so stops are left out of split times.
+ */
+public class SplitEngine {
+
+    public static final float DEFAULT_SPLIT_METERS = 1000f;
+    // A trailing partial split shorter than this is dropped
+    private static final float MIN_PARTIAL_METERS = 50f;
+
+    private final float splitMeters;
+    private final List<Split> splits = new ArrayList<>();
+
+    // End of the previous update
+    private double lastMeters;
+    private long lastTime;
+    private int lastSteps;
+
+    // Start of the split in progress
+    private double splitStartMeters;
+    private double splitStartTime;
+    private double splitStartSteps;
+
+    public SplitEngine() {
+        this(DEFAULT_SPLIT_METERS);
+    }
+
+    public SplitEngine(float splitMeters) {
+        if (splitMeters <= 0) {
+            throw new IllegalArgumentException("Split distance must be positive");
+        }
+        this.splitMeters = splitMeters;
+        reset();
+    }
+
+    /**
+     * Starts a new run at distance 0, time 0 and step 0.
+     */
+    public void reset() {
+        splits.clear();
+        lastMeters = 0;
+        lastTime = 0;
+        lastSteps = 0;
+        splitStartMeters = 0;
+        splitStartTime = 0;
+        splitStartSteps = 0;
+    }
+
+    public float getSplitMeters() {
+        return splitMeters;
+    }
+
+    /**
+     * @param totalMeters distance covered since the start, never decreasing
+     * @param timeMillis  time since the start on the caller's time axis
+     * @param totalSteps  steps since the start
+     * @return the number of splits completed by this update
+     */
+    public int onProgress(double totalMeters, long timeMillis, int totalSteps) {
+        int completed = 0;
+        double segment = totalMeters - lastMeters;
+        if (segment > 0) {
+            double boundary = splitStartMeters + splitMeters;
+            while (boundary <= totalMeters) {
+                double fraction = (boundary - lastMeters) / segment;
+                double time = lastTime + fraction * (timeMillis - lastTime);
+                double steps = lastSteps + fraction * (totalSteps - lastSteps);
+                splits.add(new Split(splitMeters,
+                        Math.round(time - splitStartTime),
+                        (int) Math.round(steps - splitStartSteps)));
+                splitStartMeters = boundary;
+                splitStartTime = time;
+                splitStartSteps = steps;
+                boundary += splitMeters;
+                completed++;
+            }
+            lastMeters = totalMeters;
+        }
+        lastTime = timeMillis;
+        lastSteps = totalSteps;
+        return completed;
+    }
+
+    public int getSplitCount() {
+        return splits.size();
+    }
+
+    /**
+     * @return the completed splits, in order
+     */
+    public List<Split> getSplits() {
+        return new ArrayList<>(splits);
+    }
+
+    /**
+     * Closes the run: the distance since the last boundary becomes a shorter final
+     * split unless it is negligible.
+     *
+     * @return every split of the run
+     */
+    public List<Split> finish(double totalMeters, long timeMillis, int totalSteps) {
+        onProgress(totalMeters, timeMillis, totalSteps);
+        List<Split> result = getSplits();
+        double remaining = lastMeters - splitStartMeters;
+        if (remaining >= MIN_PARTIAL_METERS) {
+            result.add(new Split((float) remaining,
+                    Math.round(lastTime - splitStartTime),
+                    (int) Math.round(lastSteps - splitStartSteps)));
+        }
+        return result;
+    }
+}
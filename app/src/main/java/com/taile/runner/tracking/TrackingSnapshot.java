@@ -0,0 +1,176 @@
+package com.taile.runner.tracking;
+
+import android.location.Location;
+
+import java.text.DecimalFormatSymbols;
+
+/**
+ * Live values of the current run at one point in time, published to the UI as a
+ * whole so every field belongs to the same moment. Display text is formatted once
+ * per snapshot, off the main thread.
+ */
+public final class TrackingSnapshot {
+
+    public static final String NO_PACE_TEXT = "--:--";
+
+    public final int steps;
+    public final float distanceKm;
+    public final float speed; // rolling average, m/s
+    public final float pace; // s/km, 0 if not moving
+    public final boolean autoPaused;
+    // Latest fix, null until the first one arrives
+    public final Location location;
+    // Points recorded in the run's track so far
+    public final int trackPoints;
+
+    public final String stepsText;
+    public final String distanceText; // km, 2 decimals
+    public final String speedText; // m/s, 1 decimal
+    public final String paceText; // m:ss per km
+
+    private TrackingSnapshot(Builder builder) {
+        steps = builder.steps;
+        distanceKm = builder.distanceKm;
+        speed = builder.speed;
+        pace = builder.pace;
+        autoPaused = builder.autoPaused;
+        location = builder.location;
+        trackPoints = builder.trackPoints;
+        stepsText = builder.stepsText;
+        distanceText = builder.distanceText;
+        speedText = builder.speedText;
+        paceText = builder.paceText;
+    }
+
+    /**
+     * Accumulates changes between snapshots. Text is only rebuilt for fields whose
+     * displayed value changed; otherwise the previous String is reused. Not
+     * thread-safe; owned by the tracking thread.
+     */
+    public static final class Builder {
+        private final char decimalSeparator;
+        private final StringBuilder text = new StringBuilder(16);
+
+        private int steps;
+        private float distanceKm;
+        private float speed;
+        private float pace;
+        private boolean autoPaused;
+        private Location location;
+        private int trackPoints;
+        private boolean changed = true;
+
+        // Displayed values the cached text was built from
+        private long shownSteps = -1;
+        private long shownDistance = -1; // 10 m units
+        private long shownSpeed = -1; // 0.1 m/s units
+        private long shownPace = -1; // seconds
+        private String stepsText;
+        private String distanceText;
+        private String speedText;
+        private String paceText;
+
+        public Builder() {
+            this(DecimalFormatSymbols.getInstance().getDecimalSeparator());
+        }
+
+        public Builder(char decimalSeparator) {
+            this.decimalSeparator = decimalSeparator;
+            reset();
+        }
+
+        public void reset() {
+            steps = 0;
+            distanceKm = 0f;
+            speed = 0f;
+            pace = 0f;
+            autoPaused = false;
+            location = null;
+            trackPoints = 0;
+            changed = true;
+        }
+
+        public void setSteps(int steps) {
+            changed |= this.steps != steps;
+            this.steps = steps;
+        }
+
+        public void setDistanceKm(float distanceKm) {
+            changed |= this.distanceKm != distanceKm;
+            this.distanceKm = distanceKm;
+        }
+
+        public void setSpeed(float speed, float pace) {
+            changed |= this.speed != speed || this.pace != pace;
+            this.speed = speed;
+            this.pace = pace;
+        }
+
+        public void setAutoPaused(boolean autoPaused) {
+            changed |= this.autoPaused != autoPaused;
+            this.autoPaused = autoPaused;
+        }
+
+        public void setLocation(Location location) {
+            changed |= this.location != location;
+            this.location = location;
+        }
+
+        public void setTrackPoints(int trackPoints) {
+            changed |= this.trackPoints != trackPoints;
+            this.trackPoints = trackPoints;
+        }
+
+        /**
+         * @return true if something was set since the last {@link #build()}
+         */
+        public boolean hasChanges() {
+            return changed;
+        }
+
+        public TrackingSnapshot build() {
+            if (steps != shownSteps) {
+                shownSteps = steps;
+                stepsText = String.valueOf(steps);
+            }
+            long distance = Math.round(distanceKm * 100.0);
+            if (distance != shownDistance) {
+                shownDistance = distance;
+                distanceText = fixedPoint(distance, 2);
+            }
+            long tenths = Math.round(speed * 10.0);
+            if (tenths != shownSpeed) {
+                shownSpeed = tenths;
+                speedText = fixedPoint(tenths, 1);
+            }
+            long paceSeconds = Math.round(pace);
+            if (paceSeconds != shownPace) {
+                shownPace = paceSeconds;
+                paceText = paceSeconds > 0 ? minutesSeconds(paceSeconds) : NO_PACE_TEXT;
+            }
+            changed = false;
+            return new TrackingSnapshot(this);
+        }
+
+        private String fixedPoint(long value, int decimals) {
+            text.setLength(0);
+            long scale = decimals == 1 ? 10 : 100;
+            text.append(value / scale).append(decimalSeparator);
+            long fraction = value % scale;
+            if (decimals == 2 && fraction < 10) {
+                text.append('0');
+            }
+            return text.append(fraction).toString();
+        }
+
+        private String minutesSeconds(long totalSeconds) {
+            text.setLength(0);
+            long seconds = totalSeconds % 60;
+            text.append(totalSeconds / 60).append(':');
+            if (seconds < 10) {
+                text.append('0');
+            }
+            return text.append(seconds).toString();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.taile.runner.geo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compares the distance variants on consecutive 1 Hz fixes. Skipped unless run with
+ * {@code -Prunner.benchmarks=true}.
+ */
+public class GeoDistanceBenchmark {
+
+    @Before
+    public void onlyWhenRequested() {
+        assumeTrue(Boolean.getBoolean("runner.benchmarks"));
+    }
+
+    @Test
+    public void variantsOnConsecutiveFixes() {
+        int n = 200_000;
+        double[] lats = new double[n];
+        double[] lons = new double[n];
+        Random random = new Random(3);
+        double lat = 10.7626;
+        double lon = 106.6601;
+        for (int i = 0; i < n; i++) {
+            lat += random.nextGaussian() * 2.5e-5;
+            lon += random.nextGaussian() * 2.5e-5;
+            lats[i] = lat;
+            lons[i] = lon;
+        }
+        LocalDistanceKernel kernel = new LocalDistanceKernel();
+
+        double sink = 0;
+        long[] nanos = new long[4];
+        for (int round = 0; round < 3; round++) {
+            long t0 = System.nanoTime();
+            for (int i = 1; i < n; i++) {
+                sink += GeoDistance.vincenty(lats[i - 1], lons[i - 1], lats[i], lons[i]);
+            }
+            long t1 = System.nanoTime();
+            for (int i = 1; i < n; i++) {
+                sink += GeoDistance.haversine(lats[i - 1], lons[i - 1], lats[i], lons[i]);
+            }
+            long t2 = System.nanoTime();
+            for (int i = 1; i < n; i++) {
+                sink += GeoDistance.equirectangular(lats[i - 1], lons[i - 1], lats[i], lons[i]);
+            }
+            long t3 = System.nanoTime();
+            for (int i = 1; i < n; i++) {
+                sink += kernel.distance(lats[i - 1], lons[i - 1], lats[i], lons[i]);
+            }
+            long t4 = System.nanoTime();
+            // Last round is the measured one, earlier ones warm up
+            nanos = new long[]{t1 - t0, t2 - t1, t3 - t2, t4 - t3};
+        }
+
+        String[] names = {"vincenty", "haversine", "equirectangular", "local kernel"};
+        for (int i = 0; i < names.length; i++) {
+            System.out.printf("  %-16s %.1f ns/op%n", names[i], (double) nanos[i] / (n - 1));
+        }
+        // Keeps the loops from being optimized away
+        System.out.println("  (checksum " + (long) sink + ")");
+    }
+}
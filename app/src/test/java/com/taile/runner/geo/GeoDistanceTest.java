@@ -0,0 +1,79 @@
+package com.taile.runner.geo;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GeoDistanceTest {
+
+    @Test
+    public void vincenty_knownDistances() {
+        // Flinders Peak to Buninyong, the classic Vincenty test case
+        assertEquals(54972.271, GeoDistance.vincenty(
+                -37.95103342, 144.42486789, -37.65282114, 143.92649554), 0.001);
+        // One degree of longitude on the equator
+        assertEquals(111319.491, GeoDistance.vincenty(0, 0, 0, 1), 0.001);
+        assertEquals(0, GeoDistance.vincenty(10.5, 106.7, 10.5, 106.7), 0);
+    }
+
+    @Test
+    public void localKernel_withinMillimetersOfVincentyForShortHops() {
+        Random random = new Random(1);
+        LocalDistanceKernel kernel = new LocalDistanceKernel();
+        double worstMeters = 0;
+        double worstRelative = 0;
+        for (int i = 0; i < 100_000; i++) {
+            double lat = (random.nextDouble() * 2 - 1) * 70;
+            double lon = (random.nextDouble() * 2 - 1) * 180;
+            // Up to ~300 m between consecutive fixes
+            double lat2 = lat + (random.nextDouble() * 2 - 1) * 0.002;
+            double lon2 = lon + (random.nextDouble() * 2 - 1) * 0.002;
+
+            double exact = GeoDistance.vincenty(lat, lon, lat2, lon2);
+            double error = Math.abs(kernel.distance(lat, lon, lat2, lon2) - exact);
+            worstMeters = Math.max(worstMeters, error);
+            worstRelative = Math.max(worstRelative, error / exact);
+        }
+        assertTrue(worstMeters < 0.01);
+        assertTrue(worstRelative < 1e-4);
+    }
+
+    @Test
+    public void localKernel_followsAMovingReference() {
+        LocalDistanceKernel kernel = new LocalDistanceKernel();
+        double lat = 59.0;
+        double lon = 18.0;
+        for (int i = 0; i < 20_000; i++) {
+            double nextLat = lat + 2.5e-5;
+            double nextLon = lon + 1e-5;
+            double exact = GeoDistance.vincenty(lat, lon, nextLat, nextLon);
+            assertEquals(exact, kernel.distance(lat, lon, nextLat, nextLon), exact * 1e-4);
+            lat = nextLat;
+            lon = nextLon;
+        }
+    }
+
+    @Test
+    public void localKernel_longSpansAndAntimeridian() {
+        LocalDistanceKernel kernel = new LocalDistanceKernel();
+        assertEquals(GeoDistance.vincenty(10, 106, 11, 107), kernel.distance(10, 106, 11, 107), 1e-6);
+        assertEquals(GeoDistance.vincenty(0, 179.9995, 0, -179.9995),
+                kernel.distance(0, 179.9995, 0, -179.9995), 0.01);
+    }
+
+    @Test
+    public void sphericalFormulas_withinEarthFlatteningOfVincenty() {
+        Random random = new Random(2);
+        for (int i = 0; i < 10_000; i++) {
+            double lat = (random.nextDouble() * 2 - 1) * 80;
+            double lon = (random.nextDouble() * 2 - 1) * 180;
+            double lat2 = lat + (random.nextDouble() * 2 - 1) * 0.01;
+            double lon2 = lon + (random.nextDouble() * 2 - 1) * 0.01;
+            double exact = GeoDistance.vincenty(lat, lon, lat2, lon2);
+            assertEquals(exact, GeoDistance.haversine(lat, lon, lat2, lon2), exact * 0.006 + 1e-6);
+            assertEquals(exact, GeoDistance.equirectangular(lat, lon, lat2, lon2), exact * 0.006 + 1e-6);
+        }
+    }
+}
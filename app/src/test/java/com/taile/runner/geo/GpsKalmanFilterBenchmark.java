@@ -0,0 +1,50 @@
+package com.taile.runner.geo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Allocation check of the per-fix update. It depends on the JIT having compiled the
+ * loop and on a HotSpot-specific bean, so it is skipped unless run with
+ * {@code -Prunner.benchmarks=true}.
+ */
+public class GpsKalmanFilterBenchmark {
+
+    private static final double LAT0 = 10.7769;
+    private static final double LON0 = 106.7009;
+
+    @Before
+    public void onlyWhenRequested() {
+        assumeTrue(Boolean.getBoolean("runner.benchmarks"));
+    }
+
+    @Test
+    public void update_allocatesNothing() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        GpsKalmanFilter filter = new GpsKalmanFilter();
+        long threadId = Thread.currentThread().getId();
+        // Warm up so the measurement sees compiled code
+        run(filter, 0, 200_000);
+        long before = threads.getThreadAllocatedBytes(threadId);
+        run(filter, 200_000, 1_200_000);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        System.out.println("GpsKalmanFilter 1M updates: " + allocated + " bytes allocated");
+        assertTrue(allocated < 10_000);
+    }
+
+    private static double run(GpsKalmanFilter filter, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            double lat = LAT0 + (i % 1000) * 1e-5 + ((i * 7919) % 13) * 1e-6;
+            filter.update(i * 1000L, lat, LON0, 5f);
+            sum += filter.getLatitude();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,120 @@
+package com.taile.runner.geo;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GpsKalmanFilterTest {
+
+    private static final double LAT0 = 10.7769;
+    private static final double LON0 = 106.7009;
+    private static final double SPEED = 3.0;
+    private static final double RADIUS = 200;
+
+    private static final double M_LAT = GeoDistance.metersPerDegreeLatitude(LAT0);
+    private static final double M_LON = GeoDistance.metersPerDegreeLongitude(LAT0);
+
+    /**
+     * Runs a 20 minute loop with 1 Hz fixes carrying white noise of {@code sigma} per
+     * axis, a fraction of them thrown far off as multipath outliers.
+     *
+     * @return {truth, raw polyline, filtered path} in meters
+     */
+    private static double[] replay(GpsKalmanFilter filter, double sigma, float accuracy,
+                                   double outlierRate, long seed) {
+        Random random = new Random(seed);
+        LocalDistanceKernel kernel = new LocalDistanceKernel();
+        double rawLat = Double.NaN, rawLon = 0;
+        double raw = 0, filtered = 0;
+        int seconds = 1200;
+        for (int t = 0; t <= seconds; t++) {
+            double angle = SPEED * t / RADIUS;
+            double east = RADIUS * Math.sin(angle) + random.nextGaussian() * sigma;
+            double north = RADIUS * (1 - Math.cos(angle)) + random.nextGaussian() * sigma;
+            if (random.nextDouble() < outlierRate) {
+                east += 150 + random.nextDouble() * 150;
+            }
+            double lat = LAT0 + north / M_LAT;
+            double lon = LON0 + east / M_LON;
+
+            // What the service used to do: reject only impossible speeds
+            if (Double.isNaN(rawLat)) {
+                rawLat = lat;
+                rawLon = lon;
+            } else {
+                double d = kernel.distance(rawLat, rawLon, lat, lon);
+                if (d <= 12.0) {
+                    raw += d;
+                }
+                rawLat = lat;
+                rawLon = lon;
+            }
+
+            if (filter.update(t * 1000L, lat, lon, accuracy) == GpsKalmanFilter.Result.ACCEPTED) {
+                filtered += filter.getPathIncrement();
+            }
+        }
+        return new double[]{SPEED * seconds, raw, filtered};
+    }
+
+    @Test
+    public void noisyTrack_distanceErrorIsReduced() {
+        double[] result = replay(new GpsKalmanFilter(), 4, 6f, 0, 11);
+        double rawError = Math.abs(result[1] - result[0]) / result[0];
+        double filteredError = Math.abs(result[2] - result[0]) / result[0];
+        assertTrue("filtered error " + filteredError, filteredError < 0.03);
+        assertTrue("raw error " + rawError, filteredError * 10 < rawError);
+    }
+
+    @Test
+    public void outliers_areRejected() {
+        GpsKalmanFilter filter = new GpsKalmanFilter();
+        double[] result = replay(filter, 3, 5f, 0.03, 12);
+        double filteredError = Math.abs(result[2] - result[0]) / result[0];
+        assertTrue("filtered error " + filteredError, filteredError < 0.03);
+    }
+
+    @Test
+    public void sharpCorners_areFollowed() {
+        GpsKalmanFilter filter = new GpsKalmanFilter();
+        Random random = new Random(5);
+        double path = 0;
+        int rejected = 0;
+        int seconds = 1200;
+        for (int t = 0; t <= seconds; t++) {
+            // 100 m square block
+            double s = SPEED * t % 400;
+            double east = s < 100 ? s : s < 200 ? 100 : s < 300 ? 300 - s : 0;
+            double north = s < 100 ? 0 : s < 200 ? s - 100 : s < 300 ? 100 : 400 - s;
+            east += random.nextGaussian() * 2;
+            north += random.nextGaussian() * 2;
+            GpsKalmanFilter.Result result = filter.update(t * 1000L, LAT0 + north / M_LAT, LON0 + east / M_LON, 3f);
+            if (result == GpsKalmanFilter.Result.REJECTED) {
+                rejected++;
+            } else if (result == GpsKalmanFilter.Result.ACCEPTED) {
+                path += filter.getPathIncrement();
+            }
+        }
+        assertEquals(SPEED * seconds, path, SPEED * seconds * 0.03);
+        // Corners cost at most a fix each
+        assertTrue(rejected + " fixes rejected", rejected <= 12);
+    }
+
+    @Test
+    public void persistentJump_restartsTheFilter() {
+        GpsKalmanFilter filter = new GpsKalmanFilter();
+        assertEquals(GpsKalmanFilter.Result.RESET, filter.update(0, LAT0, LON0, 5f));
+        for (int t = 1; t <= 10; t++) {
+            assertEquals(GpsKalmanFilter.Result.ACCEPTED, filter.update(t * 1000L, LAT0, LON0, 5f));
+        }
+        // Teleported 1 km north (e.g. the first fixes were from a stale cell position)
+        double lat = LAT0 + 1000 / M_LAT;
+        assertEquals(GpsKalmanFilter.Result.REJECTED, filter.update(11_000, lat, LON0, 5f));
+        assertEquals(GpsKalmanFilter.Result.REJECTED, filter.update(12_000, lat, LON0, 5f));
+        assertEquals(GpsKalmanFilter.Result.RESET, filter.update(13_000, lat, LON0, 5f));
+        assertEquals(lat, filter.getLatitude(), 1e-9);
+        assertEquals(GpsKalmanFilter.Result.ACCEPTED, filter.update(14_000, lat, LON0, 5f));
+    }
+}
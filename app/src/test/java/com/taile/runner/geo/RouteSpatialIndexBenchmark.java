@@ -0,0 +1,64 @@
+package com.taile.runner.geo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Index build and query timings over 10k city runs. Skipped unless run with
+ * {@code -Prunner.benchmarks=true}.
+ */
+public class RouteSpatialIndexBenchmark {
+
+    private static final double LAT = RouteSpatialIndexTest.LAT;
+    private static final double LON = RouteSpatialIndexTest.LON;
+
+    @Before
+    public void onlyWhenRequested() {
+        assumeTrue(Boolean.getBoolean("runner.benchmarks"));
+    }
+
+    @Test
+    public void queriesOver10kRuns() {
+        Random random = new Random(9);
+        RouteSpatialIndex index = new RouteSpatialIndex();
+        long buildStart = System.nanoTime();
+        for (int id = 0; id < 10_000; id++) {
+            index.add(RouteFootprint.of(id, RouteSpatialIndexTest.cityRun(random, 700, 10)));
+        }
+        double buildMs = (System.nanoTime() - buildStart) / 1e6;
+
+        int queries = 2000;
+        double[][] boxes = new double[queries][];
+        for (int q = 0; q < queries; q++) {
+            double south = LAT + (random.nextDouble() - 0.5) * 0.1;
+            double west = LON + (random.nextDouble() - 0.5) * 0.1;
+            // Street- to neighborhood-sized views
+            double span = 0.003 + random.nextDouble() * 0.02;
+            boxes[q] = new double[]{south, west, south + span, west + span};
+        }
+        long hits = 0;
+        for (int q = 0; q < queries; q++) {
+            hits += index.queryBox(boxes[q][0], boxes[q][1], boxes[q][2], boxes[q][3]).length;
+        }
+        long start = System.nanoTime();
+        for (int q = 0; q < queries; q++) {
+            hits += index.queryBox(boxes[q][0], boxes[q][1], boxes[q][2], boxes[q][3]).length;
+        }
+        double boxUs = (System.nanoTime() - start) / 1e3 / queries;
+        start = System.nanoTime();
+        for (int q = 0; q < queries; q++) {
+            hits += index.queryRadius(boxes[q][0], boxes[q][1], 500).length;
+        }
+        double radiusUs = (System.nanoTime() - start) / 1e3 / queries;
+        start = System.nanoTime();
+        index.queryBox(-90, -180, 90, 180);
+        double worldUs = (System.nanoTime() - start) / 1e3;
+
+        System.out.printf("RouteSpatialIndex 10k runs: indexed in %.0f ms, box %.1f us, radius 500 m %.1f us,"
+                + " whole world %.0f us (%d hits)%n", buildMs, boxUs, radiusUs, worldUs, hits);
+    }
+}
@@ -0,0 +1,195 @@
+package com.taile.runner.geo;
+
+import com.taile.runner.track.TrackBuffer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class RouteSpatialIndexTest {
+
+    static final double LAT = 10.7626;
+    static final double LON = 106.6601;
+    private static final double M_LAT = 1 / 111_320.0;
+    private static final double M_LON = 1 / (111_320.0 * Math.cos(Math.toRadians(LAT)));
+    // Results are exact up to one cell; tests allow this much around the query
+    private static final double CELL_SLACK = RouteFootprint.CELL_DEGREES * 1.01;
+
+    @Test
+    public void boxQuery_findsEveryRunThroughTheArea() {
+        Random random = new Random(1);
+        List<TrackBuffer> tracks = new ArrayList<>();
+        RouteSpatialIndex index = new RouteSpatialIndex();
+        for (int id = 0; id < 300; id++) {
+            TrackBuffer track = cityRun(random, 600, 8);
+            tracks.add(track);
+            index.add(RouteFootprint.of(id, track));
+        }
+
+        for (int q = 0; q < 200; q++) {
+            double south = LAT + (random.nextDouble() - 0.5) * 0.15;
+            double west = LON + (random.nextDouble() - 0.5) * 0.15;
+            double north = south + random.nextDouble() * 0.02;
+            double east = west + random.nextDouble() * 0.02;
+            Set<Long> result = toSet(index.queryBox(south, west, north, east));
+
+            for (int id = 0; id < tracks.size(); id++) {
+                if (passesThrough(tracks.get(id), south, west, north, east, 0)) {
+                    assertTrue("missed run " + id, result.contains((long) id));
+                }
+            }
+            for (long id : result) {
+                assertTrue("run " + id + " too far",
+                        passesThrough(tracks.get((int) id), south, west, north, east, CELL_SLACK));
+            }
+        }
+    }
+
+    @Test
+    public void radiusQuery_findsEveryRunWithinRadius() {
+        Random random = new Random(2);
+        List<TrackBuffer> tracks = new ArrayList<>();
+        RouteSpatialIndex index = new RouteSpatialIndex();
+        for (int id = 0; id < 300; id++) {
+            TrackBuffer track = cityRun(random, 600, 8);
+            tracks.add(track);
+            index.add(RouteFootprint.of(id, track));
+        }
+
+        for (int q = 0; q < 200; q++) {
+            double lat = LAT + (random.nextDouble() - 0.5) * 0.15;
+            double lon = LON + (random.nextDouble() - 0.5) * 0.15;
+            double radius = 50 + random.nextDouble() * 1500;
+            Set<Long> result = toSet(index.queryRadius(lat, lon, radius));
+
+            for (int id = 0; id < tracks.size(); id++) {
+                double nearest = nearestMeters(tracks.get(id), lat, lon);
+                if (nearest <= radius) {
+                    assertTrue("missed run " + id, result.contains((long) id));
+                }
+                if (result.contains((long) id)) {
+                    // Cell diagonal is under 400 m
+                    assertTrue(nearest <= radius + 400);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void removeAndReplace() {
+        RouteSpatialIndex index = new RouteSpatialIndex();
+        TrackBuffer here = line(LAT, LON, 200);
+        TrackBuffer elsewhere = line(LAT + 0.5, LON, 200);
+        index.add(RouteFootprint.of(1, here));
+        index.add(RouteFootprint.of(2, here));
+
+        index.remove(1);
+        assertArrayEquals(new long[]{2}, index.queryRadius(LAT, LON, 100));
+
+        // Same id again replaces the old footprint
+        index.add(RouteFootprint.of(2, elsewhere));
+        assertEquals(0, index.queryRadius(LAT, LON, 100).length);
+        assertArrayEquals(new long[]{2}, index.queryRadius(LAT + 0.5, LON, 100));
+        assertEquals(1, index.size());
+
+        index.clear();
+        assertEquals(0, index.queryRadius(LAT + 0.5, LON, 100).length);
+        index.add(RouteFootprint.of(3, here));
+        assertArrayEquals(new long[]{3}, index.queryRadius(LAT, LON, 100));
+    }
+
+    @Test
+    public void wideArea_walksOccupiedCells() {
+        RouteSpatialIndex index = new RouteSpatialIndex();
+        index.add(RouteFootprint.of(1, line(LAT, LON, 200)));
+        index.add(RouteFootprint.of(2, line(48.85, 2.35, 200)));
+
+        assertArrayEquals(new long[]{1}, index.queryBox(0, 90, 20, 120));
+        assertEquals(2, index.queryBox(-90, -180, 90, 180).length);
+    }
+
+    @Test
+    public void areaAcrossTheAntimeridian() {
+        RouteSpatialIndex index = new RouteSpatialIndex();
+        index.add(RouteFootprint.of(1, line(-17.0, 179.99, 50)));
+        index.add(RouteFootprint.of(2, line(-17.0, -179.99, 50)));
+        index.add(RouteFootprint.of(3, line(-17.0, 178.0, 50)));
+
+        Set<Long> result = toSet(index.queryBox(-17.1, 179.9, -16.9, -179.9));
+        assertEquals(2, result.size());
+        assertTrue(result.contains(1L) && result.contains(2L));
+    }
+
+    @Test
+    public void footprint_fillsCellsAcrossGpsGaps() {
+        // Two fixes 3 km apart along a meridian
+        TrackBuffer track = new TrackBuffer();
+        track.add(LAT, LON, 0, 5f, 3f);
+        track.add(LAT + 3000 * M_LAT, LON, 600_000, 5f, 3f);
+        RouteSpatialIndex index = new RouteSpatialIndex();
+        index.add(RouteFootprint.of(1, track));
+
+        assertArrayEquals(new long[]{1}, index.queryRadius(LAT + 1500 * M_LAT, LON, 50));
+    }
+
+    /**
+     * A run starting somewhere in a ~15 km wide city: wandering heading, steps in meters.
+     */
+    static TrackBuffer cityRun(Random random, int points, double step) {
+        TrackBuffer track = new TrackBuffer(points);
+        double x = (random.nextDouble() - 0.5) * 15_000;
+        double y = (random.nextDouble() - 0.5) * 15_000;
+        double heading = random.nextDouble() * 2 * Math.PI;
+        for (int i = 0; i < points; i++) {
+            heading += random.nextGaussian() * 0.08;
+            x += step * Math.cos(heading);
+            y += step * Math.sin(heading);
+            track.add(LAT + y * M_LAT, LON + x * M_LON, i * 1000L, 5f, 3f);
+        }
+        return track;
+    }
+
+    private static TrackBuffer line(double lat, double lon, int points) {
+        TrackBuffer track = new TrackBuffer(points);
+        for (int i = 0; i < points; i++) {
+            track.add(lat + i * M_LAT, lon, i * 1000L, 5f, 3f);
+        }
+        return track;
+    }
+
+    private static boolean passesThrough(TrackBuffer track, double south, double west,
+                                         double north, double east, double slack) {
+        for (int i = 0; i < track.size(); i++) {
+            double lat = track.getLatitude(i);
+            double lon = track.getLongitude(i);
+            if (lat >= south - slack && lat <= north + slack && lon >= west - slack && lon <= east + slack) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double nearestMeters(TrackBuffer track, double lat, double lon) {
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < track.size(); i++) {
+            double y = (track.getLatitude(i) - lat) * 111_320;
+            double x = (track.getLongitude(i) - lon) * 111_320 * Math.cos(Math.toRadians(lat));
+            best = Math.min(best, Math.sqrt(x * x + y * y));
+        }
+        return best;
+    }
+
+    private static Set<Long> toSet(long[] ids) {
+        Set<Long> set = new HashSet<>();
+        for (long id : ids) {
+            assertTrue("duplicate " + id, set.add(id));
+        }
+        return set;
+    }
+}
@@ -0,0 +1,67 @@
+package com.taile.runner.stats;
+
+import com.taile.runner.models.RunRecord;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Timings at 100k runs, for comparing changes by hand. Skipped unless run with
+ * {@code -Prunner.benchmarks=true}.
+ */
+public class RankingEngineBenchmark {
+
+    private static final long NOW = RankingEngineTest.NOW;
+
+    @Before
+    public void onlyWhenRequested() {
+        assumeTrue(Boolean.getBoolean("runner.benchmarks"));
+    }
+
+    @Test
+    public void updatesAndQueriesAt100kRuns() {
+        Random random = new Random(3);
+        List<RunRecord> records = RankingEngineTest.randomRecords(random, 100_000, 10 * 365);
+        RankingEngine engine = new RankingEngine();
+
+        long t0 = System.nanoTime();
+        for (RunRecord record : records) {
+            engine.add(record);
+        }
+        long buildNanos = System.nanoTime() - t0;
+
+        // Warm up, then time single-run updates and queries
+        for (int i = 0; i < 2000; i++) {
+            engine.top(RankingEngine.Metric.values()[i % 4], RankingEngine.Window.values()[i % 4], 10, NOW);
+        }
+        int updates = 10_000;
+        t0 = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            RunRecord record = records.get(i);
+            engine.remove(record);
+            engine.add(record);
+        }
+        long updateNanos = (System.nanoTime() - t0) / (2L * updates);
+
+        int queries = 2000;
+        long[] queryNanos = new long[RankingEngine.Window.values().length];
+        for (RankingEngine.Window window : RankingEngine.Window.values()) {
+            t0 = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                engine.top(RankingEngine.Metric.values()[i % 4], window, 10, NOW);
+            }
+            queryNanos[window.ordinal()] = (System.nanoTime() - t0) / queries;
+        }
+
+        System.out.printf("RankingEngine @100k: build %d ms, update %.1f us/op%n",
+                buildNanos / 1_000_000, updateNanos / 1000.0);
+        for (RankingEngine.Window window : RankingEngine.Window.values()) {
+            System.out.printf("  top-10 %s: %.1f us/query%n", window, queryNanos[window.ordinal()] / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.taile.runner.stats;
+
+import com.taile.runner.models.RunRecord;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RankingEngineTest {
+
+    static final long DAY_MS = 24L * 60 * 60 * 1000;
+    static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    public void top_matchesBruteForceForEveryMetricAndWindow() {
+        Random random = new Random(1);
+        RankingEngine engine = new RankingEngine();
+        List<RunRecord> records = randomRecords(random, 5000, 3 * 365);
+        for (RunRecord record : records) {
+            engine.add(record);
+        }
+        for (int i = 0; i < 500; i++) {
+            engine.remove(records.remove(random.nextInt(records.size())));
+        }
+
+        for (RankingEngine.Metric metric : RankingEngine.Metric.values()) {
+            for (RankingEngine.Window window : RankingEngine.Window.values()) {
+                assertIds(bruteForce(records, metric, window.startMillis(NOW), Long.MAX_VALUE, 10),
+                        engine.top(metric, window, 10, NOW));
+            }
+            // Narrow window far from the top of the metric order
+            long from = NOW - 900 * DAY_MS;
+            long to = from + 2 * DAY_MS;
+            assertIds(bruteForce(records, metric, from, to, 5), engine.top(metric, from, to, 5));
+        }
+    }
+
+    @Test
+    public void top_returnsFewerWhenWindowIsSmall() {
+        RankingEngine engine = new RankingEngine();
+        engine.add(new RunRecord(1, NOW - DAY_MS, NOW - DAY_MS + 600_000, 3f, 100, 2f));
+        engine.add(new RunRecord(2, NOW - 40 * DAY_MS, NOW - 40 * DAY_MS + 600_000, 9f, 900, 4f));
+
+        List<RunRecord> top = engine.top(RankingEngine.Metric.DISTANCE, RankingEngine.Window.LAST_7_DAYS, 10, NOW);
+        assertEquals(1, top.size());
+        assertEquals(1, top.get(0).getId());
+    }
+
+    static List<RunRecord> randomRecords(Random random, int count, int daySpan) {
+        List<RunRecord> records = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            long start = NOW - (long) (random.nextDouble() * daySpan * DAY_MS);
+            long duration = 600_000 + (long) (random.nextDouble() * 3 * 3600_000);
+            float distance = random.nextFloat() * 25f;
+            records.add(new RunRecord(i, start, start + duration, distance,
+                    random.nextInt(40_000), distance * 1000f / (duration / 1000f)));
+        }
+        return records;
+    }
+
+    private static List<RunRecord> bruteForce(List<RunRecord> records, RankingEngine.Metric metric,
+                                              long from, long to, int k) {
+        List<RunRecord> inWindow = new ArrayList<>();
+        for (RunRecord record : records) {
+            if (record.getStartTime() >= from && record.getStartTime() <= to) {
+                inWindow.add(record);
+            }
+        }
+        inWindow.sort(Comparator.<RunRecord>comparingDouble(r -> -RankingEngine.valueOf(metric, r))
+                .thenComparing(r -> -r.getId()));
+        return inWindow.subList(0, Math.min(k, inWindow.size()));
+    }
+
+    private static void assertIds(List<RunRecord> expected, List<RunRecord> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+        }
+    }
+}
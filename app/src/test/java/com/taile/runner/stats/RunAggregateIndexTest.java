@@ -0,0 +1,142 @@
+package com.taile.runner.stats;
+
+import com.taile.runner.models.RunRecord;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class RunAggregateIndexTest {
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final long START = 1_600_000_000_000L; // Sep 2020
+    private static final TimeZone ZONE = TimeZone.getTimeZone("Asia/Ho_Chi_Minh");
+
+    @Test
+    public void randomRanges_matchBruteForce() {
+        Random random = new Random(42);
+        RunAggregateIndex index = new RunAggregateIndex(ZONE);
+        List<RunRecord> records = new ArrayList<>();
+
+        for (int i = 0; i < 2000; i++) {
+            RunRecord record = randomRecord(random, i, 5 * 365);
+            records.add(record);
+            index.add(record);
+        }
+        // Remove a slice to exercise negative updates
+        for (int i = 0; i < 300; i++) {
+            index.remove(records.remove(random.nextInt(records.size())));
+        }
+
+        for (int q = 0; q < 500; q++) {
+            long a = START - 30 * DAY_MS + (long) (random.nextDouble() * 6 * 365 * DAY_MS);
+            long b = a + (long) (random.nextDouble() * 400 * DAY_MS);
+            assertTotals(bruteForce(records, a, b), index.query(a, b));
+        }
+    }
+
+    @Test
+    public void rebuild_matchesIncrementalUpdates() {
+        Random random = new Random(7);
+        RunAggregateIndex incremental = new RunAggregateIndex(ZONE);
+        List<RunRecord> records = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            RunRecord record = randomRecord(random, i, 3 * 365);
+            records.add(record);
+            incremental.add(record);
+        }
+
+        RunAggregateIndex rebuilt = new RunAggregateIndex(ZONE);
+        rebuilt.rebuild(records);
+
+        long from = START - DAY_MS;
+        long to = START + 4 * 365 * DAY_MS;
+        assertTotals(bruteForce(records, from, to), rebuilt.query(from, to));
+        assertTotals(incremental.query(from, to), rebuilt.query(from, to));
+    }
+
+    @Test
+    public void growsInBothDirections() {
+        RunAggregateIndex index = new RunAggregateIndex(ZONE);
+        index.add(record(1, START, 1f, 100));
+        index.add(record(2, START + 3000 * DAY_MS, 2f, 200));
+        index.add(record(3, START - 4000 * DAY_MS, 4f, 400));
+
+        RunAggregateIndex.Totals all = index.query(START - 5000 * DAY_MS, START + 5000 * DAY_MS);
+        assertEquals(3, all.runCount);
+        assertEquals(7f, all.distance, 1e-4);
+        assertEquals(700, all.steps);
+
+        RunAggregateIndex.Totals first = index.query(START, START);
+        assertEquals(1, first.runCount);
+    }
+
+    @Test
+    public void periodQueries_coverWholeCalendarUnits() {
+        RunAggregateIndex index = new RunAggregateIndex(ZONE);
+        Calendar calendar = Calendar.getInstance(ZONE);
+        calendar.clear();
+        calendar.set(2024, Calendar.MARCH, 1, 6, 0);
+        long marchFirst = calendar.getTimeInMillis();
+        calendar.set(2024, Calendar.MARCH, 31, 23, 30);
+        long marchLast = calendar.getTimeInMillis();
+        calendar.set(2024, Calendar.APRIL, 1, 0, 30);
+        long aprilFirst = calendar.getTimeInMillis();
+
+        index.add(record(1, marchFirst, 5f, 10));
+        index.add(record(2, marchLast, 3f, 20));
+        index.add(record(3, aprilFirst, 1f, 40));
+
+        RunAggregateIndex.Totals march = index.query(RunAggregateIndex.Period.MONTH, marchLast);
+        assertEquals(2, march.runCount);
+        assertEquals(30, march.steps);
+
+        RunAggregateIndex.Totals year = index.query(RunAggregateIndex.Period.YEAR, marchFirst);
+        assertEquals(3, year.runCount);
+    }
+
+    private static RunRecord randomRecord(Random random, long id, int daySpan) {
+        long start = START + (long) (random.nextDouble() * daySpan * DAY_MS);
+        return record(id, start, random.nextFloat() * 20f, random.nextInt(30000));
+    }
+
+    private static RunRecord record(long id, long start, float distance, int steps) {
+        return new RunRecord(id, start, start + 1800_000L + steps * 100L, distance, steps, 2f);
+    }
+
+    private static RunAggregateIndex.Totals bruteForce(List<RunRecord> records, long from, long to) {
+        long fromDay = dayOf(from);
+        long toDay = dayOf(to);
+        double distance = 0;
+        long steps = 0;
+        long duration = 0;
+        int count = 0;
+        for (RunRecord record : records) {
+            long day = dayOf(record.getStartTime());
+            if (day >= fromDay && day <= toDay) {
+                distance += record.getDistance();
+                steps += record.getSteps();
+                duration += record.getDuration();
+                count++;
+            }
+        }
+        return new RunAggregateIndex.Totals((float) distance, steps, duration, count);
+    }
+
+    private static long dayOf(long millis) {
+        return Math.floorDiv(millis + ZONE.getOffset(millis), DAY_MS);
+    }
+
+    private static void assertTotals(RunAggregateIndex.Totals expected, RunAggregateIndex.Totals actual) {
+        assertEquals(expected.runCount, actual.runCount);
+        assertEquals(expected.steps, actual.steps);
+        assertEquals(expected.duration, actual.duration);
+        assertEquals(expected.distance, actual.distance, 1e-2);
+    }
+}
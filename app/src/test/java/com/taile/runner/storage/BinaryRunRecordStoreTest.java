@@ -0,0 +1,278 @@
+package com.taile.runner.storage;
+
+import com.taile.runner.models.RunRecord;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BinaryRunRecordStoreTest {
+
+    private static final int HEADER_SIZE = 16;
+    private static final long START = 1_700_000_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private BinaryRunRecordStore store;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), BinaryRunRecordStore.FILE_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Test
+    public void appendAndReopen_keepsEveryField() {
+        store = new BinaryRunRecordStore(file);
+        store.append(record(1));
+        store.append(record(2));
+        store.close();
+
+        store = new BinaryRunRecordStore(file);
+        List<RunRecord> loaded = store.loadAll();
+        assertEquals(2, loaded.size());
+        assertRecordEquals(record(1), loaded.get(0));
+        assertRecordEquals(record(2), loaded.get(1));
+        assertEquals(2, store.getLastId());
+    }
+
+    @Test
+    public void v1File_isUpgradedToCurrentLayout() throws IOException {
+        writeLegacyFile(37, 3);
+
+        store = new BinaryRunRecordStore(file);
+        List<RunRecord> loaded = store.loadAll();
+        assertEquals(3, loaded.size());
+        for (int i = 0; i < 3; i++) {
+            RunRecord expected = record(i + 1);
+            // Fields the old layout did not have come back as defaults
+            expected.setMovingTime(0);
+            expected.setAvgCadence(0);
+            expected.setMaxCadence(0);
+            assertRecordEquals(expected, loaded.get(i));
+        }
+        assertEquals(HEADER_SIZE + 3L * BinaryRunRecordStore.RECORD_SIZE, file.length());
+        assertEquals(BinaryRunRecordStore.RECORD_SIZE, readHeaderRecordSize());
+    }
+
+    @Test
+    public void v2File_isUpgradedToCurrentLayout() throws IOException {
+        writeLegacyFile(45, 2);
+
+        store = new BinaryRunRecordStore(file);
+        List<RunRecord> loaded = store.loadAll();
+        assertEquals(2, loaded.size());
+        RunRecord expected = record(2);
+        expected.setAvgCadence(0);
+        expected.setMaxCadence(0);
+        assertRecordEquals(expected, loaded.get(1));
+        assertEquals(BinaryRunRecordStore.RECORD_SIZE, readHeaderRecordSize());
+
+        // New appends after the upgrade use the wide slot and survive a reopen
+        store.append(record(3));
+        store.close();
+        store = new BinaryRunRecordStore(file);
+        loaded = store.loadAll();
+        assertEquals(3, loaded.size());
+        assertRecordEquals(record(3), loaded.get(2));
+    }
+
+    @Test
+    public void delete_leavesTombstoneUntilCompaction() {
+        store = new BinaryRunRecordStore(file);
+        for (int i = 1; i <= 10; i++) {
+            store.append(record(i));
+        }
+        store.delete(3);
+        store.delete(7);
+        store.delete(42); // unknown ids are ignored
+
+        assertEquals(8, store.size());
+        assertFalse(store.contains(3));
+        assertEquals(HEADER_SIZE + 10L * BinaryRunRecordStore.RECORD_SIZE, file.length());
+
+        store.compact();
+        assertEquals(HEADER_SIZE + 8L * BinaryRunRecordStore.RECORD_SIZE, file.length());
+        assertEquals(10, store.getLastId());
+
+        store.close();
+        store = new BinaryRunRecordStore(file);
+        List<RunRecord> loaded = store.loadAll();
+        assertEquals(8, loaded.size());
+        for (RunRecord record : loaded) {
+            assertNotEquals(3, record.getId());
+            assertNotEquals(7, record.getId());
+        }
+        // The id counter never goes back, even if the newest record was deleted
+        assertEquals(10, store.getLastId());
+    }
+
+    @Test
+    public void manyDeletes_triggerBackgroundCompaction() throws InterruptedException {
+        store = new BinaryRunRecordStore(file);
+        List<RunRecord> records = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            records.add(record(i));
+        }
+        store.appendAll(records);
+        // The 64th tombstone outnumbers the 36 live records and schedules compaction
+        for (int i = 1; i <= 64; i++) {
+            store.delete(i);
+        }
+
+        long compacted = HEADER_SIZE + 36L * BinaryRunRecordStore.RECORD_SIZE;
+        long deadline = System.currentTimeMillis() + 5000;
+        while (file.length() != compacted && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(compacted, file.length());
+        assertEquals(36, store.size());
+        assertEquals(36, store.loadAll().size());
+    }
+
+    @Test
+    public void tornTailSlot_isDropped() throws IOException {
+        store = new BinaryRunRecordStore(file);
+        store.append(record(1));
+        store.append(record(2));
+        store.close();
+
+        // Simulate a crash halfway through writing the third slot
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length());
+            raf.write(new byte[BinaryRunRecordStore.RECORD_SIZE / 2]);
+        }
+
+        store = new BinaryRunRecordStore(file);
+        assertEquals(2, store.loadAll().size());
+        assertEquals(HEADER_SIZE + 2L * BinaryRunRecordStore.RECORD_SIZE, file.length());
+
+        store.append(record(3));
+        store.close();
+        store = new BinaryRunRecordStore(file);
+        List<RunRecord> loaded = store.loadAll();
+        assertEquals(3, loaded.size());
+        assertRecordEquals(record(3), loaded.get(2));
+    }
+
+    @Test
+    public void corruptRecordSize_failsSoft() throws IOException {
+        // A header claiming zero-byte slots must not be divided by
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(0x52554E52);
+            header.putShort((short) 1);
+            header.putShort((short) 0);
+            header.putLong(7);
+            raf.write(header.array());
+        }
+
+        store = new BinaryRunRecordStore(file);
+        assertTrue(store.loadAll().isEmpty());
+        store.append(record(1));
+        store.delete(1);
+        store.ensureLastIdAtLeast(9);
+        assertFalse(store.contains(1));
+        assertEquals(HEADER_SIZE, file.length());
+    }
+
+    @Test
+    public void clear_resetsRecordsAndLastId() {
+        store = new BinaryRunRecordStore(file);
+        store.append(record(1));
+        store.append(record(2));
+        store.clear();
+
+        assertEquals(0, store.size());
+        assertEquals(0, store.getLastId());
+        assertEquals(HEADER_SIZE, file.length());
+    }
+
+    @Test
+    public void ensureLastIdAtLeast_onlyRaises() {
+        store = new BinaryRunRecordStore(file);
+        store.append(record(5));
+        store.ensureLastIdAtLeast(3);
+        assertEquals(5, store.getLastId());
+        store.ensureLastIdAtLeast(12);
+        store.close();
+
+        store = new BinaryRunRecordStore(file);
+        assertEquals(12, store.getLastId());
+    }
+
+    static RunRecord record(long id) {
+        RunRecord record = new RunRecord(id, START + id * 3_600_000L, START + id * 3_600_000L + 1_800_000L,
+                5f + id, 6000 + (int) id, 2.5f + id / 10f);
+        record.setMovingTime(1_700_000L + id);
+        record.setAvgCadence(160f + id);
+        record.setMaxCadence(175f + id);
+        return record;
+    }
+
+    static void assertRecordEquals(RunRecord expected, RunRecord actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getStartTime(), actual.getStartTime());
+        assertEquals(expected.getEndTime(), actual.getEndTime());
+        assertEquals(expected.getDistance(), actual.getDistance(), 0f);
+        assertEquals(expected.getSteps(), actual.getSteps());
+        assertEquals(expected.getAvgSpeed(), actual.getAvgSpeed(), 0f);
+        assertEquals(expected.getMovingTime(), actual.getMovingTime());
+        assertEquals(expected.getAvgCadence(), actual.getAvgCadence(), 0f);
+        assertEquals(expected.getMaxCadence(), actual.getMaxCadence(), 0f);
+    }
+
+    /**
+     * Writes records 1..count the way an older build did, with a {@code recordSize}
+     * byte slot (37 before moving time, 45 before cadence).
+     */
+    private void writeLegacyFile(int recordSize, int count) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + recordSize * count);
+        buffer.putInt(0x52554E52);
+        buffer.putShort((short) 1);
+        buffer.putShort((short) recordSize);
+        buffer.putLong(count);
+        for (int i = 1; i <= count; i++) {
+            RunRecord record = record(i);
+            buffer.put((byte) 1);
+            buffer.putLong(record.getId());
+            buffer.putLong(record.getStartTime());
+            buffer.putLong(record.getEndTime());
+            buffer.putFloat(record.getDistance());
+            buffer.putInt(record.getSteps());
+            buffer.putFloat(record.getAvgSpeed());
+            if (recordSize > 37) {
+                buffer.putLong(record.getMovingTime());
+            }
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.write(buffer.array());
+        }
+    }
+
+    private int readHeaderRecordSize() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(6);
+            return raf.readUnsignedShort();
+        }
+    }
+}
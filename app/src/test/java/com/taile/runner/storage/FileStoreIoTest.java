@@ -0,0 +1,44 @@
+package com.taile.runner.storage;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class FileStoreIoTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writeAtomically_replacesFileAndLeavesNoTemp() throws IOException {
+        File file = new File(folder.getRoot(), "nested/data.bin");
+        FileStoreIo.writeAtomically(file, out -> out.writeInt(1));
+        FileStoreIo.writeAtomically(file, out -> out.writeInt(2));
+
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            assertEquals(2, in.readInt());
+        }
+        assertEquals(4, file.length());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void tasks_runInSubmissionOrder() throws IOException {
+        File directory = folder.newFolder("runs");
+        File kept = new File(directory, "1.keep");
+        FileStoreIo io = new FileStoreIo("test-io");
+        io.execute(() -> FileStoreIo.writeAtomically(new File(directory, "1.run"), out -> out.writeInt(1)));
+        io.execute(() -> FileStoreIo.writeAtomically(kept, out -> out.writeInt(1)));
+        io.deleteAll(directory, ".run");
+
+        assertEquals(Boolean.TRUE, io.call(() -> directory.list().length == 1 && kept.exists(), false));
+        assertTrue(io.flush(5000));
+    }
+}
@@ -0,0 +1,173 @@
+package com.taile.runner.storage;
+
+import com.google.gson.Gson;
+import com.taile.runner.models.RunRecord;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LegacyRecordsImporterTest {
+
+    private static final int LEGACY_COUNT = 600;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File prefsFile;
+    private File checkpointFile;
+    private BinaryRunRecordStore target;
+
+    @Before
+    public void setUp() throws IOException {
+        prefsFile = new File(folder.getRoot(), LegacyRecordsImporter.PREFS_NAME + ".xml");
+        checkpointFile = new File(folder.getRoot(), "import.checkpoint");
+        target = new BinaryRunRecordStore(new File(folder.getRoot(), BinaryRunRecordStore.FILE_NAME));
+        writePrefs(legacyRecords(LEGACY_COUNT), 0);
+    }
+
+    @After
+    public void tearDown() {
+        target.close();
+    }
+
+    @Test
+    public void importInto_copiesEveryRecord() throws IOException {
+        LegacyRecordsImporter importer = new LegacyRecordsImporter(prefsFile, checkpointFile);
+        List<Integer> progress = new ArrayList<>();
+        int imported = importer.importInto(target, (count, bytesRead, totalBytes) -> progress.add(count));
+
+        assertEquals(LEGACY_COUNT, imported);
+        List<RunRecord> loaded = target.loadAll();
+        assertEquals(LEGACY_COUNT, loaded.size());
+        BinaryRunRecordStoreTest.assertRecordEquals(BinaryRunRecordStoreTest.record(42), loaded.get(41));
+        assertEquals(LEGACY_COUNT, target.getLastId());
+        assertFalse(checkpointFile.exists());
+        // One report per full batch plus the final one
+        assertEquals(3, progress.size());
+        assertEquals(LEGACY_COUNT, (int) progress.get(progress.size() - 1));
+    }
+
+    @Test
+    public void importInto_resumesFromCheckpoint() throws IOException {
+        // A previous run wrote the first batch and its checkpoint, then was killed
+        List<RunRecord> firstBatch = new ArrayList<>();
+        for (int i = 1; i <= 256; i++) {
+            firstBatch.add(BinaryRunRecordStoreTest.record(i));
+        }
+        target.appendAll(firstBatch);
+        writeCheckpoint(256);
+
+        int imported = new LegacyRecordsImporter(prefsFile, checkpointFile).importInto(target, null);
+
+        assertEquals(LEGACY_COUNT - 256, imported);
+        assertEquals(LEGACY_COUNT, target.size());
+        assertFalse(checkpointFile.exists());
+    }
+
+    @Test
+    public void importInto_doesNotReadElementsBeforeCheckpoint() throws IOException {
+        writeCheckpoint(300);
+
+        int imported = new LegacyRecordsImporter(prefsFile, checkpointFile).importInto(target, null);
+
+        assertEquals(LEGACY_COUNT - 300, imported);
+        assertFalse(target.contains(300));
+        assertTrue(target.contains(301));
+    }
+
+    @Test
+    public void importInto_skipsRecordsAlreadyInTarget() throws IOException {
+        // Killed after a batch write but before its checkpoint
+        target.append(BinaryRunRecordStoreTest.record(1));
+        target.append(BinaryRunRecordStoreTest.record(2));
+
+        int imported = new LegacyRecordsImporter(prefsFile, checkpointFile).importInto(target, null);
+
+        assertEquals(LEGACY_COUNT - 2, imported);
+        assertEquals(LEGACY_COUNT, target.size());
+    }
+
+    @Test
+    public void importInto_keepsLegacyIdCounter() throws IOException {
+        // The newest runs were deleted before the upgrade, their ids must not be reused
+        writePrefs(legacyRecords(10), 25);
+
+        new LegacyRecordsImporter(prefsFile, checkpointFile).importInto(target, null);
+
+        assertEquals(10, target.size());
+        assertEquals(25, target.getLastId());
+    }
+
+    @Test
+    public void importInto_withoutIdCounterUsesHighestId() throws IOException {
+        writePrefs(legacyRecords(10), 0);
+
+        new LegacyRecordsImporter(prefsFile, checkpointFile).importInto(target, null);
+
+        assertEquals(10, target.getLastId());
+    }
+
+    @Test
+    public void xmlValueReader_decodesEntities() throws IOException {
+        String xml = "<map><string name=\"" + LegacyRecordsImporter.RECORDS_KEY + "\">"
+                + "a&amp;b &lt;&gt; &quot;&apos; &#233; &#x1F3C3;</string></map>";
+        LegacyRecordsImporter.XmlStringValueReader reader = new LegacyRecordsImporter.XmlStringValueReader(
+                new StringReader(xml));
+        StringBuilder out = new StringBuilder();
+        char[] buffer = new char[4];
+        int n;
+        while ((n = reader.read(buffer, 0, buffer.length)) != -1) {
+            out.append(buffer, 0, n);
+        }
+        assertEquals("a&b <> \"' é 🏃", out.toString());
+    }
+
+    private static List<RunRecord> legacyRecords(int count) {
+        List<RunRecord> records = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            records.add(BinaryRunRecordStoreTest.record(i));
+        }
+        return records;
+    }
+
+    /**
+     * Writes the file the way SharedPreferences does, with the JSON array XML-escaped.
+     */
+    private void writePrefs(List<RunRecord> records, long lastId) throws IOException {
+        String json = new Gson().toJson(records)
+                .replace("&", "&amp;")
+                .replace("<", "&lt;")
+                .replace(">", "&gt;")
+                .replace("\"", "&quot;");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(prefsFile), StandardCharsets.UTF_8)) {
+            out.write("<?xml version='1.0' encoding='utf-8' standalone='yes' ?>\n<map>\n");
+            if (lastId > 0) {
+                out.write("    <long name=\"" + LegacyRecordsImporter.LAST_ID_KEY + "\" value=\"" + lastId + "\" />\n");
+            }
+            out.write("    <string name=\"" + LegacyRecordsImporter.RECORDS_KEY + "\">" + json + "</string>\n");
+            out.write("</map>\n");
+        }
+    }
+
+    private void writeCheckpoint(long consumed) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(checkpointFile))) {
+            out.writeLong(consumed);
+        }
+    }
+}
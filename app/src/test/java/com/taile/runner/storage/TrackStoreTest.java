@@ -0,0 +1,71 @@
+package com.taile.runner.storage;
+
+import com.taile.runner.models.Split;
+import com.taile.runner.track.TrackBuffer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TrackStoreTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void flushedTrack_isReadBackByFreshStore() {
+        File directory = new File(folder.getRoot(), TrackStore.DIRECTORY_NAME);
+        TrackBuffer track = new TrackBuffer();
+        for (int i = 0; i < 100; i++) {
+            track.add(10.76 + i * 1e-5, 106.66 + i * 1e-5, START + i * 1000L, 5f, 3f);
+        }
+
+        TrackStore store = new TrackStore(directory);
+        store.save(7, track);
+        assertTrue(store.flush(5000));
+        assertTrue(new File(directory, "7.trk").exists());
+
+        TrackBuffer loaded = new TrackStore(directory).load(7);
+        assertNotNull(loaded);
+        assertEquals(track.size(), loaded.size());
+        assertEquals(track.getLatitudeE7(99), loaded.getLatitudeE7(99));
+        assertEquals(track.getTime(99), loaded.getTime(99));
+    }
+
+    @Test
+    public void unknownVersion_isRejected() throws IOException {
+        File directory = folder.newFolder(TrackStore.DIRECTORY_NAME);
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(new File(directory, "7.trk")))) {
+            out.writeInt(0x5452414B);
+            out.writeShort(3);
+            out.writeInt(4);
+            out.writeInt(0);
+        }
+        assertNull(new TrackStore(directory).load(7));
+    }
+
+    @Test
+    public void flushedSplits_areReadBackByFreshStore() {
+        File directory = new File(folder.getRoot(), SplitStore.DIRECTORY_NAME);
+        List<Split> splits = Arrays.asList(new Split(1000f, 300_000L, 950), new Split(1000f, 290_000L, 940));
+
+        SplitStore store = new SplitStore(directory);
+        store.save(7, splits);
+        assertTrue(store.flush(5000));
+
+        List<Split> loaded = new SplitStore(directory).load(7);
+        assertEquals(2, loaded.size());
+        assertEquals(290_000L, loaded.get(1).getDuration());
+    }
+}
@@ -0,0 +1,188 @@
+package com.taile.runner.storage;
+
+import com.taile.runner.models.RunRecord;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class WriteBehindRunRecordStoreTest {
+
+    // Long enough that only explicit flushes drain the queue
+    private static final long NEVER_MS = 60_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Records every call the writer makes, optionally blocking inside appendAll.
+     */
+    private static class RecordingStore implements RunRecordStore {
+        final List<String> calls = new ArrayList<>();
+        final List<RunRecord> records = new ArrayList<>();
+        CountDownLatch gate;
+
+        @Override
+        public List<RunRecord> loadAll() {
+            return new ArrayList<>(records);
+        }
+
+        @Override
+        public long getLastId() {
+            return 0;
+        }
+
+        @Override
+        public void append(RunRecord record) {
+            appendAll(Collections.singletonList(record));
+        }
+
+        @Override
+        public void appendAll(List<RunRecord> batch) {
+            if (gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            StringBuilder call = new StringBuilder("append");
+            for (RunRecord record : batch) {
+                call.append(' ').append(record.getId());
+            }
+            calls.add(call.toString());
+            records.addAll(batch);
+        }
+
+        @Override
+        public void delete(long id) {
+            calls.add("delete " + id);
+            records.removeIf(record -> record.getId() == id);
+        }
+
+        @Override
+        public void clear() {
+            calls.add("clear");
+            records.clear();
+        }
+    }
+
+    @Test
+    public void consecutiveAppends_goOutAsOneBatch() {
+        RecordingStore delegate = new RecordingStore();
+        WriteBehindRunRecordStore store = new WriteBehindRunRecordStore(delegate, NEVER_MS);
+        store.append(record(1));
+        store.append(record(2));
+        store.append(record(3));
+        assertEquals(3, store.getQueueDepth());
+        assertTrue(delegate.calls.isEmpty());
+
+        store.flush();
+        assertEquals(0, store.getQueueDepth());
+        assertEquals(List.of("append 1 2 3"), delegate.calls);
+        assertEquals(3, store.getLastId());
+
+        WriteBehindRunRecordStore.Stats stats = store.getStats();
+        assertEquals(3, stats.enqueued);
+        assertEquals(3, stats.applied);
+        assertEquals(1, stats.batches);
+        assertEquals(0, stats.coalesced);
+    }
+
+    @Test
+    public void appendThenDelete_cancelsOut() {
+        RecordingStore delegate = new RecordingStore();
+        WriteBehindRunRecordStore store = new WriteBehindRunRecordStore(delegate, NEVER_MS);
+        store.append(record(1));
+        store.append(record(2));
+        store.delete(1);
+        store.delete(9);
+        store.flush();
+
+        assertEquals(List.of("append 2", "delete 9"), delegate.calls);
+        assertEquals(2, store.getStats().coalesced);
+    }
+
+    @Test
+    public void clear_dropsEverythingQueuedBeforeIt() {
+        RecordingStore delegate = new RecordingStore();
+        WriteBehindRunRecordStore store = new WriteBehindRunRecordStore(delegate, NEVER_MS);
+        store.append(record(1));
+        store.delete(5);
+        store.clear();
+        store.append(record(2));
+        store.flush();
+
+        assertEquals(List.of("clear", "append 2"), delegate.calls);
+        assertEquals(2, store.getStats().coalesced);
+        assertEquals(2, store.getLastId());
+    }
+
+    @Test
+    public void loadAll_seesQueuedMutations() {
+        RecordingStore delegate = new RecordingStore();
+        WriteBehindRunRecordStore store = new WriteBehindRunRecordStore(delegate, NEVER_MS);
+        store.append(record(1));
+        assertEquals(1, store.loadAll().size());
+    }
+
+    @Test
+    public void flushWithTimeout_reportsWhetherQueueDrained() {
+        RecordingStore delegate = new RecordingStore();
+        delegate.gate = new CountDownLatch(1);
+        WriteBehindRunRecordStore store = new WriteBehindRunRecordStore(delegate, NEVER_MS);
+        store.append(record(1));
+
+        assertFalse(store.flush(50));
+
+        delegate.gate.countDown();
+        assertTrue(store.flush(5000));
+        assertEquals(List.of("append 1"), delegate.calls);
+        assertEquals(0, store.getQueueDepth());
+    }
+
+    @Test
+    public void delayedDrain_runsWithoutExplicitFlush() throws InterruptedException {
+        RecordingStore delegate = new RecordingStore();
+        WriteBehindRunRecordStore store = new WriteBehindRunRecordStore(delegate, 10);
+        store.append(record(1));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (store.getStats().batches == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, store.getStats().batches);
+        assertEquals(0, store.getQueueDepth());
+    }
+
+    @Test
+    public void flushedRecords_areReadBackByFreshStore() {
+        File file = new File(folder.getRoot(), BinaryRunRecordStore.FILE_NAME);
+        BinaryRunRecordStore binary = new BinaryRunRecordStore(file);
+        WriteBehindRunRecordStore store = new WriteBehindRunRecordStore(binary, NEVER_MS);
+        store.append(record(1));
+        store.append(record(2));
+        store.delete(1);
+        assertTrue(store.flush(5000));
+        binary.close();
+
+        // As after a process restart
+        BinaryRunRecordStore reopened = new BinaryRunRecordStore(file);
+        List<RunRecord> loaded = reopened.loadAll();
+        reopened.close();
+        assertEquals(1, loaded.size());
+        BinaryRunRecordStoreTest.assertRecordEquals(record(2), loaded.get(0));
+    }
+
+    private static RunRecord record(long id) {
+        return BinaryRunRecordStoreTest.record(id);
+    }
+}
@@ -0,0 +1,173 @@
+package com.taile.runner.track;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RouteDecimatorTest {
+
+    private static final double LAT = 10.7626;
+    private static final double LON = 106.6601;
+    private static final double M_LAT = 1 / 111_320.0;
+    private static final double M_LON = 1 / (111_320.0 * Math.cos(Math.toRadians(LAT)));
+
+    @Test
+    public void straightLine_keepsOnlyTheEnds() {
+        RouteDecimator decimator = new RouteDecimator();
+        int tailMoves = 0;
+        for (int i = 0; i <= 1000; i++) {
+            if (decimator.add(LAT + i * M_LAT, LON + i * 0.5 * M_LON) == RouteDecimator.TAIL_MOVED) {
+                tailMoves++;
+            }
+        }
+
+        assertEquals(2, decimator.size());
+        assertEquals(999, tailMoves);
+        assertEquals(LAT + 1000 * M_LAT, decimator.getLatitude(1), 1e-12);
+    }
+
+    @Test
+    public void gentleArc_isNotFlattenedIntoAChord() {
+        // 400 m of a 200 m radius bend, a point every meter
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i <= 400; i++) {
+            double angle = i / 200.0;
+            points.add(new double[]{200 * Math.sin(angle), 200 * (1 - Math.cos(angle))});
+        }
+        RouteDecimator decimator = replay(points, new RouteDecimator());
+
+        assertTrue("kept " + decimator.size(), decimator.size() > 5 && decimator.size() < 60);
+        assertTrue(maxDeviation(points, decimator) <= 2.0 * 1.5);
+    }
+
+    @Test
+    public void outAndBack_keepsTheTurnaround() {
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i <= 100; i++) {
+            points.add(new double[]{0, i});
+        }
+        for (int i = 99; i >= 0; i--) {
+            points.add(new double[]{0.5, i});
+        }
+        RouteDecimator decimator = replay(points, new RouteDecimator());
+
+        assertTrue(decimator.size() <= 4);
+        assertTrue(maxDeviation(points, decimator) <= 2.0 * 1.5);
+    }
+
+    @Test
+    public void longRun_compactsWithinLimit() {
+        Random random = new Random(3);
+        List<double[]> points = new ArrayList<>();
+        double x = 0;
+        double y = 0;
+        double heading = 0;
+        for (int i = 0; i < 50_000; i++) {
+            heading += random.nextGaussian() * 0.15;
+            x += 3 * Math.cos(heading);
+            y += 3 * Math.sin(heading);
+            points.add(new double[]{x, y});
+        }
+        RouteDecimator decimator = new RouteDecimator(2.0, 500);
+        boolean compacted = false;
+        for (double[] p : points) {
+            compacted |= decimator.add(LAT + p[1] * M_LAT, LON + p[0] * M_LON) == RouteDecimator.COMPACTED;
+            assertTrue(decimator.size() <= 500);
+        }
+
+        assertTrue(compacted);
+        assertTrue(decimator.getTolerance() > 2.0);
+        double[] last = points.get(points.size() - 1);
+        assertEquals(LAT + last[1] * M_LAT, decimator.getLatitude(decimator.size() - 1), 1e-12);
+        // Each compaction bounds against the previous route; errors add up to under twice the final tolerance
+        assertTrue(maxDeviation(points, decimator) <= 2 * decimator.getTolerance() * 1.5);
+    }
+
+    @Test
+    public void changeCodes_mirrorIntoAListLikeTheMap() {
+        Random random = new Random(5);
+        RouteDecimator decimator = new RouteDecimator(2.0, 200);
+        List<double[]> mirror = new ArrayList<>();
+        double x = 0;
+        double y = 0;
+        for (int i = 0; i < 5000; i++) {
+            x += random.nextDouble() * 4;
+            y += random.nextGaussian() * 3;
+            double lat = LAT + y * M_LAT;
+            double lon = LON + x * M_LON;
+            int change = decimator.add(lat, lon);
+            if (change == RouteDecimator.TAIL_MOVED) {
+                mirror.set(mirror.size() - 1, new double[]{lat, lon});
+            } else if (change == RouteDecimator.POINT_ADDED) {
+                mirror.add(new double[]{lat, lon});
+            } else {
+                mirror.clear();
+                for (int k = 0; k < decimator.size(); k++) {
+                    mirror.add(new double[]{decimator.getLatitude(k), decimator.getLongitude(k)});
+                }
+            }
+
+            assertEquals(decimator.size(), mirror.size());
+            double[] tail = mirror.get(mirror.size() - 1);
+            assertEquals(decimator.getLatitude(decimator.size() - 1), tail[0], 0);
+            assertEquals(decimator.getLongitude(decimator.size() - 1), tail[1], 0);
+        }
+    }
+
+    @Test
+    public void clear_restoresInitialTolerance() {
+        RouteDecimator decimator = new RouteDecimator(2.0, 10);
+        for (int i = 0; i < 200; i++) {
+            decimator.add(LAT + (i % 2) * 20 * M_LAT, LON + i * 5 * M_LON);
+        }
+        assertTrue(decimator.getTolerance() > 2.0);
+
+        decimator.clear();
+
+        assertEquals(0, decimator.size());
+        assertEquals(2.0, decimator.getTolerance(), 0);
+    }
+
+    private static RouteDecimator replay(List<double[]> points, RouteDecimator decimator) {
+        for (double[] p : points) {
+            decimator.add(LAT + p[1] * M_LAT, LON + p[0] * M_LON);
+        }
+        return decimator;
+    }
+
+    /**
+     * Largest distance, in meters, from an input point (x east, y north) to the kept route.
+     */
+    private static double maxDeviation(List<double[]> points, RouteDecimator decimator) {
+        int n = decimator.size();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int k = 0; k < n; k++) {
+            xs[k] = (decimator.getLongitude(k) - LON) / M_LON;
+            ys[k] = (decimator.getLatitude(k) - LAT) / M_LAT;
+        }
+        double worst = 0;
+        for (double[] p : points) {
+            double best = Double.MAX_VALUE;
+            for (int k = 0; k + 1 < n; k++) {
+                best = Math.min(best, segmentDistance(p[0], p[1], xs[k], ys[k], xs[k + 1], ys[k + 1]));
+            }
+            worst = Math.max(worst, best);
+        }
+        return worst;
+    }
+
+    private static double segmentDistance(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSq = dx * dx + dy * dy;
+        double t = lengthSq == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / lengthSq));
+        double ex = px - (ax + t * dx);
+        double ey = py - (ay + t * dy);
+        return Math.sqrt(ex * ex + ey * ey);
+    }
+}
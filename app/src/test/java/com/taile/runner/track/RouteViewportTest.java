@@ -0,0 +1,36 @@
+package com.taile.runner.track;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RouteViewportTest {
+
+    @Test
+    public void centerIsInside_edgeIsNot() {
+        assertTrue(RouteViewport.isInsideMargin(10.5, 106.5, 10, 106, 11, 107, 0.2));
+        assertFalse(RouteViewport.isInsideMargin(10.9, 106.5, 10, 106, 11, 107, 0.2));
+        assertFalse(RouteViewport.isInsideMargin(10.5, 106.1, 10, 106, 11, 107, 0.2));
+    }
+
+    @Test
+    public void outsideTheVisibleArea_isNotInside() {
+        assertFalse(RouteViewport.isInsideMargin(12, 106.5, 10, 106, 11, 107, 0.2));
+        assertFalse(RouteViewport.isInsideMargin(10.5, 105, 10, 106, 11, 107, 0.2));
+    }
+
+    @Test
+    public void areaAcrossTheAntimeridian() {
+        // West edge at 179.5, east edge at -179.5
+        assertTrue(RouteViewport.isInsideMargin(0, 179.9, -0.5, 179.5, 0.5, -179.5, 0.2));
+        assertTrue(RouteViewport.isInsideMargin(0, -179.9, -0.5, 179.5, 0.5, -179.5, 0.2));
+        assertFalse(RouteViewport.isInsideMargin(0, 179.6, -0.5, 179.5, 0.5, -179.5, 0.2));
+        assertFalse(RouteViewport.isInsideMargin(0, 0, -0.5, 179.5, 0.5, -179.5, 0.2));
+    }
+
+    @Test
+    public void zeroMargin_acceptsTheWholeArea() {
+        assertTrue(RouteViewport.isInsideMargin(10, 106, 10, 106, 11, 107, 0));
+        assertTrue(RouteViewport.isInsideMargin(11, 107, 10, 106, 11, 107, 0));
+    }
+}
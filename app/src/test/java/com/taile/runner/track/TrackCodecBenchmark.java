@@ -0,0 +1,46 @@
+package com.taile.runner.track;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Encode and decode throughput for a two-hour 1 Hz run. Skipped unless run with
+ * {@code -Prunner.benchmarks=true}.
+ */
+public class TrackCodecBenchmark {
+
+    @Before
+    public void onlyWhenRequested() {
+        assumeTrue(Boolean.getBoolean("runner.benchmarks"));
+    }
+
+    @Test
+    public void twoHourRun() {
+        TrackBuffer track = TrackCodecTest.simulatedRun(new Random(3), 7200);
+        byte[] data = TrackCodec.encode(track);
+
+        for (int i = 0; i < 50; i++) {
+            TrackCodec.decode(TrackCodec.encode(track));
+        }
+        int rounds = 200;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            TrackCodec.encode(track);
+        }
+        long encodeNanos = (System.nanoTime() - t0) / rounds;
+        t0 = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            TrackCodec.decode(data);
+        }
+        long decodeNanos = (System.nanoTime() - t0) / rounds;
+
+        System.out.printf("TrackCodec 7200 pts: %d bytes (%.1f B/pt), fixed-width %d%n",
+                data.length, (double) data.length / track.size(), track.size() * 24);
+        System.out.printf("  encode %.1f Mpts/s, decode %.1f Mpts/s%n",
+                track.size() * 1000.0 / encodeNanos, track.size() * 1000.0 / decodeNanos);
+    }
+}
@@ -0,0 +1,109 @@
+package com.taile.runner.track;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TrackCodecTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    public void roundTrip_keepsCoordinatesAndTimesExactly() {
+        TrackBuffer track = simulatedRun(new Random(1), 7200);
+        TrackBuffer decoded = TrackCodec.decode(TrackCodec.encode(track));
+
+        assertEquals(track.size(), decoded.size());
+        for (int i = 0; i < track.size(); i++) {
+            assertEquals(track.getLatitudeE7(i), decoded.getLatitudeE7(i));
+            assertEquals(track.getLongitudeE7(i), decoded.getLongitudeE7(i));
+            assertEquals(track.getTime(i), decoded.getTime(i));
+            assertEquals(track.getAccuracy(i), decoded.getAccuracy(i), 0.05f + 1e-4f);
+            assertEquals(track.getSpeed(i), decoded.getSpeed(i), 0.005f + 1e-4f);
+        }
+    }
+
+    @Test
+    public void roundTrip_coordinatePrecisionWithinOneCentimeter() {
+        TrackBuffer track = new TrackBuffer();
+        double lat = 10.762622123;
+        double lon = 106.660172456;
+        track.add(lat, lon, START, 4f, 0f);
+        track.add(-lat, -lon, START + 1000, 4f, 0f);
+
+        TrackBuffer decoded = TrackCodec.decode(TrackCodec.encode(track));
+        // 1e-7 degrees is about 1.1 cm at the equator
+        assertEquals(lat, decoded.getLatitude(0), 0.5e-7);
+        assertEquals(lon, decoded.getLongitude(0), 0.5e-7);
+        assertEquals(-lat, decoded.getLatitude(1), 0.5e-7);
+        assertEquals(-lon, decoded.getLongitude(1), 0.5e-7);
+    }
+
+    @Test
+    public void decodeRange_matchesFullDecode() {
+        TrackBuffer track = simulatedRun(new Random(2), 1000);
+        byte[] data = TrackCodec.encode(track);
+        assertEquals(1000, TrackCodec.pointCount(data));
+
+        int[][] ranges = {{0, 1}, {255, 257}, {300, 700}, {990, 2000}, {512, 512}};
+        for (int[] range : ranges) {
+            TrackBuffer part = TrackCodec.decode(data, range[0], range[1]);
+            int expected = Math.max(0, Math.min(1000, range[1]) - range[0]);
+            assertEquals(expected, part.size());
+            for (int i = 0; i < part.size(); i++) {
+                assertEquals(track.getLatitudeE7(range[0] + i), part.getLatitudeE7(i));
+                assertEquals(track.getTime(range[0] + i), part.getTime(i));
+            }
+        }
+    }
+
+    @Test
+    public void encode_emptyTrack() {
+        TrackBuffer decoded = TrackCodec.decode(TrackCodec.encode(new TrackBuffer()));
+        assertTrue(decoded.isEmpty());
+    }
+
+    @Test
+    public void encode_twoHourRunIsCompact() {
+        TrackBuffer track = simulatedRun(new Random(3), 7200);
+        byte[] data = TrackCodec.encode(track);
+
+        // What persisting the points as JSON through Gson would cost
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < track.size(); i++) {
+            points.add(new double[]{track.getLatitude(i), track.getLongitude(i), track.getTime(i),
+                    track.getAccuracy(i), track.getSpeed(i)});
+        }
+        int jsonBytes = new Gson().toJson(points).length();
+
+        double bytesPerPoint = (double) data.length / track.size();
+        assertTrue(bytesPerPoint + " bytes per point", bytesPerPoint < 12);
+        assertTrue(data.length * 5 < jsonBytes);
+    }
+
+    /**
+     * Jogging pace with GPS jitter, one fix per second.
+     */
+    static TrackBuffer simulatedRun(Random random, int points) {
+        TrackBuffer track = new TrackBuffer();
+        double lat = 10.7626;
+        double lon = 106.6601;
+        double heading = random.nextDouble() * 2 * Math.PI;
+        long time = START;
+        for (int i = 0; i < points; i++) {
+            heading += random.nextGaussian() * 0.1;
+            double speed = 2.8 + random.nextGaussian() * 0.3;
+            lat += Math.cos(heading) * speed / 111_320.0 + random.nextGaussian() * 2e-6;
+            lon += Math.sin(heading) * speed / 109_000.0 + random.nextGaussian() * 2e-6;
+            time += 1000 + random.nextInt(40) - 20;
+            track.add(lat, lon, time, 3f + random.nextFloat() * 10f, (float) speed);
+        }
+        return track;
+    }
+}
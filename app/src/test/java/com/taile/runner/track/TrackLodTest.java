@@ -0,0 +1,68 @@
+package com.taile.runner.track;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TrackLodTest {
+
+    @Test
+    public void everyLevel_staysWithinItsTolerance() {
+        TrackBuffer track = TrackSimplifierTest.randomRun(new Random(3), 20_000);
+        TrackLod lod = TrackLod.build(track);
+
+        for (int level = 0; level < lod.getLevelCount(); level++) {
+            int[] points = lod.getPoints(level);
+            assertEquals(0, points[0]);
+            assertEquals(track.size() - 1, points[points.length - 1]);
+            double deviation = TrackSimplifierTest.maxDeviation(track, points);
+            assertTrue("level " + level + ": " + deviation + " m > " + lod.getTolerance(level),
+                    deviation <= lod.getTolerance(level) + 1e-6);
+        }
+    }
+
+    @Test
+    public void levels_areNestedAndGrowWithZoom() {
+        TrackLod lod = TrackLod.build(TrackSimplifierTest.randomRun(new Random(4), 10_000));
+
+        for (int level = 1; level < lod.getLevelCount(); level++) {
+            int[] coarse = lod.getPoints(level - 1);
+            int[] fine = lod.getPoints(level);
+            assertTrue(fine.length >= coarse.length);
+            // Every coarse point is also in the finer level
+            int j = 0;
+            for (int index : coarse) {
+                while (fine[j] != index) {
+                    j++;
+                }
+            }
+        }
+        assertTrue(lod.getPoints(0).length < 20);
+        assertTrue(lod.getPoints(lod.getLevelCount() - 1).length > 5000);
+    }
+
+    @Test
+    public void levelForZoom_clampsAndRoundsUp() {
+        TrackLod lod = TrackLod.build(TrackSimplifierTest.randomRun(new Random(5), 100));
+
+        assertEquals(0, lod.levelForZoom(0f));
+        assertEquals(lod.getLevelCount() - 1, lod.levelForZoom(25f));
+        assertEquals(15 - TrackLod.MIN_ZOOM, lod.levelForZoom(15f));
+        assertEquals(16 - TrackLod.MIN_ZOOM, lod.levelForZoom(15.3f));
+    }
+
+    @Test
+    public void equalLevels_shareOneArray() {
+        // A straight line simplifies to its endpoints at every zoom
+        TrackBuffer line = new TrackBuffer();
+        for (int i = 0; i < 500; i++) {
+            line.add(TrackSimplifierTest.LAT + i * TrackSimplifierTest.M_LAT, TrackSimplifierTest.LON, i, 5f, 3f);
+        }
+        TrackLod lod = TrackLod.build(line);
+
+        assertSame(lod.getPoints(0), lod.getPoints(lod.getLevelCount() - 1));
+        assertEquals(2, lod.getPoints(0).length);
+    }
+}
@@ -0,0 +1,50 @@
+package com.taile.runner.track;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Simplification and level-of-detail build timings on a long track. Skipped unless
+ * run with {@code -Prunner.benchmarks=true}.
+ */
+public class TrackSimplifierBenchmark {
+
+    @Before
+    public void onlyWhenRequested() {
+        assumeTrue(Boolean.getBoolean("runner.benchmarks"));
+    }
+
+    @Test
+    public void allLevelsOf50kPointTrack() {
+        TrackBuffer track = TrackSimplifierTest.randomRun(new Random(7), 50_000);
+        // Warm up
+        for (int i = 0; i < 3; i++) {
+            TrackLod.build(track);
+        }
+
+        int rounds = 10;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            TrackSimplifier.computeImportance(track);
+        }
+        double importanceMs = (System.nanoTime() - start) / 1e6 / rounds;
+        start = System.nanoTime();
+        TrackLod lod = null;
+        for (int i = 0; i < rounds; i++) {
+            lod = TrackLod.build(track);
+        }
+        double buildMs = (System.nanoTime() - start) / 1e6 / rounds;
+
+        System.out.printf("TrackSimplifier 50k pts: importance %.1f ms (%.1f Mpts/s), all %d levels %.1f ms%n",
+                importanceMs, 50_000 / importanceMs / 1000, lod.getLevelCount(), buildMs);
+        StringBuilder sizes = new StringBuilder("  points per zoom:");
+        for (int zoom = 10; zoom <= 20; zoom += 2) {
+            sizes.append(' ').append(zoom).append('=').append(lod.getPoints(lod.levelForZoom(zoom)).length);
+        }
+        System.out.println(sizes);
+    }
+}
@@ -0,0 +1,129 @@
+package com.taile.runner.track;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TrackSimplifierTest {
+
+    static final double LAT = 10.7626;
+    static final double LON = 106.6601;
+    static final double M_LAT = 1 / 111_320.0;
+    static final double M_LON = 1 / (111_320.0 * Math.cos(Math.toRadians(LAT)));
+
+    @Test
+    public void thresholdingMatchesDouglasPeucker() {
+        Random random = new Random(11);
+        for (int run = 0; run < 20; run++) {
+            TrackBuffer track = randomRun(random, 300 + random.nextInt(300));
+            double[] importance = TrackSimplifier.computeImportance(track);
+            for (double tolerance : new double[]{0.5, 2, 5, 20, 100}) {
+                assertArrayEquals(referenceDouglasPeucker(track, tolerance),
+                        TrackSimplifier.select(importance, tolerance));
+            }
+        }
+    }
+
+    @Test
+    public void endpointsAlwaysKept() {
+        TrackBuffer track = randomRun(new Random(2), 1000);
+        int[] kept = TrackSimplifier.select(TrackSimplifier.computeImportance(track), 1e9);
+
+        assertArrayEquals(new int[]{0, 999}, kept);
+    }
+
+    @Test
+    public void tinyTracks() {
+        assertEquals(0, TrackSimplifier.computeImportance(new TrackBuffer()).length);
+        TrackBuffer one = new TrackBuffer();
+        one.add(LAT, LON, 0, 5f, 0f);
+        assertArrayEquals(new int[]{0}, TrackSimplifier.select(TrackSimplifier.computeImportance(one), 10));
+    }
+
+    /**
+     * A jogging track: ~3 m steps, wandering heading, GPS jitter.
+     */
+    static TrackBuffer randomRun(Random random, int points) {
+        TrackBuffer track = new TrackBuffer(points);
+        double x = 0;
+        double y = 0;
+        double heading = random.nextDouble() * 2 * Math.PI;
+        for (int i = 0; i < points; i++) {
+            heading += random.nextGaussian() * 0.1;
+            x += 3 * Math.cos(heading);
+            y += 3 * Math.sin(heading);
+            double jitterX = random.nextGaussian() * 1.5;
+            double jitterY = random.nextGaussian() * 1.5;
+            track.add(LAT + (y + jitterY) * M_LAT, LON + (x + jitterX) * M_LON, i * 1000L, 5f, 3f);
+        }
+        return track;
+    }
+
+    /**
+     * Largest distance in meters from a track point to the kept polyline segment spanning it.
+     */
+    static double maxDeviation(TrackBuffer track, int[] kept) {
+        double worst = 0;
+        for (int k = 0; k + 1 < kept.length; k++) {
+            int a = kept[k];
+            int b = kept[k + 1];
+            for (int i = a + 1; i < b; i++) {
+                worst = Math.max(worst, segmentDistance(track, i, a, b));
+            }
+        }
+        return worst;
+    }
+
+    private static int[] referenceDouglasPeucker(TrackBuffer track, double tolerance) {
+        List<Integer> kept = new ArrayList<>();
+        kept.add(0);
+        recurse(track, 0, track.size() - 1, tolerance, kept);
+        kept.add(track.size() - 1);
+        int[] result = new int[kept.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = kept.get(i);
+        }
+        return result;
+    }
+
+    private static void recurse(TrackBuffer track, int first, int last, double tolerance, List<Integer> kept) {
+        if (last - first < 2) {
+            return;
+        }
+        int farthest = -1;
+        double max = -1;
+        for (int i = first + 1; i < last; i++) {
+            double d = segmentDistance(track, i, first, last);
+            if (d > max) {
+                max = d;
+                farthest = i;
+            }
+        }
+        if (max > tolerance) {
+            recurse(track, first, farthest, tolerance, kept);
+            kept.add(farthest);
+            recurse(track, farthest, last, tolerance, kept);
+        }
+    }
+
+    private static double segmentDistance(TrackBuffer track, int p, int a, int b) {
+        double lat0 = track.getLatitude(0);
+        double lon0 = track.getLongitude(0);
+        double mLon = 111_320 * Math.cos(Math.toRadians(lat0));
+        double ax = (track.getLongitude(a) - lon0) * mLon;
+        double ay = (track.getLatitude(a) - lat0) * 111_320;
+        double dx = (track.getLongitude(b) - lon0) * mLon - ax;
+        double dy = (track.getLatitude(b) - lat0) * 111_320 - ay;
+        double px = (track.getLongitude(p) - lon0) * mLon - ax;
+        double py = (track.getLatitude(p) - lat0) * 111_320 - ay;
+        double lengthSq = dx * dx + dy * dy;
+        double t = lengthSq > 0 ? Math.max(0, Math.min(1, (px * dx + py * dy) / lengthSq)) : 0;
+        double ex = px - t * dx;
+        double ey = py - t * dy;
+        return Math.sqrt(ex * ex + ey * ey);
+    }
+}
@@ -0,0 +1,97 @@
+package com.taile.runner.tracking;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class AutoPauseDetectorTest {
+
+    /**
+     * Replays a trace of {time ms, speed m/s (NaN = step event only), cadence spm}.
+     */
+    private static AutoPauseDetector replay(double[][] trace) {
+        AutoPauseDetector detector = new AutoPauseDetector();
+        for (double[] sample : trace) {
+            detector.update((long) sample[0], (float) sample[1], (float) sample[2]);
+        }
+        return detector;
+    }
+
+    /**
+     * Builds a 1 Hz trace from segments of {seconds, speed, cadence}, adding GPS
+     * speed noise of {@code noise} m/s.
+     */
+    private static double[][] trace(long seed, double noise, double[]... segments) {
+        Random random = new Random(seed);
+        int total = 0;
+        for (double[] segment : segments) {
+            total += (int) segment[0];
+        }
+        double[][] samples = new double[total + 1][];
+        int i = 0;
+        samples[i++] = new double[]{0, segments[0][1], segments[0][2]};
+        for (double[] segment : segments) {
+            for (int s = 0; s < (int) segment[0]; s++, i++) {
+                double speed = Math.max(0, segment[1] + random.nextGaussian() * noise);
+                samples[i] = new double[]{i * 1000L, speed, segment[2]};
+            }
+        }
+        return samples;
+    }
+
+    @Test
+    public void continuousRun_neverPauses() {
+        AutoPauseDetector detector = replay(trace(1, 0.3, new double[]{1800, 3.0, 165}));
+        assertFalse(detector.isPaused());
+        assertEquals(0, detector.getPauseCount());
+        assertEquals(1_800_000, detector.getMovingTime());
+    }
+
+    @Test
+    public void trafficLight_isExcludedFromMovingTime() {
+        AutoPauseDetector detector = replay(trace(2, 0.15,
+                new double[]{300, 3.0, 165},
+                new double[]{45, 0.1, 0},
+                new double[]{300, 3.0, 165}));
+        assertEquals(1, detector.getPauseCount());
+        assertFalse(detector.isPaused());
+        // Back-dating keeps the error to a sample or two either side of the stop
+        assertEquals(600_000, detector.getMovingTime(), 3_000);
+    }
+
+    @Test
+    public void briefSlowdown_doesNotPause() {
+        AutoPauseDetector detector = replay(trace(3, 0.1,
+                new double[]{120, 3.0, 165},
+                new double[]{4, 0.2, 0},
+                new double[]{120, 3.0, 165}));
+        assertEquals(0, detector.getPauseCount());
+        assertEquals(244_000, detector.getMovingTime());
+    }
+
+    @Test
+    public void stepsAloneResumeAndKeepMoving() {
+        // Speed drops out (e.g. batched or lost fixes) but the step counter keeps going
+        AutoPauseDetector detector = replay(new double[][]{
+                {0, 3.0, 160}, {1000, 3.0, 160}, {2000, 0.0, 0}, {4000, Float.NaN, 0},
+                {9000, Float.NaN, 0}, {12000, Float.NaN, 0},
+                {30000, Float.NaN, 150}, {31000, Float.NaN, 155}, {33000, Float.NaN, 160},
+                {60000, Float.NaN, 160}});
+        assertFalse(detector.isPaused());
+        assertEquals(1, detector.getPauseCount());
+        // Moving 0-2 s, stopped 2-30 s, moving again 30-60 s
+        assertEquals(32_000, detector.getMovingTime());
+    }
+
+    @Test
+    public void gpsJitterWhileStanding_staysPaused() {
+        AutoPauseDetector detector = replay(trace(4, 0.25,
+                new double[]{60, 3.0, 165},
+                new double[]{300, 0.15, 0}));
+        assertTrue(detector.isPaused());
+        assertEquals(1, detector.getPauseCount());
+        assertEquals(60_000, detector.getMovingTime(), 3_000);
+    }
+}
@@ -0,0 +1,67 @@
+package com.taile.runner.tracking;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CadenceMeterTest {
+
+    @Test
+    public void steadyCadence_isMeasured() {
+        CadenceMeter meter = new CadenceMeter(30_000, 5_000, 32);
+        // 170 steps/min, one event per step
+        int steps = 0;
+        long time = 0;
+        for (; time <= 120_000; time += 353) {
+            meter.onSteps(time, steps++);
+        }
+        assertEquals(170f, meter.getCadence(time), 1f);
+        assertEquals(170f, meter.getPeakCadence(), 1f);
+    }
+
+    @Test
+    public void batchedEvents_giveTheSameCadence() {
+        CadenceMeter perEvent = new CadenceMeter(30_000, 5_000, 32);
+        CadenceMeter batched = new CadenceMeter(30_000, 5_000, 32);
+        long[] times = new long[400];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = i * 400L;
+            perEvent.onSteps(times[i], i);
+        }
+        // Same events, handed over in 10 s batches
+        int delivered = 0;
+        for (long flush = 10_000; delivered < times.length; flush += 10_000) {
+            while (delivered < times.length && times[delivered] <= flush) {
+                batched.onSteps(times[delivered], delivered);
+                delivered++;
+            }
+        }
+        long end = times[times.length - 1];
+        assertEquals(perEvent.getCadence(end), batched.getCadence(end), 0f);
+        assertEquals(150f, batched.getCadence(end), 1f);
+    }
+
+    @Test
+    public void burstAfterStandingStill_doesNotSetThePeak() {
+        CadenceMeter meter = new CadenceMeter(30_000, 5_000, 32);
+        meter.onSteps(0, 0);
+        // 10 steps in one second
+        for (int i = 1; i <= 10; i++) {
+            meter.onSteps(100_000 + i * 100, i);
+        }
+        // 9 steps after the first one in the window, spread over the 5 s minimum span
+        assertEquals(108f, meter.getCadence(101_000), 1f);
+        assertEquals(0f, meter.getPeakCadence(), 0f);
+    }
+
+    @Test
+    public void noSteps_forAWindow_readsZero() {
+        CadenceMeter meter = new CadenceMeter(30_000, 5_000, 32);
+        for (int i = 0; i < 100; i++) {
+            meter.onSteps(i * 400L, i);
+        }
+        assertEquals(0f, meter.getCadence(40_000 + 30_001), 0f);
+        meter.reset();
+        assertEquals(0f, meter.getCadence(0), 0f);
+    }
+}
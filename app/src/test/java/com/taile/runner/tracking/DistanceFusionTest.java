@@ -0,0 +1,229 @@
+package com.taile.runner.tracking;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DistanceFusionTest {
+
+    private static final double SPEED = 3.0; // m/s
+    private static final double CADENCE = 170; // steps/min
+    private static final double RADIUS = 150; // m, loop the route runs around
+    // As the service batches them while the UI is hidden
+    private static final long FIX_BATCH_MS = 45_000;
+    private static final long STEP_BATCH_MS = 10_000;
+
+    /**
+     * Replays a run around a circular loop with 2 s fixes and one step
+     * event per second, mimicking the service. GPS error drifts slowly (about 3 m) as
+     * it does on real receivers, rather than jumping independently between fixes: fixes faster than 12 m/s from the last
+     * accepted one are rejected, and fixes inside an outage are simply missing.
+     *
+     * @return {fused distance, GPS-only distance}
+     */
+    private static double[] replay(DistanceFusion fusion, long durationMs, long outageFrom, long outageTo,
+                                   long glitchFrom, long glitchTo, long seed) {
+        Random random = new Random(seed);
+        double lastX = Double.NaN, lastY = Double.NaN;
+        long lastT = 0;
+        double errorX = 0, errorY = 0;
+        double gpsOnly = 0;
+        for (long t = 0; t <= durationMs; t += 1000) {
+            fusion.onSteps(t, steps(t));
+            if (t % 2000 != 0 || (t >= outageFrom && t < outageTo)) {
+                continue;
+            }
+            double angle = SPEED * t / 1000.0 / RADIUS;
+            errorX = 0.98 * errorX + random.nextGaussian() * 0.6;
+            errorY = 0.98 * errorY + random.nextGaussian() * 0.6;
+            double x = RADIUS * Math.cos(angle) + errorX;
+            double y = RADIUS * Math.sin(angle) + errorY;
+            float accuracy = 5f;
+            if (t >= glitchFrom && t < glitchTo) {
+                // Multipath: fixes thrown hundreds of meters off
+                x += 400;
+                accuracy = 60f;
+            }
+            if (Double.isNaN(lastX)) {
+                fusion.restart(t, accuracy);
+                lastX = x;
+                lastY = y;
+                lastT = t;
+                continue;
+            }
+            double meters = Math.hypot(x - lastX, y - lastY);
+            if (meters * 1000 / (t - lastT) > 12.0) {
+                fusion.onFixRejected();
+                continue;
+            }
+            fusion.onFix(t, meters, accuracy);
+            gpsOnly += meters;
+            lastX = x;
+            lastY = y;
+            lastT = t;
+        }
+        return new double[]{fusion.getDistance(durationMs), gpsOnly};
+    }
+
+    /**
+     * Replays the same run with fixes handed over every 45 s and step events every
+     * 10 s, each carrying the time it was sensed. Between deliveries the displayed
+     * distance is checked the way the service reads it after a step batch.
+     *
+     * @return fused distance
+     */
+    private static double replayBatched(DistanceFusion fusion, long durationMs, long outageFrom, long outageTo,
+                                        long seed) {
+        Random random = new Random(seed);
+        List<long[]> pendingSteps = new ArrayList<>();
+        List<double[]> pendingFixes = new ArrayList<>();
+        double lastX = Double.NaN, lastY = Double.NaN;
+        long lastT = 0;
+        double errorX = 0, errorY = 0;
+        double shown = 0;
+        for (long t = 0; t <= durationMs; t += 1000) {
+            pendingSteps.add(new long[]{t, steps(t)});
+            if (t % 2000 == 0 && (t < outageFrom || t >= outageTo)) {
+                double angle = SPEED * t / 1000.0 / RADIUS;
+                errorX = 0.98 * errorX + random.nextGaussian() * 0.6;
+                errorY = 0.98 * errorY + random.nextGaussian() * 0.6;
+                pendingFixes.add(new double[]{t, RADIUS * Math.cos(angle) + errorX, RADIUS * Math.sin(angle) + errorY});
+            }
+            if (t % STEP_BATCH_MS == 0) {
+                for (long[] event : pendingSteps) {
+                    fusion.onSteps(event[0], (int) event[1]);
+                }
+                pendingSteps.clear();
+            }
+            if (t % FIX_BATCH_MS == 0 || t == durationMs) {
+                for (double[] fix : pendingFixes) {
+                    long fixTime = (long) fix[0];
+                    if (Double.isNaN(lastX)) {
+                        fusion.restart(fixTime, 5f);
+                    } else {
+                        double meters = Math.hypot(fix[1] - lastX, fix[2] - lastY);
+                        if (meters * 1000 / (fixTime - lastT) > 12.0) {
+                            fusion.onFixRejected();
+                            continue;
+                        }
+                        fusion.onFix(fixTime, meters, 5f);
+                    }
+                    lastX = fix[1];
+                    lastY = fix[2];
+                    lastT = fixTime;
+                }
+                pendingFixes.clear();
+            }
+            if (t % STEP_BATCH_MS == 0 && t < outageFrom) {
+                // Waiting for the next batch is not an outage: nothing is guessed and
+                // the distance never has to step back when the fixes arrive
+                assertEquals("provisional meters at " + t, 0, fusion.getProvisionalMeters(t), 0);
+                double distance = fusion.getDistance(t);
+                assertTrue("distance went back at " + t + ": " + distance + " < " + shown, distance >= shown);
+                shown = distance;
+            }
+        }
+        return fusion.getDistance(durationMs);
+    }
+
+    private static int steps(long t) {
+        return (int) (t / 60_000.0 * CADENCE);
+    }
+
+    @Test
+    public void cleanTrace_matchesGpsAndCalibratesStride() {
+        DistanceFusion fusion = new DistanceFusion(0.75f);
+        double[] result = replay(fusion, 600_000, -1, -1, -1, -1, 1);
+        assertEquals(result[1], result[0], 1e-6);
+        assertEquals(0, fusion.getStepFilledMeters(), 0);
+        // True stride is 3 m/s over 170 steps/min
+        assertEquals(SPEED * 60 / CADENCE, fusion.getStrideLength(), 0.05);
+        assertTrue(fusion.getCalibrationCount() > 10);
+    }
+
+    @Test
+    public void outage_isFilledFromSteps() {
+        DistanceFusion fusion = new DistanceFusion(0.75f);
+        // 3 min tunnel after 5 minutes: the chord across the loop misses most of the path
+        double[] result = replay(fusion, 600_000, 300_000, 480_000, -1, -1, 2);
+        double truth = SPEED * 600;
+        double gpsError = Math.abs(result[1] - truth) / truth;
+        double fusedError = Math.abs(result[0] - truth) / truth;
+        String summary = String.format("truth %.0f m, GPS %.0f m (%.1f%%), fused %.0f m (%.1f%%)",
+                truth, result[1], gpsError * 100, result[0], fusedError * 100);
+        assertTrue(summary, fusedError < 0.03);
+        assertTrue(summary, fusedError < gpsError);
+        assertTrue(fusion.getStepFilledMeters() > 200);
+    }
+
+    @Test
+    public void rejectedFixes_areCoveredBySteps() {
+        DistanceFusion fusion = new DistanceFusion(0.75f);
+        double[] result = replay(fusion, 600_000, -1, -1, 200_000, 240_000, 3);
+        double truth = SPEED * 600;
+        assertEquals(truth, result[0], truth * 0.03);
+    }
+
+    @Test
+    public void ongoingOutage_advancesProvisionally() {
+        DistanceFusion fusion = new DistanceFusion(0.8f);
+        fusion.onSteps(0, 0);
+        fusion.restart(0, 5f);
+        fusion.onSteps(4_000, 10);
+        // Within a normal fix interval nothing is guessed
+        assertEquals(0, fusion.getDistance(5_000), 0);
+        fusion.onSteps(60_000, 100);
+        assertEquals(80, fusion.getDistance(60_000), 1e-3);
+
+        // The fix closing the outage commits at least what was shown
+        assertEquals(80, fusion.onFix(60_000, 50, 5f), 1e-3);
+        assertEquals(80, fusion.getDistance(60_000), 1e-3);
+    }
+
+    @Test
+    public void batchedDelivery_matchesStepsToFixTimes() {
+        DistanceFusion fusion = new DistanceFusion(0.75f);
+        fusion.setDeliveryDelay(FIX_BATCH_MS);
+        double fused = replayBatched(fusion, 600_000, Long.MAX_VALUE, Long.MAX_VALUE, 4);
+        double truth = SPEED * 600;
+        assertEquals(truth, fused, truth * 0.03);
+        assertEquals(0, fusion.getStepFilledMeters(), 0);
+        // Steps interpolated at each fix time calibrate the same stride as live delivery
+        assertEquals(SPEED * 60 / CADENCE, fusion.getStrideLength(), 0.05);
+        assertTrue(fusion.getCalibrationCount() > 10);
+    }
+
+    @Test
+    public void batchedDelivery_outageIsStillFilled() {
+        DistanceFusion fusion = new DistanceFusion(0.75f);
+        fusion.setDeliveryDelay(FIX_BATCH_MS);
+        double fused = replayBatched(fusion, 600_000, 300_000, 480_000, 5);
+        double truth = SPEED * 600;
+        assertEquals(truth, fused, truth * 0.03);
+        assertTrue(fusion.getStepFilledMeters() > 200);
+    }
+
+    @Test
+    public void batchWait_isNotAnOutage() {
+        DistanceFusion fusion = new DistanceFusion(0.8f);
+        fusion.setDeliveryDelay(FIX_BATCH_MS);
+        fusion.onSteps(0, 0);
+        fusion.restart(0, 5f);
+        fusion.onSteps(40_000, 100);
+        assertEquals(0, fusion.getProvisionalMeters(40_000), 0);
+        assertEquals(80, fusion.getProvisionalMeters(60_000), 1e-3);
+    }
+
+    @Test
+    public void withoutStepSensor_gpsIsUsedAsIs() {
+        DistanceFusion fusion = new DistanceFusion(0.75f);
+        fusion.restart(0, 5f);
+        fusion.onFixRejected();
+        assertEquals(40, fusion.onFix(30_000, 40, 5f), 0);
+        assertEquals(0, fusion.getProvisionalMeters(90_000), 0);
+    }
+}
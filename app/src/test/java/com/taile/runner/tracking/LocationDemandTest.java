@@ -0,0 +1,73 @@
+package com.taile.runner.tracking;
+
+import com.google.android.gms.location.Priority;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class LocationDemandTest {
+
+    private static final LocationDemand SERVICE_HIGH_RATE =
+            new LocationDemand(2000, 1000, Priority.PRIORITY_HIGH_ACCURACY, 45_000);
+    private static final LocationDemand SERVICE_PAUSED =
+            new LocationDemand(30_000, 30_000, Priority.PRIORITY_BALANCED_POWER_ACCURACY, 0);
+    private static final LocationDemand MAP = new LocationDemand(2000, Priority.PRIORITY_HIGH_ACCURACY);
+
+    @Test
+    public void merge_takesFastestRateAndBestAccuracy() {
+        LocationDemand merged = LocationDemand.merge(Arrays.asList(SERVICE_PAUSED, MAP));
+
+        assertEquals(2000, merged.intervalMs);
+        assertEquals(2000, merged.minUpdateIntervalMs);
+        assertEquals(Priority.PRIORITY_HIGH_ACCURACY, merged.priority);
+        assertEquals(0, merged.maxUpdateDelayMs);
+    }
+
+    @Test
+    public void merge_batchesOnlyIfEveryoneAllowsIt() {
+        assertEquals(45_000, LocationDemand.merge(Collections.singletonList(SERVICE_HIGH_RATE)).maxUpdateDelayMs);
+        assertEquals(0, LocationDemand.merge(Arrays.asList(SERVICE_HIGH_RATE, MAP)).maxUpdateDelayMs);
+    }
+
+    @Test
+    public void merge_ofNothingIsNull() {
+        assertNull(LocationDemand.merge(Collections.emptyList()));
+    }
+
+    @Test
+    public void merge_isStableForUnchangedDemands() {
+        // The hub re-requests updates only when the merge differs
+        assertEquals(LocationDemand.merge(Arrays.asList(SERVICE_HIGH_RATE, MAP)),
+                LocationDemand.merge(Arrays.asList(MAP, SERVICE_HIGH_RATE)));
+        assertNotEquals(LocationDemand.merge(Arrays.asList(SERVICE_HIGH_RATE, MAP)),
+                LocationDemand.merge(Arrays.asList(SERVICE_PAUSED, MAP)));
+    }
+
+    @Test
+    public void admits_thinsSharedStreamToOwnRate() {
+        long second = 1_000_000_000L;
+        int delivered = 0;
+        long last = -1;
+        // Shared stream at 1 Hz with some jitter, consumer asked for 30 s
+        for (int i = 0; i < 300; i++) {
+            long fix = (i + 100) * second + (i % 3 - 1) * 50_000_000L;
+            if (SERVICE_PAUSED.admits(last, fix)) {
+                delivered++;
+                last = fix;
+            }
+        }
+        assertEquals(10, delivered);
+    }
+
+    @Test
+    public void admits_toleratesSlightlyEarlyFixes() {
+        long last = 10_000_000_000L;
+        assertTrue(MAP.admits(last, last + 1_900_000_000L));
+        assertFalse(MAP.admits(last, last + 1_000_000_000L));
+        assertTrue(MAP.admits(-1, 0));
+    }
+}
@@ -0,0 +1,45 @@
+package com.taile.runner.tracking;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NotificationThrottleTest {
+
+    @Test
+    public void hourOfTicks_staysWithinRateCap() {
+        NotificationThrottle throttle = new NotificationThrottle(5000);
+        // 1 Hz ticks for an hour at 3 m/s, distance shown to 10 m
+        for (int second = 0; second < 3600; second++) {
+            String content = String.format("%.2f km", second * 3 / 1000.0);
+            throttle.offer(second * 1000L, content);
+        }
+
+        assertEquals(3600, throttle.getOffered());
+        assertTrue(throttle.toString(), throttle.getPosted() <= 3600 / 5 + 1);
+        assertEquals(3600, throttle.getPosted() + throttle.getSkippedUnchanged()
+                + throttle.getSkippedRateLimited());
+    }
+
+    @Test
+    public void unchangedText_isNeverPosted() {
+        NotificationThrottle throttle = new NotificationThrottle(5000);
+        assertTrue(throttle.offer(0, "1.00 km"));
+        for (int i = 1; i <= 100; i++) {
+            assertFalse(throttle.offer(i * 60_000L, "1.00 km"));
+        }
+        assertEquals(1, throttle.getPosted());
+        assertEquals(100, throttle.getSkippedUnchanged());
+    }
+
+    @Test
+    public void rateLimitedText_goesOutOnALaterOffer() {
+        NotificationThrottle throttle = new NotificationThrottle(5000);
+        assertTrue(throttle.offer(0, "1.00 km"));
+        assertFalse(throttle.offer(1000, "1.01 km"));
+        // Value stopped changing; still shown once the interval is over
+        assertFalse(throttle.offer(2000, "1.01 km"));
+        assertTrue(throttle.offer(5000, "1.01 km"));
+        assertFalse(throttle.offer(6000, "1.01 km"));
+    }
+}
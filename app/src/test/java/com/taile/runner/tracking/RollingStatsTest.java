@@ -0,0 +1,96 @@
+package com.taile.runner.tracking;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RollingStatsTest {
+
+    @Test
+    public void constantSpeed_givesSpeedAndPace() {
+        RollingStats stats = new RollingStats();
+        long time = 0;
+        for (int i = 0; i < 100; i++) {
+            time += 2000;
+            stats.add(time, 6.0, 2000);
+        }
+        assertEquals(3f, stats.getAverageSpeed(), 1e-4f);
+        assertEquals(333.3f, stats.getPace(), 0.1f);
+        // Only the last 30 s are kept
+        assertEquals(30_000, stats.getWindowDuration());
+    }
+
+    @Test
+    public void oldSegments_leaveTheWindow() {
+        RollingStats stats = new RollingStats(10_000, 64);
+        long time = 0;
+        for (int i = 0; i < 10; i++) {
+            time += 1000;
+            stats.add(time, 5.0, 1000);
+        }
+        for (int i = 0; i < 10; i++) {
+            time += 1000;
+            stats.add(time, 2.0, 1000);
+        }
+        assertEquals(2f, stats.getAverageSpeed(), 1e-4f);
+        assertEquals(10_000, stats.getWindowDuration());
+    }
+
+    @Test
+    public void closeFixes_areMergedInsteadOfExploding() {
+        RollingStats stats = new RollingStats();
+        stats.add(1000, 3.0, 1000);
+        // 2 m in 20 ms would be 100 m/s on its own
+        stats.add(1020, 2.0, 20);
+        // Held back until the merged segment spans a second
+        assertEquals(1000, stats.getWindowDuration());
+        stats.add(2000, 1.0, 980);
+        assertEquals(2000, stats.getWindowDuration());
+        assertEquals(3f, stats.getAverageSpeed(), 1e-4f);
+    }
+
+    @Test
+    public void average_matchesBruteForce() {
+        long window = 20_000;
+        int capacity = 16;
+        RollingStats stats = new RollingStats(window, capacity);
+        Random random = new Random(7);
+        long[] ends = new long[5000];
+        double[] meters = new double[5000];
+        long[] durations = new long[5000];
+        long time = 0;
+        for (int i = 0; i < ends.length; i++) {
+            long duration = 1000 + random.nextInt(3000);
+            time += duration;
+            meters[i] = random.nextDouble() * 4 * duration / 1000;
+            durations[i] = duration;
+            ends[i] = time;
+            stats.add(time, meters[i], duration);
+
+            double windowMeters = 0;
+            long windowDuration = 0;
+            for (int j = i; j >= 0 && j > i - capacity; j--) {
+                if (j < i && ends[j] <= time - window) {
+                    break;
+                }
+                windowMeters += meters[j];
+                windowDuration += durations[j];
+            }
+            assertEquals(windowDuration, stats.getWindowDuration());
+            assertEquals((float) (windowMeters * 1000 / windowDuration), stats.getAverageSpeed(), 1e-4f);
+        }
+    }
+
+    @Test
+    public void reset_clearsEverything() {
+        RollingStats stats = new RollingStats();
+        stats.add(1000, 3.0, 1000);
+        stats.reset();
+        assertTrue(stats.isEmpty());
+        assertEquals(0f, stats.getAverageSpeed(), 0f);
+        assertEquals(0f, stats.getPace(), 0f);
+        assertEquals(0, stats.getWindowDuration());
+    }
+}
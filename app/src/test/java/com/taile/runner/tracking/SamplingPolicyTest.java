@@ -0,0 +1,123 @@
+package com.taile.runner.tracking;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.taile.runner.tracking.SamplingPolicy.Mode.HIGH_RATE;
+import static com.taile.runner.tracking.SamplingPolicy.Mode.LOW_RATE;
+import static com.taile.runner.tracking.SamplingPolicy.Mode.PAUSED;
+import static org.junit.Assert.*;
+
+public class SamplingPolicyTest {
+
+    private SamplingPolicy policy;
+    private long now;
+    private int steps;
+
+    @Before
+    public void setUp() {
+        policy = new SamplingPolicy();
+        now = 0;
+        steps = 0;
+        policy.reset(now);
+    }
+
+    @Test
+    public void running_staysHighRate() {
+        simulate(120, 165, 3.0f);
+        assertEquals(HIGH_RATE, policy.getMode());
+    }
+
+    @Test
+    public void shortStopAtALight_doesNotPause() {
+        simulate(60, 165, 3.0f);
+        simulate(20, 0, 0f);
+        assertEquals(HIGH_RATE, policy.getMode());
+        simulate(60, 165, 3.0f);
+        assertEquals(HIGH_RATE, policy.getMode());
+    }
+
+    @Test
+    public void longStop_pausesAndResumesQuickly() {
+        simulate(60, 165, 3.0f);
+        simulate(90, 0, 0f);
+        assertEquals(PAUSED, policy.getMode());
+
+        // Steps alone wake it up; no speed arrives while paused
+        long resumedAt = now;
+        while (policy.getMode() == PAUSED) {
+            simulate(1, 165, Float.NaN);
+        }
+        assertTrue(now - resumedAt <= 10_000);
+        simulate(10, 165, Float.NaN);
+        assertEquals(HIGH_RATE, policy.getMode());
+    }
+
+    @Test
+    public void walking_usesLowRate() {
+        simulate(60, 165, 3.0f);
+        simulate(60, 100, 1.3f);
+        assertEquals(LOW_RATE, policy.getMode());
+    }
+
+    @Test
+    public void cadenceNearRunThreshold_doesNotFlap() {
+        simulate(30, 165, Float.NaN);
+        assertEquals(HIGH_RATE, policy.getMode());
+
+        // Oscillates around the enter level but stays above the exit level
+        int switches = 0;
+        SamplingPolicy.Mode previous = policy.getMode();
+        for (int i = 0; i < 20; i++) {
+            simulate(8, i % 2 == 0 ? 125 : 145, Float.NaN);
+            if (policy.getMode() != previous) {
+                switches++;
+                previous = policy.getMode();
+            }
+        }
+        assertEquals(0, switches);
+    }
+
+    @Test
+    public void speedWithoutSteps_countsAsMoving() {
+        // e.g. no step counter on the device
+        simulate(60, 0, 3.0f);
+        assertEquals(HIGH_RATE, policy.getMode());
+        simulate(60, 0, 1.0f);
+        assertEquals(LOW_RATE, policy.getMode());
+    }
+
+    @Test
+    public void timeInMode_addsUpToElapsedTime() {
+        simulate(120, 165, 3.0f);
+        simulate(120, 0, 0f);
+        simulate(120, 100, 1.2f);
+
+        long total = 0;
+        for (SamplingPolicy.Mode mode : SamplingPolicy.Mode.values()) {
+            total += policy.getTimeInMode(mode);
+        }
+        assertEquals(now, total);
+        assertTrue(policy.getTimeInMode(HIGH_RATE) >= 120_000);
+        assertTrue(policy.getTimeInMode(PAUSED) > 0);
+        assertTrue(policy.getTimeInMode(LOW_RATE) > 0);
+    }
+
+    /**
+     * Advances {@code seconds} one second at a time at the given cadence; a NaN
+     * speed means no fix arrives.
+     */
+    private void simulate(int seconds, int cadence, float speed) {
+        for (int i = 0; i < seconds; i++) {
+            now += 1000;
+            if (cadence > 0) {
+                steps += Math.round(cadence / 60f * ((now / 1000) % 2 == 0 ? 1.1f : 0.9f));
+                policy.onSteps(now, steps);
+            }
+            if (!Float.isNaN(speed)) {
+                policy.onSpeed(now, speed);
+            }
+            policy.evaluate(now);
+        }
+    }
+}
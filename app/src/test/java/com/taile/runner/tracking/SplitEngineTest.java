@@ -0,0 +1,74 @@
+package com.taile.runner.tracking;
+
+import com.taile.runner.models.Split;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SplitEngineTest {
+
+    @Test
+    public void constantPace_givesExactSplits() {
+        SplitEngine engine = new SplitEngine();
+        // 3 m/s, 2.7 steps/s, fixes every 7 s so boundaries fall between fixes
+        double meters = 0;
+        long time = 0;
+        while (meters < 3500) {
+            time += 7000;
+            meters += 21;
+            engine.onProgress(meters, time, (int) Math.round(time * 2.7 / 1000));
+        }
+        List<Split> splits = engine.finish(meters, time, (int) Math.round(time * 2.7 / 1000));
+
+        assertEquals(4, splits.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(1000f, splits.get(i).getDistance(), 0f);
+            assertEquals(333_333, splits.get(i).getDuration(), 1);
+            assertEquals(900, splits.get(i).getSteps(), 1);
+            assertEquals(333.3f, splits.get(i).getPace(), 0.1f);
+        }
+        assertEquals(meters - 3000, splits.get(3).getDistance(), 1e-3);
+    }
+
+    @Test
+    public void longSegment_crossingSeveralBoundaries() {
+        SplitEngine engine = new SplitEngine(400f);
+        assertEquals(0, engine.onProgress(300, 60_000, 200));
+        // One segment spanning 300 m -> 1500 m crosses 400, 800 and 1200
+        assertEquals(3, engine.onProgress(1500, 300_000, 1000));
+
+        List<Split> splits = engine.getSplits();
+        assertEquals(3, splits.size());
+        // 400 m is 1/12 of the way along the segment
+        assertEquals(80_000, splits.get(0).getDuration());
+        assertEquals(80_000, splits.get(1).getDuration());
+        assertEquals(80_000, splits.get(2).getDuration());
+        assertEquals(267, splits.get(0).getSteps());
+    }
+
+    @Test
+    public void timeWithoutProgress_countsTowardsTheSplit() {
+        SplitEngine engine = new SplitEngine();
+        engine.onProgress(500, 150_000, 400);
+        // Standing still for a minute on the caller's time axis
+        engine.onProgress(500, 210_000, 400);
+        engine.onProgress(1100, 390_000, 900);
+
+        Split split = engine.getSplits().get(0);
+        assertEquals(360_000, split.getDuration());
+        assertEquals(817, split.getSteps());
+    }
+
+    @Test
+    public void finish_dropsNegligibleRemainder() {
+        SplitEngine engine = new SplitEngine();
+        List<Split> splits = engine.finish(1020, 300_000, 900);
+        assertEquals(1, splits.size());
+
+        engine.reset();
+        assertEquals(0, engine.finish(30, 10_000, 20).size());
+    }
+}
@@ -0,0 +1,60 @@
+package com.taile.runner.tracking;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TrackingSnapshotTest {
+
+    @Test
+    public void build_formatsLikeTheDisplayPatterns() {
+        TrackingSnapshot.Builder builder = new TrackingSnapshot.Builder('.');
+        builder.setSteps(1234);
+        builder.setDistanceKm(3.0449f);
+        builder.setSpeed(2.96f, 337.8f);
+        TrackingSnapshot snapshot = builder.build();
+
+        assertEquals("1234", snapshot.stepsText);
+        assertEquals("3.04", snapshot.distanceText);
+        assertEquals("3.0", snapshot.speedText);
+        assertEquals("5:38", snapshot.paceText);
+
+        builder.setDistanceKm(0.0049f);
+        builder.setSpeed(0f, 0f);
+        snapshot = builder.build();
+        assertEquals("0.00", snapshot.distanceText);
+        assertEquals("0.0", snapshot.speedText);
+        assertEquals(TrackingSnapshot.NO_PACE_TEXT, snapshot.paceText);
+    }
+
+    @Test
+    public void unchangedDisplayValue_reusesText() {
+        TrackingSnapshot.Builder builder = new TrackingSnapshot.Builder(',');
+        builder.setDistanceKm(1.231f);
+        TrackingSnapshot first = builder.build();
+        assertEquals("1,23", first.distanceText);
+        assertFalse(builder.hasChanges());
+
+        // Same two decimals on screen
+        builder.setDistanceKm(1.233f);
+        assertTrue(builder.hasChanges());
+        TrackingSnapshot second = builder.build();
+        assertSame(first.distanceText, second.distanceText);
+        assertSame(first.stepsText, second.stepsText);
+        assertEquals(1.233f, second.distanceKm, 0f);
+    }
+
+    @Test
+    public void settingSameValues_isNotAChange() {
+        TrackingSnapshot.Builder builder = new TrackingSnapshot.Builder('.');
+        builder.setSteps(10);
+        builder.build();
+        builder.setSteps(10);
+        builder.setAutoPaused(false);
+        assertFalse(builder.hasChanges());
+
+        builder.reset();
+        assertTrue(builder.hasChanges());
+        assertEquals(0, builder.build().steps);
+    }
+}